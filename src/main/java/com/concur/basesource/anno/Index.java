@@ -22,6 +22,9 @@ public @interface Index {
 	/** 索引值是否唯一 */
 	boolean unique() default false;
 
+	/** 是否建立排序索引(索引值必须实现{@link Comparable}),支持范围查询 */
+	boolean sorted() default false;
+
 	/** 排序器配置 */
 	@SuppressWarnings("rawtypes")
 	String[] orderBy() default {};
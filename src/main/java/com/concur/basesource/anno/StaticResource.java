@@ -1,5 +1,7 @@
 package com.concur.basesource.anno;
 
+import com.concur.basesource.storage.StoreType;
+
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -17,5 +19,8 @@ public @interface StaticResource {
 	
 	/** 资源位置 */
 	String value() default "";
+
+	/** 主存储空间结构(数组结构仅支持 int 类型主键) */
+	StoreType store() default StoreType.AUTO;
 	
 }
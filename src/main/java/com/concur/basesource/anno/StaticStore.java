@@ -8,6 +8,9 @@ import java.lang.annotation.Target;
 
 /**
  * 静态资源注入注释
+ * <p>属性类型为{@link com.concur.basesource.storage.Storage}时注入存储空间;
+ * 为{@link com.concur.basesource.storage.StaticRef}时注入资源实例引用,重新加载后不需要重新注入;
+ * 其它类型时注入资源实例,重新加载后重新注入</p>
  * @author frank
  */
 @Retention(RetentionPolicy.RUNTIME)
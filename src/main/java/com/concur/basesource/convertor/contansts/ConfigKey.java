@@ -124,4 +124,10 @@ public interface ConfigKey {
      */
     String CODE_SOURCE_INPUT_PATH = "CODE_SOURCE_INPUT_PATH";
 
+    /**
+     * 文件输出格式
+     * json(默认)或binary(有基础数据定义的表格输出二进制快照)
+     */
+    String FILE_OUTPUT_FORMAT = "FILE_OUTPUT_FORMAT";
+
 }
@@ -28,7 +28,7 @@ import java.util.concurrent.ThreadFactory;
  * @version $Id: FileAlterationMonitor.java 1304052 2012-03-22 20:55:29Z ggregory $
  * @since 2.0
  */
-public final class FileAlterationMonitor implements Runnable {
+public final class FileAlterationMonitor implements Runnable, FileMonitor {
 
     private final long interval;
     private final List<FileAlterationObserver> observers = new CopyOnWriteArrayList<FileAlterationObserver>();
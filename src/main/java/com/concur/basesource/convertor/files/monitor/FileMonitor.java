@@ -0,0 +1,25 @@
+package com.concur.basesource.convertor.files.monitor;
+
+/**
+ * 文件监视器
+ * <p>轮询实现为{@link FileAlterationMonitor},事件实现为{@link WatchServiceMonitor}</p>
+ *
+ * @author frank
+ */
+public interface FileMonitor {
+
+    /**
+     * 开始监视
+     *
+     * @throws Exception 无法开始监视时抛出
+     */
+    void start() throws Exception;
+
+    /**
+     * 停止监视
+     *
+     * @throws Exception 无法停止监视时抛出
+     */
+    void stop() throws Exception;
+
+}
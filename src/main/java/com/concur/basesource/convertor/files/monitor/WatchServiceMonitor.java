@@ -0,0 +1,220 @@
+package com.concur.basesource.convertor.files.monitor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基于{@link WatchService}的文件监视器
+ * <p>监视目录及其全部子目录,文件系统事件到达时立即通知{@link FileAlterationListener},没有变化时不扫描目录</p>
+ * <p>只使用{@link FileAlterationListener}的文件和目录事件,不调用{@link FileAlterationListener#onStart(FileAlterationObserver)}
+ * 和{@link FileAlterationListener#onStop(FileAlterationObserver)};同一次修改可能产生多个事件</p>
+ *
+ * @author frank
+ */
+public final class WatchServiceMonitor implements FileMonitor, Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchServiceMonitor.class);
+
+    /** 监视的根目录 */
+    private final File directory;
+    /** 事件监听器 */
+    private final FileAlterationListener listener;
+    /** 监视服务 */
+    private final WatchService watcher;
+    /** 监视键 - 目录(只在开始监视前和监视线程中修改) */
+    private final Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * 构造方法
+     *
+     * @param directory 监视的根目录
+     * @param listener  事件监听器
+     * @throws IOException 无法创建监视服务时抛出
+     */
+    public WatchServiceMonitor(File directory, FileAlterationListener listener) throws IOException {
+        this.directory = directory;
+        this.listener = listener;
+        this.watcher = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * 当前平台是否支持文件系统事件
+     * <p>JDK 7 以下没有{@link WatchService};部分平台上 JDK 只提供轮询实现的{@link WatchService},
+     * 这时使用{@link FileAlterationMonitor}更及时</p>
+     *
+     * @return
+     */
+    public static boolean isSupported() {
+        try {
+            WatchService service = FileSystems.getDefault().newWatchService();
+            try {
+                return !service.getClass().getName().endsWith("PollingWatchService");
+            } finally {
+                service.close();
+            }
+        } catch (IOException e) {
+            return false;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void start() throws Exception {
+        if (running) {
+            throw new IllegalStateException("Monitor is already running");
+        }
+        register(directory);
+        running = true;
+        thread = new Thread(this, "静态资源文件监视线程");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        if (!running) {
+            throw new IllegalStateException("Monitor is not running");
+        }
+        running = false;
+        // 关闭后监视线程的 take() 立即返回
+        watcher.close();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (InterruptedException e) {
+                break;
+            } catch (ClosedWatchServiceException e) {
+                break;
+            }
+            Path dir = keys.get(key);
+            if (dir != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    try {
+                        handle(dir, event);
+                    } catch (RuntimeException e) {
+                        logger.error("处理文件[{}]的变化事件时出现异常", dir, e);
+                    }
+                }
+            }
+            if (!key.reset()) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 处理文件系统事件
+     *
+     * @param dir   事件所在目录
+     * @param event 事件
+     */
+    private void handle(Path dir, WatchEvent<?> event) {
+        WatchEvent.Kind<?> kind = event.kind();
+        if (kind == StandardWatchEventKinds.OVERFLOW) {
+            // 事件已丢失,按目录下的全部文件已变化处理
+            logger.warn("文件监视事件溢出,重新检查目录[{}]", dir);
+            fireFiles(dir.toFile(), false);
+            return;
+        }
+        File file = dir.resolve((Path) event.context()).toFile();
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+            if (file.isDirectory()) {
+                try {
+                    register(file);
+                } catch (IOException e) {
+                    logger.error("无法监视目录[{}]", file, e);
+                }
+                listener.onDirectoryCreate(file);
+                // 注册前已在新目录中创建的文件
+                fireFiles(file, true);
+            } else {
+                listener.onFileCreate(file);
+            }
+        } else if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+            if (file.isDirectory()) {
+                listener.onDirectoryChange(file);
+            } else {
+                listener.onFileChange(file);
+            }
+        } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            // 已删除的目录只能通过注册记录判断
+            if (keys.containsValue(file.toPath())) {
+                listener.onDirectoryDelete(file);
+            } else {
+                listener.onFileDelete(file);
+            }
+        }
+    }
+
+    /**
+     * 注册目录及其全部子目录
+     *
+     * @param dir 目录
+     * @throws IOException 无法注册时抛出
+     */
+    private void register(File dir) throws IOException {
+        Path path = dir.toPath();
+        WatchKey key = path.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        keys.put(key, path);
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                register(child);
+            }
+        }
+    }
+
+    /**
+     * 通知目录下的全部文件
+     *
+     * @param dir     目录
+     * @param created true:按新建通知,false:按修改通知
+     */
+    private void fireFiles(File dir, boolean created) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                fireFiles(child, created);
+            } else if (created) {
+                listener.onFileCreate(child);
+            } else {
+                listener.onFileChange(child);
+            }
+        }
+    }
+
+}
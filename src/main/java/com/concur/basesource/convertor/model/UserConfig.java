@@ -2,6 +2,7 @@ package com.concur.basesource.convertor.model;
 
 import com.concur.basesource.convertor.contansts.ConfigKey;
 import com.concur.basesource.convertor.contansts.Configurations;
+import com.concur.basesource.reader.ReaderType;
 import com.concur.unity.utils.StringUtils;
 
 import java.io.File;
@@ -23,6 +24,9 @@ public class UserConfig {
     /** 基础数据定义代码路径 */
     private File sourceDefineInputPath;
 
+    /** 输出格式 */
+    private String outputFormat = ReaderType.JSON.getType();
+
     UserConfig() {
         this.init();
     }
@@ -55,6 +59,11 @@ public class UserConfig {
                 this.sourceDefineInputPath = sourceDefineInputFile;
             }
         }
+
+        String outputFormat = Configurations.getConfigure(ConfigKey.FILE_OUTPUT_FORMAT);
+        if (!StringUtils.isBlank(outputFormat)) {
+            this.outputFormat = outputFormat.trim();
+        }
     }
 
     // 获取实例
@@ -113,4 +122,8 @@ public class UserConfig {
     public File getSourceDefineInputPath() {
         return sourceDefineInputPath;
     }
+
+    public String getOutputFormat() {
+        return outputFormat;
+    }
 }
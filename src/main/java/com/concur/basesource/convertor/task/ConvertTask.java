@@ -6,6 +6,8 @@ import com.concur.basesource.convertor.model.UserConfig;
 import com.concur.basesource.convertor.utils.ClassScanner;
 import com.concur.basesource.convertor.utils.SheetInfo;
 import com.concur.basesource.convertor.utils.SheetUtils;
+import com.concur.basesource.reader.BinaryWriter;
+import com.concur.basesource.reader.ReaderType;
 import com.concur.basesource.storage.FormatDefinition;
 import com.concur.basesource.storage.ResourceDefinition;
 import com.concur.basesource.storage.Storage;
@@ -26,6 +28,11 @@ import java.util.*;
  */
 public class ConvertTask implements ProgressMonitorable {
 
+    /**
+     * 二进制快照文件后缀
+     */
+    public static final String BINARY_SUFFIX = ".bin";
+
     /**
      * 文件夹路径
      */
@@ -208,7 +215,11 @@ public class ConvertTask implements ProgressMonitorable {
                     Storage<?, ?> storage = this.storageManager.getStorage(cls);
                     Collection<?> beanList = storage.getAll();
 
-                    this.writeFile(name, beanList);
+                    if (ReaderType.BINARY.matches(UserConfig.getInstance().getOutputFormat())) {
+                        this.writeBinaryFile(cls, name, beanList);
+                    } else {
+                        this.writeFile(name, beanList);
+                    }
                 } else {
                     // 直接转换
                     // 创建数据集
@@ -268,6 +279,19 @@ public class ConvertTask implements ProgressMonitorable {
     }
 
 
+    // 保存为二进制快照
+    private void writeBinaryFile(Class<?> cls, String name, Collection<?> beanList) {
+        String path = UserConfig.getInstance().getOutputPath().getAbsolutePath();
+        String fileName = path + File.separator + name + BINARY_SUFFIX;
+        try {
+            BinaryWriter.write(cls, beanList, new File(fileName));
+        } catch (IOException e) {
+            markAsFail(name, e);
+            System.err.println("二进制快照写入异常:" + fileName);
+        }
+    }
+
+
     // 创建基础数据资源定义
     private ResourceDefinition createResourceDefinition(Class<?> cls, Map<String, Class<?>> loadedClassMap, String name, File file) {
         // 获取后缀
@@ -0,0 +1,116 @@
+package com.concur.basesource.reader;
+
+import com.concur.basesource.anno.InjectBean;
+import com.concur.unity.reflect.ReflectionUtility;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 二进制快照的列定义
+ * <p>每个列对应资源类的一个属性(不包括静态、transient及{@link InjectBean}属性),每行数据宽度固定</p>
+ * @author frank
+ */
+class BinaryColumn {
+
+	/** 文件头标识 */
+	static final int MAGIC = 0x42534E50;
+	/** 格式版本,格式变化时递增 */
+	static final short VERSION = 1;
+	/** 空字符串/对象的序号 */
+	static final int NULL_INDEX = -1;
+
+	/**
+	 * 列数据类型
+	 */
+	enum Type {
+		BOOLEAN(1), BYTE(1), SHORT(2), CHAR(2), INT(4), LONG(8), FLOAT(4), DOUBLE(8),
+		/** 字符串表序号 */
+		STRING(4),
+		/** JSON 内容的字符串表序号 */
+		OBJECT(4);
+
+		/** 每行数据宽度 */
+		final int width;
+
+		Type(int width) {
+			this.width = width;
+		}
+
+		/**
+		 * 获取属性类型对应的列数据类型
+		 * @param clz 属性类型
+		 * @return
+		 */
+		static Type of(Class<?> clz) {
+			if (clz == boolean.class || clz == Boolean.class) {
+				return BOOLEAN;
+			} else if (clz == byte.class || clz == Byte.class) {
+				return BYTE;
+			} else if (clz == short.class || clz == Short.class) {
+				return SHORT;
+			} else if (clz == char.class || clz == Character.class) {
+				return CHAR;
+			} else if (clz == int.class || clz == Integer.class) {
+				return INT;
+			} else if (clz == long.class || clz == Long.class) {
+				return LONG;
+			} else if (clz == float.class || clz == Float.class) {
+				return FLOAT;
+			} else if (clz == double.class || clz == Double.class) {
+				return DOUBLE;
+			} else if (clz == String.class) {
+				return STRING;
+			}
+			return OBJECT;
+		}
+	}
+
+	/** 属性 */
+	final Field field;
+	/** 数据类型 */
+	final Type type;
+	/** 是否有空值位图(包装类型) */
+	final boolean nullable;
+
+	BinaryColumn(Field field) {
+		ReflectionUtility.makeAccessible(field);
+		this.field = field;
+		this.type = Type.of(field.getType());
+		this.nullable = !field.getType().isPrimitive() && type != Type.STRING && type != Type.OBJECT;
+	}
+
+	/**
+	 * 获取资源类的全部列(父类属性在前)
+	 * @param clz 资源类
+	 * @return
+	 */
+	static List<BinaryColumn> listColumns(Class<?> clz) {
+		List<BinaryColumn> result = new ArrayList<BinaryColumn>();
+		if (clz == null || clz == Object.class) {
+			return result;
+		}
+		result.addAll(listColumns(clz.getSuperclass()));
+		for (Field field : clz.getDeclaredFields()) {
+			int modifiers = field.getModifiers();
+			if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+					|| field.isAnnotationPresent(InjectBean.class)) {
+				continue;
+			}
+			result.add(new BinaryColumn(field));
+		}
+		return result;
+	}
+
+	/**
+	 * 空值位图字节数
+	 * @param rows 行数
+	 * @return
+	 */
+	static int bitmapSize(int rows) {
+		return (rows + 7) >>> 3;
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.concur.basesource.reader;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 二进制快照静态资源读取器
+ * <p>读取{@link BinaryWriter}生成的快照文件,不解析整个文件,按需逐行创建资源实例</p>
+ * <p>文件内容通过{@link FileChannel}读入直接缓冲区后立即关闭通道,不使用内存映射,读取期间和读取后都不会占用快照文件
+ * (Windows 下可以随时替换快照文件);迭代结束或{@link ResourceIterator#close()}时释放缓冲区</p>
+ * <p>快照中资源类已删除的属性会被忽略;属性类型变化或快照版本不同时需要重新生成快照(见{@link BinaryTable})</p>
+ * @author frank
+ */
+@Component
+public class BinaryReader implements FileResourceReader {
+
+	private final static Logger logger = LoggerFactory.getLogger(BinaryReader.class);
+
+	@Override
+	public String getFormat() {
+		return ReaderType.BINARY.getType();
+	}
+
+	@Override
+	public <E> Iterator<E> read(InputStream input, Class<E> clz) {
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(IOUtils.toByteArray(input));
+			return new RowIterator<E>(new BinaryTable<E>(buffer, clz, clz.getName(), true));
+		} catch (IOException e) {
+			FormattingTuple message = MessageFormatter.format("静态资源[{}]异常,无法读取文件", clz.getName());
+			logger.error(message.getMessage());
+			throw new IllegalStateException(message.getMessage(), e);
+		}
+	}
+
+	@Override
+	public <E> Iterator<E> read(File file, Class<E> clz) throws IOException {
+		if (!file.isFile()) {
+			throw new FileNotFoundException(file.getPath());
+		}
+		FileChannel channel = new FileInputStream(file).getChannel();
+		ByteBuffer buffer;
+		try {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				FormattingTuple message = MessageFormatter.format("静态资源[{}]的二进制快照[{}]超过{}字节", new Object[] {
+					clz.getName(), file.getName(), Integer.MAX_VALUE });
+				logger.error(message.getMessage());
+				throw new IllegalStateException(message.getMessage());
+			}
+			buffer = ByteBuffer.allocateDirect((int) size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException(file.getPath());
+				}
+			}
+			buffer.flip();
+		} finally {
+			channel.close();
+		}
+		return new RowIterator<E>(new BinaryTable<E>(buffer, clz, file.getName(), true));
+	}
+
+	/**
+	 * 资源实例迭代器,按行读取快照内容,迭代结束或关闭后释放快照内容
+	 */
+	private static class RowIterator<E> implements ResourceIterator<E> {
+
+		/** 快照内容,关闭后为null */
+		private BinaryTable<E> table;
+		/** 当前行 */
+		private int row;
+
+		RowIterator(BinaryTable<E> table) {
+			this.table = table;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (table == null) {
+				return false;
+			}
+			if (row < table.size()) {
+				return true;
+			}
+			close();
+			return false;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return table.get(row++);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() {
+			table = null;
+		}
+	}
+
+}
@@ -0,0 +1,235 @@
+package com.concur.basesource.reader;
+
+import com.alibaba.fastjson.JSON;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 二进制快照表
+ * <p>解析{@link BinaryWriter}生成的快照头部,按行号随机读取并创建资源实例,不修改缓冲区的读写位置,可以多线程读取</p>
+ * <p>快照中资源类已删除的属性会被忽略;属性类型变化或快照版本不同时抛出{@link IllegalStateException}</p>
+ * @author frank
+ */
+public class BinaryTable<E> {
+
+	private static final Logger logger = LoggerFactory.getLogger(BinaryTable.class);
+
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	private final ByteBuffer buffer;
+	private final Class<E> clz;
+	/** 行数 */
+	private final int rows;
+	/** 字符串偏移的开始位置 */
+	private final int stringOffsets;
+	/** 字符串内容的开始位置 */
+	private final int stringStart;
+	/** 已读取的字符串(通过{@link StringPool}去重),不缓存时为null */
+	private final String[] strings;
+	/** 列对应的属性(资源类没有的属性为null) */
+	private final BinaryColumn[] columns;
+	/** 列数据类型 */
+	private final BinaryColumn.Type[] types;
+	/** 列空值位图的开始位置(没有时为-1) */
+	private final int[] bitmaps;
+	/** 列数据的开始位置 */
+	private final int[] starts;
+
+	/**
+	 * 构造方法
+	 * @param buffer 快照内容
+	 * @param clz 资源类
+	 * @param name 快照名(用于日志)
+	 * @param cache 是否缓存已读取的字符串,不缓存时每次读取都创建新的字符串
+	 */
+	public BinaryTable(ByteBuffer buffer, Class<E> clz, String name, boolean cache) {
+		this.buffer = buffer;
+		this.clz = clz;
+		if (buffer.limit() < 12 || buffer.getInt(0) != BinaryColumn.MAGIC) {
+			FormattingTuple message = MessageFormatter.format("资源文件[{}]不是有效的二进制快照", name);
+			logger.error(message.getMessage());
+			throw new IllegalStateException(message.getMessage());
+		}
+		short version = buffer.getShort(4);
+		if (version != BinaryColumn.VERSION) {
+			FormattingTuple message = MessageFormatter.format("资源文件[{}]的快照版本[{}]与当前版本[{}]不同,请重新生成",
+					new Object[]{name, version, BinaryColumn.VERSION});
+			logger.error(message.getMessage());
+			throw new IllegalStateException(message.getMessage());
+		}
+		this.rows = buffer.getInt(6);
+		int count = buffer.getShort(10) & 0xFFFF;
+		int position = 12;
+		// 字符串表
+		int stringCount = buffer.getInt(position);
+		position += 4;
+		this.stringOffsets = position;
+		this.stringStart = position + (stringCount + 1) * 4;
+		this.strings = cache ? new String[stringCount] : null;
+		position = stringStart + buffer.getInt(stringOffsets + stringCount * 4);
+
+		// 列定义
+		Map<String, BinaryColumn> fields = new HashMap<String, BinaryColumn>();
+		for (BinaryColumn column : BinaryColumn.listColumns(clz)) {
+			fields.put(column.field.getName(), column);
+		}
+		BinaryColumn.Type[] values = BinaryColumn.Type.values();
+		this.columns = new BinaryColumn[count];
+		this.types = new BinaryColumn.Type[count];
+		this.bitmaps = new int[count];
+		this.starts = new int[count];
+		boolean[] nullables = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			String field = getString(buffer.getInt(position));
+			types[i] = values[buffer.get(position + 4)];
+			nullables[i] = buffer.get(position + 5) != 0;
+			position += 6;
+
+			BinaryColumn column = fields.get(field);
+			if (column == null) {
+				logger.warn("资源[{}]的二进制快照[{}]中的属性[{}]不存在,忽略该列",
+						new Object[]{clz.getSimpleName(), name, field});
+			} else if (column.type != types[i]) {
+				FormattingTuple message = MessageFormatter.format("资源[{}]的属性[{}]类型已变化,请重新生成二进制快照[{}]",
+						new Object[]{clz.getSimpleName(), field, name});
+				logger.error(message.getMessage());
+				throw new IllegalStateException(message.getMessage());
+			} else {
+				columns[i] = column;
+			}
+		}
+		// 列数据
+		for (int i = 0; i < count; i++) {
+			if (nullables[i]) {
+				bitmaps[i] = position;
+				position += BinaryColumn.bitmapSize(rows);
+			} else {
+				bitmaps[i] = -1;
+			}
+			starts[i] = position;
+			position += rows * types[i].width;
+		}
+		if (position > buffer.limit()) {
+			FormattingTuple message = MessageFormatter.format("资源文件[{}]的二进制快照内容不完整", name);
+			logger.error(message.getMessage());
+			throw new IllegalStateException(message.getMessage());
+		}
+	}
+
+	/**
+	 * 行数
+	 * @return
+	 */
+	public int size() {
+		return rows;
+	}
+
+	/**
+	 * 读取指定行并创建资源实例
+	 * @param row 行号(从0开始)
+	 * @return 每次调用都返回新的实例
+	 */
+	public E get(int row) {
+		if (row < 0 || row >= rows) {
+			throw new IndexOutOfBoundsException("row: " + row + ", size: " + rows);
+		}
+		E instance = ExcelReader.newInstance(clz);
+		for (int i = 0; i < columns.length; i++) {
+			BinaryColumn column = columns[i];
+			if (column == null) {
+				continue;
+			}
+			if (bitmaps[i] >= 0 && (buffer.get(bitmaps[i] + (row >>> 3)) & (1 << (row & 7))) != 0) {
+				continue;
+			}
+			try {
+				setValue(instance, column, starts[i] + row * types[i].width);
+			} catch (IllegalAccessException e) {
+				FormattingTuple message = MessageFormatter.format("无法设置资源属性[{}]的值", column.field);
+				logger.error(message.getMessage());
+				throw new IllegalStateException(message.getMessage(), e);
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * 设置属性值
+	 * @param instance 资源实例
+	 * @param column 列定义
+	 * @param position 数据位置
+	 */
+	private void setValue(Object instance, BinaryColumn column, int position) throws IllegalAccessException {
+		Field field = column.field;
+		switch (column.type) {
+		case BOOLEAN:
+			field.set(instance, buffer.get(position) != 0);
+			break;
+		case BYTE:
+			field.set(instance, buffer.get(position));
+			break;
+		case SHORT:
+			field.set(instance, buffer.getShort(position));
+			break;
+		case CHAR:
+			field.set(instance, buffer.getChar(position));
+			break;
+		case INT:
+			field.set(instance, buffer.getInt(position));
+			break;
+		case LONG:
+			field.set(instance, buffer.getLong(position));
+			break;
+		case FLOAT:
+			field.set(instance, buffer.getFloat(position));
+			break;
+		case DOUBLE:
+			field.set(instance, buffer.getDouble(position));
+			break;
+		case STRING:
+			field.set(instance, getString(buffer.getInt(position)));
+			break;
+		default:
+			String content = getString(buffer.getInt(position));
+			if (content != null) {
+				field.set(instance, JSON.parseObject(content, field.getGenericType()));
+			}
+			break;
+		}
+	}
+
+	/**
+	 * 获取字符串表中的字符串
+	 * @param index 序号
+	 * @return 序号为{@link BinaryColumn#NULL_INDEX}时返回null
+	 */
+	private String getString(int index) {
+		if (index == BinaryColumn.NULL_INDEX) {
+			return null;
+		}
+		String result = strings == null ? null : strings[index];
+		if (result == null) {
+			int start = buffer.getInt(stringOffsets + index * 4);
+			int end = buffer.getInt(stringOffsets + (index + 1) * 4);
+			byte[] bytes = new byte[end - start];
+			ByteBuffer slice = buffer.duplicate();
+			slice.position(stringStart + start);
+			slice.get(bytes);
+			result = new String(bytes, CHARSET);
+			if (strings != null) {
+				result = StringPool.intern(result);
+				strings[index] = result;
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,299 @@
+package com.concur.basesource.reader;
+
+import com.alibaba.fastjson.JSON;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 二进制快照写入器
+ * <p>文件格式(大端字节序):</p>
+ * <pre>
+ * int 标识, short 版本, int 行数, short 列数
+ * int 字符串数, int[字符串数 + 1] 字符串偏移, byte[] 字符串内容(UTF-8)
+ * 列定义: int 列名序号, byte 数据类型, byte 是否有空值位图
+ * 列数据(按列存储): [空值位图] + 行数 * 类型宽度
+ * </pre>
+ * <p>字符串和不能直接存储的属性(fastjson 序列化的 JSON 内容,与{@link BinaryTable}读取时使用同一个库)保存在字符串表中,相同内容只保存一次</p>
+ * <p>通过{@link #add(Object)}逐行编码,每行的属性值立即写入各列的直接缓冲区,不保留资源实例;
+ * {@link #toDirectBuffer()}完成编码后不能再添加</p>
+ * @author frank
+ */
+public final class BinaryWriter {
+
+	private static final Logger logger = LoggerFactory.getLogger(BinaryWriter.class);
+
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	/** 列缓冲区的初始行数 */
+	private static final int INITIAL_ROWS = 64;
+	/** 字符串内容缓冲区的初始字节数 */
+	private static final int INITIAL_STRING_BYTES = 1024;
+
+	/** 资源类 */
+	private final Class<?> clz;
+	/** 列定义 */
+	private final List<BinaryColumn> columns;
+	/** 列名在字符串表中的序号 */
+	private final int[] names;
+	/** 各列数据 */
+	private final ByteBuffer[] datas;
+	/** 各列空值位图,没有位图的列为null */
+	private final byte[][] bitmaps;
+	/** 字符串 - 序号 */
+	private final Map<String, Integer> strings = new HashMap<String, Integer>();
+	/** 字符串内容(UTF-8) */
+	private ByteBuffer stringBytes = ByteBuffer.allocateDirect(INITIAL_STRING_BYTES);
+	/** 字符串偏移,第 i 个字符串的内容为[offsets[i], offsets[i + 1]) */
+	private int[] stringOffsets = new int[INITIAL_ROWS + 1];
+	/** 已添加的行数 */
+	private int rows;
+	/** 是否已完成编码 */
+	private boolean finished;
+
+	/**
+	 * 构造方法
+	 * @param clz 资源类
+	 */
+	public BinaryWriter(Class<?> clz) {
+		this.clz = clz;
+		this.columns = BinaryColumn.listColumns(clz);
+		int count = columns.size();
+		this.names = new int[count];
+		this.datas = new ByteBuffer[count];
+		this.bitmaps = new byte[count][];
+		for (int i = 0; i < count; i++) {
+			BinaryColumn column = columns.get(i);
+			names[i] = indexOf(column.field.getName());
+			datas[i] = ByteBuffer.allocateDirect(INITIAL_ROWS * column.type.width);
+			if (column.nullable) {
+				bitmaps[i] = new byte[BinaryColumn.bitmapSize(INITIAL_ROWS)];
+			}
+		}
+	}
+
+	/**
+	 * 写入资源实例的二进制快照
+	 * @param clz 资源类
+	 * @param rows 资源实例
+	 * @param file 快照文件
+	 * @throws IOException
+	 */
+	public static void write(Class<?> clz, Collection<?> rows, File file) throws IOException {
+		BinaryWriter writer = new BinaryWriter(clz);
+		for (Object row : rows) {
+			writer.add(row);
+		}
+		ByteBuffer buffer = writer.toDirectBuffer();
+
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		FileChannel channel = new FileOutputStream(file).getChannel();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} finally {
+			channel.close();
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("资源[{}]二进制快照写入完成,共{}行", clz.getSimpleName(), rows.size());
+		}
+	}
+
+	/**
+	 * 编码一行资源实例
+	 * @param row 资源实例
+	 * @return 行号
+	 */
+	public int add(Object row) {
+		if (finished) {
+			throw new IllegalStateException("二进制快照已完成编码,不能继续添加");
+		}
+		int index = rows;
+		for (int i = 0; i < columns.size(); i++) {
+			BinaryColumn column = columns.get(i);
+			Object value;
+			try {
+				value = column.field.get(row);
+			} catch (IllegalAccessException e) {
+				FormattingTuple message = MessageFormatter.format("无法获取资源属性[{}]的值", column.field);
+				logger.error(message.getMessage());
+				throw new IllegalStateException(message.getMessage(), e);
+			}
+			if (bitmaps[i] != null) {
+				if ((index >>> 3) >= bitmaps[i].length) {
+					bitmaps[i] = Arrays.copyOf(bitmaps[i], bitmaps[i].length << 1);
+				}
+				if (value == null) {
+					bitmaps[i][index >>> 3] |= 1 << (index & 7);
+				}
+			}
+			datas[i] = ensureCapacity(datas[i], column.type.width);
+			writeValue(datas[i], column.type, value);
+		}
+		rows++;
+		return index;
+	}
+
+	/**
+	 * 已添加的行数
+	 * @return
+	 */
+	public int size() {
+		return rows;
+	}
+
+	/**
+	 * 完成编码,将快照内容复制到堆外内存(直接缓冲区)
+	 * @return 只读的直接缓冲区
+	 */
+	public ByteBuffer toDirectBuffer() {
+		finished = true;
+		int stringCount = strings.size();
+		long size = 12 + 4 + (stringCount + 1) * 4L + stringOffsets[stringCount] + columns.size() * 6L;
+		for (int i = 0; i < columns.size(); i++) {
+			if (bitmaps[i] != null) {
+				size += BinaryColumn.bitmapSize(rows);
+			}
+			size += (long) rows * columns.get(i).type.width;
+		}
+		if (size > Integer.MAX_VALUE) {
+			FormattingTuple message = MessageFormatter.format("资源[{}]的二进制快照超过{}字节", clz.getName(),
+					Integer.MAX_VALUE);
+			logger.error(message.getMessage());
+			throw new IllegalStateException(message.getMessage());
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+		buffer.putInt(BinaryColumn.MAGIC);
+		buffer.putShort(BinaryColumn.VERSION);
+		buffer.putInt(rows);
+		buffer.putShort((short) columns.size());
+		// 字符串表
+		buffer.putInt(stringCount);
+		for (int i = 0; i <= stringCount; i++) {
+			buffer.putInt(stringOffsets[i]);
+		}
+		buffer.put(flip(stringBytes));
+		// 列定义
+		for (int i = 0; i < columns.size(); i++) {
+			BinaryColumn column = columns.get(i);
+			buffer.putInt(names[i]);
+			buffer.put((byte) column.type.ordinal());
+			buffer.put((byte) (column.nullable ? 1 : 0));
+		}
+		// 列数据
+		for (int i = 0; i < columns.size(); i++) {
+			if (bitmaps[i] != null) {
+				buffer.put(bitmaps[i], 0, BinaryColumn.bitmapSize(rows));
+			}
+			buffer.put(flip(datas[i]));
+		}
+		buffer.flip();
+		return buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * 写入一个值,空值写入默认值
+	 */
+	private void writeValue(ByteBuffer out, BinaryColumn.Type type, Object value) {
+		switch (type) {
+		case BOOLEAN:
+			out.put((byte) (value != null && (Boolean) value ? 1 : 0));
+			break;
+		case BYTE:
+			out.put(value == null ? 0 : (Byte) value);
+			break;
+		case SHORT:
+			out.putShort(value == null ? 0 : (Short) value);
+			break;
+		case CHAR:
+			out.putChar(value == null ? 0 : (Character) value);
+			break;
+		case INT:
+			out.putInt(value == null ? 0 : (Integer) value);
+			break;
+		case LONG:
+			out.putLong(value == null ? 0L : (Long) value);
+			break;
+		case FLOAT:
+			out.putFloat(value == null ? 0F : (Float) value);
+			break;
+		case DOUBLE:
+			out.putDouble(value == null ? 0D : (Double) value);
+			break;
+		case STRING:
+			out.putInt(value == null ? BinaryColumn.NULL_INDEX : indexOf((String) value));
+			break;
+		default:
+			out.putInt(value == null ? BinaryColumn.NULL_INDEX : indexOf(JSON.toJSONString(value)));
+			break;
+		}
+	}
+
+	/**
+	 * 获取字符串在字符串表中的序号,不存在时添加
+	 */
+	private int indexOf(String string) {
+		Integer index = strings.get(string);
+		if (index != null) {
+			return index;
+		}
+		index = strings.size();
+		strings.put(string, index);
+		byte[] bytes = string.getBytes(CHARSET);
+		stringBytes = ensureCapacity(stringBytes, bytes.length);
+		stringBytes.put(bytes);
+		if (index + 1 >= stringOffsets.length) {
+			stringOffsets = Arrays.copyOf(stringOffsets, stringOffsets.length << 1);
+		}
+		stringOffsets[index + 1] = stringBytes.position();
+		return index;
+	}
+
+	/**
+	 * 保证缓冲区还能写入指定字节数,不足时按倍数扩容
+	 * @param buffer 缓冲区
+	 * @param size 要写入的字节数
+	 * @return 原缓冲区或扩容后的新缓冲区
+	 */
+	private static ByteBuffer ensureCapacity(ByteBuffer buffer, int size) {
+		if (buffer.remaining() >= size) {
+			return buffer;
+		}
+		int capacity = Math.max(buffer.capacity(), 1) << 1;
+		while (capacity - buffer.position() < size) {
+			capacity <<= 1;
+		}
+		ByteBuffer result = ByteBuffer.allocateDirect(capacity);
+		buffer.flip();
+		result.put(buffer);
+		return result;
+	}
+
+	/**
+	 * 获取缓冲区已写入内容的视图(不修改原缓冲区的位置)
+	 */
+	private static ByteBuffer flip(ByteBuffer buffer) {
+		ByteBuffer result = buffer.duplicate();
+		result.flip();
+		return result;
+	}
+
+}
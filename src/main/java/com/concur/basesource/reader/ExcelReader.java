@@ -2,8 +2,6 @@ package com.concur.basesource.reader;
 
 import com.concur.basesource.convertor.utils.SheetInfo;
 import com.concur.basesource.convertor.utils.SheetUtils;
-import com.concur.unity.reflect.ReflectionUtility;
-import com.concur.unity.utils.ConvertUtils;
 import com.concur.unity.utils.StringUtils;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
@@ -14,9 +12,10 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.helpers.FormattingTuple;
 import org.slf4j.helpers.MessageFormatter;
 import org.springframework.core.convert.ConverterNotFoundException;
-import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.util.*;
@@ -24,10 +23,11 @@ import java.util.*;
 
 /**
  * Excel格式的静态资源读取器
+ * <p>从文件读取时通过{@link WorkbookLoader}获取工作簿,同一加载周期内共用同一文件的解析结果</p>
  * @author frank
  */
 @Component
-public class ExcelReader implements ResourceReader {
+public class ExcelReader implements FileResourceReader {
 	
 	private final static Logger logger = LoggerFactory.getLogger(ExcelReader.class);
 	
@@ -50,13 +50,12 @@ public class ExcelReader implements ResourceReader {
 	private static class FieldInfo {
 		/** 第几列 */
 		public final int index;
-		/** 资源类属性 */
-		public final Field field;
+		/** 属性转换器 */
+		public final FieldConverter converter;
 		/** 构造方法 */
 		public FieldInfo(int index, Field field) {
-			ReflectionUtility.makeAccessible(field);
 			this.index = index;
-			this.field = field;
+			this.converter = FieldConverter.of(field);
 		}
 	}
 
@@ -65,19 +64,112 @@ public class ExcelReader implements ResourceReader {
 		// 基本信息获取
 		Workbook wb = SheetUtils.getWorkbook(input, clz.getName());
 		Map<String, SheetInfo> sheetInfos = SheetUtils.listSheets(wb, null);
+		return new RowIterator<E>(sheetInfos.get(clz.getSimpleName()), clz, null);
+	}
 
-		// 创建返回数据集
-		ArrayList<E> result = new ArrayList<E>();
-		SheetInfo sheetInfo = sheetInfos.get(clz.getSimpleName());
+	@Override
+	public <E> Iterator<E> read(File file, Class<E> clz) throws IOException {
+		SheetInfo sheetInfo = WorkbookLoader.getSheets(file).get(clz.getSimpleName());
 		if (sheetInfo == null) {
-			return (Iterator<E>) Collections.emptyList().iterator();
+			return new RowIterator<E>(null, clz, null);
+		}
+		// 共用的工作簿读取单元格时会修改工作簿内容,不能并发读取
+		Workbook wb = sheetInfo.sheets.get(0).getWorkbook();
+		return new RowIterator<E>(sheetInfo, clz, wb);
+	}
+
+	/**
+	 * 资源实例迭代器,按需读取表格中的行并创建资源实例
+	 */
+	private class RowIterator<E> implements ResourceIterator<E> {
+
+		private final Class<E> clz;
+		/** 读取单元格时使用的锁,工作簿不共用时为null */
+		private final Object lock;
+		/** 剩余的表格 */
+		private final Iterator<Sheet> sheets;
+
+		/** 当前表格的行 */
+		private Iterator<Row> rows;
+		/** 当前表格的属性信息 */
+		private Collection<FieldInfo> infos;
+		/** 当前表格是否已到数据行 */
+		private boolean start;
+		/** 当前表格的行数 */
+		private int i;
+		/** 下一个资源实例 */
+		private E next;
+
+		RowIterator(SheetInfo sheetInfo, Class<E> clz, Object lock) {
+			this.clz = clz;
+			this.lock = lock;
+			if (sheetInfo == null) {
+				this.sheets = Collections.<Sheet>emptyList().iterator();
+			} else {
+				this.sheets = sheetInfo.sheets.iterator();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null) {
+				if (lock == null) {
+					next = advance();
+				} else {
+					synchronized (lock) {
+						next = advance();
+					}
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			E result = next;
+			next = null;
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
 		}
 
-		for (Sheet sheet : sheetInfo.sheets) {
-			Collection<FieldInfo> infos = getCellInfos(sheet, clz);
-			boolean start = false;
-			int i = 0;
-			for (Row row : sheet) {
+		@Override
+		public void close() {
+			rows = null;
+			infos = null;
+			next = null;
+			while (sheets.hasNext()) {
+				sheets.next();
+			}
+		}
+
+		/**
+		 * 读取下一个资源实例
+		 * @return 读取完毕时返回null
+		 */
+		private E advance() {
+			while (true) {
+				if (rows == null) {
+					if (!sheets.hasNext()) {
+						return null;
+					}
+					Sheet sheet = sheets.next();
+					infos = getCellInfos(sheet, clz);
+					rows = sheet.iterator();
+					start = false;
+					i = 0;
+				}
+				if (!rows.hasNext()) {
+					rows = null;
+					continue;
+				}
+				Row row = rows.next();
 				try {
 					i++;
 					// 判断数据行开始没有
@@ -102,33 +194,24 @@ public class ExcelReader implements ResourceReader {
 						if (cell == null) {
 							continue;
 						}
-						String content = getCellContent(cell);
-						if (StringUtils.isEmpty(content)) {
-							continue;
-						}
-						inject(instance, info.field, content);
+						inject(instance, info.converter, cell);
 					}
-					result.add(instance);
 
 					// 结束处理
 					Cell cell = row.getCell(0);
-					if (cell == null) {
-						continue;
-					}
-					String content = getCellContent(cell);
-					if (content == null) {
-						continue;
-					}
-					if (content.equals(ROW_END)) {
-						break;
+					if (cell != null) {
+						String content = getCellContent(cell);
+						if (content != null && content.equals(ROW_END)) {
+							rows = null;
+						}
 					}
+					return instance;
 				} catch (RuntimeException e) {
 					logger.error("读取资源文件{}的第{}行出错", clz.getSimpleName(), i);
 					throw e;
 				}
 			}
 		}
-		return result.iterator();
 	}
 
 	/**
@@ -143,28 +226,64 @@ public class ExcelReader implements ResourceReader {
 		return cell.getStringCellValue();
 	}
 	
+	/**
+	 * 给实例注入单元格内容,数值和布尔单元格直接转换,不转为文本
+	 * @param instance
+	 * @param converter
+	 * @param cell
+	 */
+	private void inject(Object instance, FieldConverter converter, Cell cell) {
+		try {
+			switch (cell.getCellType()) {
+			case Cell.CELL_TYPE_BLANK:
+				break;
+			case Cell.CELL_TYPE_NUMERIC:
+				converter.setNumber(instance, cell.getNumericCellValue());
+				break;
+			case Cell.CELL_TYPE_BOOLEAN:
+				converter.setBoolean(instance, cell.getBooleanCellValue());
+				break;
+			default:
+				String content = getCellContent(cell);
+				if (!StringUtils.isEmpty(content)) {
+					converter.setText(instance, content);
+				}
+				break;
+			}
+		} catch (Exception e) {
+			throw injectFailed(instance, converter, e);
+		}
+	}
+
 	/**
 	 * 给实例注入属性
 	 * @param instance
-	 * @param field
-	 * @param content
+	 * @param converter
+	 * @param content 非空的文本内容
 	 */
-	private void inject(Object instance, Field field, String content) {
-		// Class<?> clz = field.getType();
+	static void inject(Object instance, FieldConverter converter, String content) {
 		try {
-			TypeDescriptor targetType = new TypeDescriptor(field);
-			Object value = ConvertUtils.convert(content, targetType.getType());
-			field.set(instance, value);
-		} catch (ConverterNotFoundException e) {
+			converter.setText(instance, content);
+		} catch (Exception e) {
+			throw injectFailed(instance, converter, e);
+		}
+	}
+
+	/**
+	 * 记录注入失败信息
+	 * @return 需要抛出的异常
+	 */
+	private static IllegalStateException injectFailed(Object instance, FieldConverter converter, Exception e) {
+		Field field = converter.getField();
+		if (e instanceof ConverterNotFoundException) {
 			FormattingTuple message = MessageFormatter.format("静态资源[{}]属性[{}]的转换器不存在", instance.getClass()
 					.getSimpleName(), field.getName());
 			logger.error(message.getMessage(), e);
-			throw new IllegalStateException(message.getMessage(), e);
-		} catch (Exception e) {
-			FormattingTuple message = MessageFormatter.format("属性[{}]注入失败", field);
-			logger.error(message.getMessage());
-			throw new IllegalStateException(message.getMessage(), e);
+			return new IllegalStateException(message.getMessage(), e);
 		}
+		FormattingTuple message = MessageFormatter.format("属性[{}]注入失败", field);
+		logger.error(message.getMessage());
+		return new IllegalStateException(message.getMessage(), e);
 	}
 	
 	/**
@@ -173,7 +292,7 @@ public class ExcelReader implements ResourceReader {
 	 * @param clz
 	 * @return
 	 */
-	private <E> E newInstance(Class<E> clz) {
+	static <E> E newInstance(Class<E> clz) {
 		try {
 			return clz.newInstance();
 		} catch (Exception e) {
@@ -0,0 +1,480 @@
+package com.concur.basesource.reader;
+
+import com.concur.unity.utils.StringUtils;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+
+/**
+ * 流式读取的 Excel(xlsx) 静态资源读取器
+ * <p>表格格式与{@link ExcelReader}相同,不构建工作簿对象,逐行解析表格 XML 并直接创建资源实例,内存占用与表格行数无关</p>
+ * <p>返回的迭代器按需读取,读取完毕或出错时关闭文件</p>
+ * @author frank
+ */
+@Component
+public class ExcelStreamReader implements FileResourceReader {
+
+	private final static Logger logger = LoggerFactory.getLogger(ExcelStreamReader.class);
+
+	/** XML 读取器工厂(表格内容来自用户提供的文件,禁止 DTD 和外部实体) */
+	private final static XMLInputFactory XML_FACTORY = createXmlFactory();
+
+	/**
+	 * 创建 XML 读取器工厂,与 POI 的 XMLHelper 相同禁止 DTD 和外部实体,避免 XXE
+	 * @return
+	 */
+	private static XMLInputFactory createXmlFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		return factory;
+	}
+
+	@Override
+	public String getFormat() {
+		return ReaderType.EXCEL_STREAM.getType();
+	}
+
+	@Override
+	public <E> Iterator<E> read(InputStream input, Class<E> clz) {
+		try {
+			return new RowIterator<E>(OPCPackage.open(input), clz, clz.getName());
+		} catch (Exception e) {
+			FormattingTuple message = MessageFormatter.format("静态资源[{}]异常,无法读取文件", clz.getName());
+			logger.error(message.getMessage());
+			throw new IllegalStateException(message.getMessage(), e);
+		}
+	}
+
+	@Override
+	public <E> Iterator<E> read(File file, Class<E> clz) throws IOException {
+		return new RowIterator<E>(open(file), clz, file.getName());
+	}
+
+	/**
+	 * 获取 Excel 文件中包含的资源类名(表格 A1 单元格内容)及对应的表格名,只读取到每个表格的属性控制行
+	 * @param file Excel文件
+	 * @return 资源类名 - 表格名列表(按表格顺序)
+	 * @throws IOException
+	 */
+	public static Map<String, List<String>> listResourceSheets(File file) throws IOException {
+		OPCPackage pkg = open(file);
+		try {
+			Map<String, List<String>> result = new LinkedHashMap<String, List<String>>();
+			XSSFReader reader = new XSSFReader(pkg);
+			ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+			XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) reader.getSheetsData();
+			while (it.hasNext()) {
+				SheetParser parser = new SheetParser(it.next(), strings);
+				try {
+					String name = parser.readHeader(null);
+					if (name != null) {
+						List<String> sheets = result.get(name);
+						if (sheets == null) {
+							sheets = new ArrayList<String>();
+							result.put(name, sheets);
+						}
+						sheets.add(it.getSheetName());
+					}
+				} finally {
+					parser.close();
+				}
+			}
+			return result;
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException("无法读取资源文件[" + file.getPath() + "]", e);
+		} finally {
+			pkg.revert();
+		}
+	}
+
+	/**
+	 * 以只读方式打开文件
+	 * @param file Excel文件
+	 * @return
+	 * @throws IOException
+	 */
+	private static OPCPackage open(File file) throws IOException {
+		if (!file.isFile()) {
+			throw new FileNotFoundException(file.getPath());
+		}
+		try {
+			return OPCPackage.open(file.getPath(), PackageAccess.READ);
+		} catch (Exception e) {
+			throw new IOException("静态资源[" + file.getPath() + "]异常,无效的文件格式", e);
+		}
+	}
+
+	/**
+	 * 属性信息
+	 */
+	private static class FieldInfo {
+		/** 第几列 */
+		public final int index;
+		/** 属性转换器 */
+		public final FieldConverter converter;
+		/** 构造方法 */
+		public FieldInfo(int index, Field field) {
+			this.index = index;
+			this.converter = FieldConverter.of(field);
+		}
+	}
+
+	/**
+	 * 资源实例迭代器,依次读取全部匹配的表格
+	 */
+	private static class RowIterator<E> implements ResourceIterator<E> {
+
+		private final OPCPackage pkg;
+		private final Class<E> clz;
+		/** 资源文件名(用于日志) */
+		private final String name;
+		private final Iterator<InputStream> sheets;
+		private final ReadOnlySharedStringsTable strings;
+
+		/** 当前表格 */
+		private SheetParser parser;
+		/** 当前表格的属性信息 */
+		private List<FieldInfo> infos;
+		/** 下一个资源实例 */
+		private E next;
+		/** 是否已读取完毕 */
+		private boolean finished;
+
+		RowIterator(OPCPackage pkg, Class<E> clz, String name) throws IOException {
+			this.pkg = pkg;
+			this.clz = clz;
+			this.name = name;
+			try {
+				XSSFReader reader = new XSSFReader(pkg);
+				this.strings = new ReadOnlySharedStringsTable(pkg);
+				this.sheets = reader.getSheetsData();
+			} catch (Exception e) {
+				pkg.revert();
+				throw new IOException("静态资源[" + name + "]异常,无效的文件格式", e);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && !finished) {
+				try {
+					next = advance();
+				} catch (RuntimeException e) {
+					close();
+					throw e;
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			E result = next;
+			next = null;
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * 读取下一个资源实例
+		 * @return 读取完毕时返回null
+		 */
+		private E advance() {
+			while (true) {
+				if (parser == null) {
+					if (!sheets.hasNext()) {
+						close();
+						return null;
+					}
+					openSheet(sheets.next());
+					continue;
+				}
+				List<String> row = parser.nextRow();
+				if (row == null) {
+					closeSheet();
+					continue;
+				}
+				try {
+					// 生成返回对象
+					E instance = ExcelReader.newInstance(clz);
+					for (FieldInfo info : infos) {
+						String content = info.index < row.size() ? row.get(info.index) : null;
+						if (StringUtils.isEmpty(content)) {
+							continue;
+						}
+						ExcelReader.inject(instance, info.converter, content);
+					}
+					// 结束处理
+					if (!row.isEmpty() && ExcelReader.ROW_END.equals(row.get(0))) {
+						closeSheet();
+					}
+					return instance;
+				} catch (RuntimeException e) {
+					logger.error("读取资源文件{}的第{}行出错", clz.getSimpleName(), parser.getRowNum());
+					throw e;
+				}
+			}
+		}
+
+		/**
+		 * 打开表格,表格 A1 单元格内容与资源类名不一致时跳过
+		 * @param input 表格数据
+		 */
+		private void openSheet(InputStream input) {
+			SheetParser parser = new SheetParser(input, strings);
+			List<String> fieldRow = new ArrayList<String>();
+			if (parser.readHeader(fieldRow) == null || !clz.getSimpleName().equals(parser.getResourceName())) {
+				parser.close();
+				return;
+			}
+			// 获取属性信息集合
+			List<FieldInfo> infos = new ArrayList<FieldInfo>();
+			for (int i = 1; i < fieldRow.size(); i++) {
+				String fieldName = fieldRow.get(i);
+				if (StringUtils.isBlank(fieldName)) {
+					continue;
+				}
+				try {
+					Field field = clz.getDeclaredField(fieldName);
+					infos.add(new FieldInfo(i, field));
+				} catch (Exception e) {
+					FormattingTuple message = MessageFormatter.format("资源类[{}]的声明属性[{}]不存在", clz, fieldName);
+					logger.warn(message.getMessage());
+				}
+			}
+			this.parser = parser;
+			this.infos = infos;
+		}
+
+		private void closeSheet() {
+			if (parser != null) {
+				parser.close();
+				parser = null;
+				infos = null;
+			}
+		}
+
+		@Override
+		public void close() {
+			if (finished) {
+				return;
+			}
+			finished = true;
+			closeSheet();
+			pkg.revert();
+			if (logger.isDebugEnabled()) {
+				logger.debug("资源文件[{}]的[{}]读取完成", name, clz.getSimpleName());
+			}
+		}
+	}
+
+	/**
+	 * 表格 XML 解析器
+	 */
+	private static class SheetParser {
+
+		private final InputStream input;
+		private final XMLStreamReader reader;
+		private final ReadOnlySharedStringsTable strings;
+		/** 当前行号(从1开始) */
+		private int rowNum;
+		/** 资源类名(A1 单元格内容) */
+		private String resourceName;
+		/** 当前行内容(按列号存放,重复使用) */
+		private final List<String> row = new ArrayList<String>();
+
+		SheetParser(InputStream input, ReadOnlySharedStringsTable strings) {
+			this.input = input;
+			this.strings = strings;
+			try {
+				this.reader = XML_FACTORY.createXMLStreamReader(input);
+			} catch (XMLStreamException e) {
+				throw new IllegalStateException("无法解析表格数据", e);
+			}
+		}
+
+		/**
+		 * 读取表头:A1 单元格的资源类名和属性控制行
+		 * @param fieldRow 用于存放属性控制行的内容,可以为null
+		 * @return 资源类名,表格不是资源表格时返回null
+		 */
+		String readHeader(List<String> fieldRow) {
+			List<String> first = nextRow();
+			if (first == null || rowNum != 1 || first.isEmpty() || StringUtils.isBlank(first.get(0))) {
+				return null;
+			}
+			String name = first.get(0);
+			// 查找属性控制行
+			for (List<String> row = first; row != null; row = nextRow()) {
+				if (!row.isEmpty() && ExcelReader.ROW_SERVER.equals(row.get(0))) {
+					if (fieldRow != null) {
+						fieldRow.addAll(row);
+					}
+					this.resourceName = name;
+					return name;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * 读取下一行
+		 * @return 当前行内容(下次读取时会被覆盖),表格结束时返回null
+		 */
+		List<String> nextRow() {
+			try {
+				while (reader.hasNext()) {
+					int event = reader.next();
+					if (event == XMLStreamConstants.START_ELEMENT && "row".equals(reader.getLocalName())) {
+						String r = reader.getAttributeValue(null, "r");
+						rowNum = r != null ? Integer.parseInt(r) : rowNum + 1;
+						readCells();
+						return row;
+					}
+				}
+				return null;
+			} catch (XMLStreamException e) {
+				throw new IllegalStateException("解析表格数据第" + rowNum + "行出错", e);
+			}
+		}
+
+		/**
+		 * 读取当前行的单元格,读取到行结束标签为止
+		 */
+		private void readCells() throws XMLStreamException {
+			row.clear();
+			int column = -1;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.END_ELEMENT && "row".equals(reader.getLocalName())) {
+					return;
+				}
+				if (event != XMLStreamConstants.START_ELEMENT || !"c".equals(reader.getLocalName())) {
+					continue;
+				}
+				String ref = reader.getAttributeValue(null, "r");
+				column = ref != null ? toColumn(ref) : column + 1;
+				String value = readCell(reader.getAttributeValue(null, "t"));
+				while (row.size() <= column) {
+					row.add(null);
+				}
+				row.set(column, value);
+			}
+		}
+
+		/**
+		 * 读取单元格内容,转换规则与单元格设置为字符串类型后的内容一致
+		 * @param type 单元格类型
+		 * @return
+		 */
+		private String readCell(String type) throws XMLStreamException {
+			StringBuilder value = null;
+			StringBuilder inline = null;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.END_ELEMENT && "c".equals(reader.getLocalName())) {
+					break;
+				}
+				if (event != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String tag = reader.getLocalName();
+				if ("v".equals(tag)) {
+					value = new StringBuilder(reader.getElementText());
+				} else if ("t".equals(tag)) {
+					if (inline == null) {
+						inline = new StringBuilder();
+					}
+					inline.append(reader.getElementText());
+				}
+			}
+			if ("inlineStr".equals(type)) {
+				return inline == null ? "" : inline.toString();
+			}
+			if (value == null) {
+				return "";
+			}
+			if ("s".equals(type)) {
+				return strings.getEntryAt(Integer.parseInt(value.toString().trim()));
+			}
+			if ("b".equals(type)) {
+				return "1".equals(value.toString()) ? "TRUE" : "FALSE";
+			}
+			if ("str".equals(type) || "e".equals(type)) {
+				return value.toString();
+			}
+			// 数值使用文件中保存的原始文本(如 3 仍为 3)
+			return value.toString();
+		}
+
+		/**
+		 * 单元格引用(如 AB12)转换为列号(从0开始)
+		 */
+		private static int toColumn(String ref) {
+			int column = 0;
+			for (int i = 0; i < ref.length(); i++) {
+				char c = ref.charAt(i);
+				if (c < 'A' || c > 'Z') {
+					break;
+				}
+				column = column * 26 + (c - 'A' + 1);
+			}
+			return column - 1;
+		}
+
+		int getRowNum() {
+			return rowNum;
+		}
+
+		String getResourceName() {
+			return resourceName;
+		}
+
+		void close() {
+			try {
+				reader.close();
+			} catch (XMLStreamException e) {
+				// 忽略
+			}
+			try {
+				input.close();
+			} catch (IOException e) {
+				// 忽略
+			}
+		}
+	}
+
+}
@@ -0,0 +1,352 @@
+package com.concur.basesource.reader;
+
+import com.concur.unity.reflect.ReflectionUtility;
+import com.concur.unity.utils.ConvertUtils;
+import org.springframework.core.convert.TypeDescriptor;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+
+/**
+ * 属性转换器
+ * <p>读取表格前为每个列创建一次,基本类型、BigDecimal、枚举、字符串等常用类型直接转换并设置属性值,
+ * 数值和布尔单元格不需要先转为文本,其余类型使用{@link ConvertUtils}转换</p>
+ * <p>数值单元格需要转为文本时使用不带多余小数位和指数的形式(3.0 转为"3",12345678.0 转为"12345678")</p>
+ * <p>字符串属性通过{@link StringPool}去重</p>
+ * @author frank
+ */
+abstract class FieldConverter {
+
+	/** 资源类属性 */
+	protected final Field field;
+
+	protected FieldConverter(Field field) {
+		ReflectionUtility.makeAccessible(field);
+		this.field = field;
+	}
+
+	/**
+	 * 创建属性对应的转换器
+	 * @param field 资源类属性
+	 * @return
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	static FieldConverter of(Field field) {
+		Class<?> type = field.getType();
+		if (type == String.class) {
+			return new StringConverter(field);
+		} else if (type == int.class || type == Integer.class) {
+			return new IntConverter(field);
+		} else if (type == long.class || type == Long.class) {
+			return new LongConverter(field);
+		} else if (type == short.class || type == Short.class) {
+			return new ShortConverter(field);
+		} else if (type == byte.class || type == Byte.class) {
+			return new ByteConverter(field);
+		} else if (type == double.class || type == Double.class) {
+			return new DoubleConverter(field);
+		} else if (type == float.class || type == Float.class) {
+			return new FloatConverter(field);
+		} else if (type == BigDecimal.class) {
+			return new BigDecimalConverter(field);
+		} else if (type == boolean.class || type == Boolean.class) {
+			return new BooleanConverter(field);
+		} else if (type.isEnum()) {
+			return new EnumConverter(field, (Class<? extends Enum>) type);
+		}
+		return new GenericConverter(field);
+	}
+
+	/**
+	 * 获取资源类属性
+	 * @return
+	 */
+	Field getField() {
+		return field;
+	}
+
+	/**
+	 * 设置文本内容
+	 * @param instance 资源实例
+	 * @param content 非空的文本内容
+	 * @throws Exception 转换失败时抛出
+	 */
+	abstract void setText(Object instance, String content) throws Exception;
+
+	/**
+	 * 设置数值单元格内容,默认按文本形式(与单元格转为文本类型时相同)转换
+	 * @param instance 资源实例
+	 * @param value 数值
+	 * @throws Exception 转换失败时抛出
+	 */
+	void setNumber(Object instance, double value) throws Exception {
+		setText(instance, toText(value));
+	}
+
+	/**
+	 * 设置布尔单元格内容,默认按文本形式(TRUE/FALSE)转换
+	 * @param instance 资源实例
+	 * @param value 布尔值
+	 * @throws Exception 转换失败时抛出
+	 */
+	void setBoolean(Object instance, boolean value) throws Exception {
+		setText(instance, value ? "TRUE" : "FALSE");
+	}
+
+	/**
+	 * 数值转为文本,去掉多余的小数位且不使用指数形式
+	 */
+	static String toText(double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			return String.valueOf(value);
+		}
+		if (value == 0) {
+			return "0";
+		}
+		return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+	}
+
+	/**
+	 * 转换为整数,不是整数时抛出异常
+	 */
+	private static long toIntegral(double value) {
+		long result = (long) value;
+		if (result != value) {
+			throw new NumberFormatException("数值[" + value + "]不是整数");
+		}
+		return result;
+	}
+
+	/**
+	 * 解析整数文本,支持数值单元格转换出的文本(如"3.0");只有 0x/0X 开头时按十六进制解析,前导 0 仍按十进制
+	 */
+	private static long parseLong(String content) {
+		String text = content.trim();
+		boolean negative = text.startsWith("-");
+		int start = negative || text.startsWith("+") ? 1 : 0;
+		if (text.startsWith("0x", start) || text.startsWith("0X", start)) {
+			long value = Long.parseLong(text.substring(start + 2), 16);
+			return negative ? -value : value;
+		}
+		try {
+			return Long.parseLong(text);
+		} catch (NumberFormatException e) {
+			return toIntegral(Double.parseDouble(text));
+		}
+	}
+
+	/**
+	 * 检查整数范围,超出时抛出异常
+	 */
+	private static long checkRange(long value, long min, long max, Object content, String type) {
+		if (value < min || value > max) {
+			throw new NumberFormatException("数值[" + content + "]超出" + type + "范围");
+		}
+		return value;
+	}
+
+	private static class StringConverter extends FieldConverter {
+
+		StringConverter(Field field) {
+			super(field);
+		}
+
+		@Override
+		void setText(Object instance, String content) throws Exception {
+			field.set(instance, StringPool.intern(content));
+		}
+
+		@Override
+		void setNumber(Object instance, double value) throws Exception {
+			field.set(instance, StringPool.intern(toText(value)));
+		}
+	}
+
+	private static class IntConverter extends FieldConverter {
+
+		IntConverter(Field field) {
+			super(field);
+		}
+
+		@Override
+		void setText(Object instance, String content) throws Exception {
+			field.set(instance, (int) checkRange(parseLong(content), Integer.MIN_VALUE, Integer.MAX_VALUE, content, "int"));
+		}
+
+		@Override
+		void setNumber(Object instance, double value) throws Exception {
+			field.set(instance, (int) checkRange(toIntegral(value), Integer.MIN_VALUE, Integer.MAX_VALUE, value, "int"));
+		}
+	}
+
+	private static class LongConverter extends FieldConverter {
+
+		LongConverter(Field field) {
+			super(field);
+		}
+
+		@Override
+		void setText(Object instance, String content) throws Exception {
+			field.set(instance, parseLong(content));
+		}
+
+		@Override
+		void setNumber(Object instance, double value) throws Exception {
+			field.set(instance, toIntegral(value));
+		}
+	}
+
+	private static class ShortConverter extends FieldConverter {
+
+		ShortConverter(Field field) {
+			super(field);
+		}
+
+		@Override
+		void setText(Object instance, String content) throws Exception {
+			field.set(instance, (short) checkRange(parseLong(content), Short.MIN_VALUE, Short.MAX_VALUE, content, "short"));
+		}
+
+		@Override
+		void setNumber(Object instance, double value) throws Exception {
+			field.set(instance, (short) checkRange(toIntegral(value), Short.MIN_VALUE, Short.MAX_VALUE, value, "short"));
+		}
+	}
+
+	private static class ByteConverter extends FieldConverter {
+
+		ByteConverter(Field field) {
+			super(field);
+		}
+
+		@Override
+		void setText(Object instance, String content) throws Exception {
+			field.set(instance, (byte) checkRange(parseLong(content), Byte.MIN_VALUE, Byte.MAX_VALUE, content, "byte"));
+		}
+
+		@Override
+		void setNumber(Object instance, double value) throws Exception {
+			field.set(instance, (byte) checkRange(toIntegral(value), Byte.MIN_VALUE, Byte.MAX_VALUE, value, "byte"));
+		}
+	}
+
+	private static class DoubleConverter extends FieldConverter {
+
+		DoubleConverter(Field field) {
+			super(field);
+		}
+
+		@Override
+		void setText(Object instance, String content) throws Exception {
+			field.set(instance, Double.valueOf(content.trim()));
+		}
+
+		@Override
+		void setNumber(Object instance, double value) throws Exception {
+			field.set(instance, value);
+		}
+	}
+
+	private static class FloatConverter extends FieldConverter {
+
+		FloatConverter(Field field) {
+			super(field);
+		}
+
+		@Override
+		void setText(Object instance, String content) throws Exception {
+			field.set(instance, Float.valueOf(content.trim()));
+		}
+
+		@Override
+		void setNumber(Object instance, double value) throws Exception {
+			field.set(instance, (float) value);
+		}
+	}
+
+	private static class BigDecimalConverter extends FieldConverter {
+
+		BigDecimalConverter(Field field) {
+			super(field);
+		}
+
+		@Override
+		void setText(Object instance, String content) throws Exception {
+			field.set(instance, new BigDecimal(content.trim()));
+		}
+
+		@Override
+		void setNumber(Object instance, double value) throws Exception {
+			field.set(instance, BigDecimal.valueOf(value));
+		}
+	}
+
+	private static class BooleanConverter extends FieldConverter {
+
+		BooleanConverter(Field field) {
+			super(field);
+		}
+
+		@Override
+		void setText(Object instance, String content) throws Exception {
+			String text = content.trim().toLowerCase();
+			if (text.equals("true") || text.equals("on") || text.equals("yes") || text.equals("1")) {
+				field.set(instance, Boolean.TRUE);
+			} else if (text.equals("false") || text.equals("off") || text.equals("no") || text.equals("0")) {
+				field.set(instance, Boolean.FALSE);
+			} else if (text.length() > 0) {
+				throw new IllegalArgumentException("无效的布尔值[" + content + "]");
+			}
+		}
+
+		@Override
+		void setNumber(Object instance, double value) throws Exception {
+			field.set(instance, value != 0);
+		}
+
+		@Override
+		void setBoolean(Object instance, boolean value) throws Exception {
+			field.set(instance, value);
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static class EnumConverter extends FieldConverter {
+
+		private final Class<? extends Enum> type;
+
+		EnumConverter(Field field, Class<? extends Enum> type) {
+			super(field);
+			this.type = type;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		void setText(Object instance, String content) throws Exception {
+			String text = content.trim();
+			if (text.length() > 0) {
+				field.set(instance, Enum.valueOf(type, text));
+			}
+		}
+	}
+
+	/**
+	 * 复杂类型使用通用转换(目标类型由属性声明创建,与逐个单元格转换时相同)
+	 */
+	private static class GenericConverter extends FieldConverter {
+
+		/** 属性的目标类型 */
+		private final TypeDescriptor targetType;
+
+		GenericConverter(Field field) {
+			super(field);
+			this.targetType = new TypeDescriptor(field);
+		}
+
+		@Override
+		void setText(Object instance, String content) throws Exception {
+			field.set(instance, ConvertUtils.convert(content, targetType.getType()));
+		}
+	}
+
+}
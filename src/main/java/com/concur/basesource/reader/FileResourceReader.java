@@ -0,0 +1,24 @@
+package com.concur.basesource.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 可直接读取资源文件的资源读取器
+ * <p>{@link com.concur.basesource.storage.Storage}优先使用文件读取,读取器可以在同一加载周期内共用已解析的文件</p>
+ * @author frank
+ */
+public interface FileResourceReader extends ResourceReader {
+
+	/**
+	 * 从资源文件读取资源实例
+	 * @param <E>
+	 * @param file 资源文件
+	 * @param clz 资源实例类型
+	 * @return
+	 * @throws IOException 资源文件不存在或无法读取时抛出
+	 */
+	<E> Iterator<E> read(File file, Class<E> clz) throws IOException;
+
+}
@@ -1,35 +1,44 @@
 package com.concur.basesource.reader;
 
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONReader;
 import com.concur.basesource.exceptions.DecodeException;
-import com.concur.unity.utils.JsonUtils;
-import org.apache.commons.io.IOUtils;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringWriter;
-import java.util.ArrayList;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.Iterator;
-import java.util.List;
+import java.util.NoSuchElementException;
 
 
 /**
  * JSON 资源读取器
+ * <p>资源文件内容为资源实例数组(转换工具输出的格式),按词法单元流式读取,每个数组元素直接绑定为资源实例,不读取整个文件内容</p>
  * @author frank
  */
 @Component
-public class JsonReader implements ResourceReader {
-	
+public class JsonReader implements FileResourceReader {
+
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
 	@Override
 	public <E> Iterator<E> read(InputStream input, Class<E> clz) {
-		try {
-			StringWriter writer = new StringWriter();
-			IOUtils.copy(input, writer, "utf-8");
-			String theString = writer.toString();
-			List<E> list = JsonUtils.jsonString2Object(theString, ArrayList.class);
-			return list.iterator();
-		} catch (Exception e) {
-			throw new DecodeException(e);
+		return new RowIterator<E>(new InputStreamReader(input, CHARSET), clz, false);
+	}
+
+	@Override
+	public <E> Iterator<E> read(File file, Class<E> clz) throws IOException {
+		if (!file.isFile()) {
+			throw new FileNotFoundException(file.getPath());
 		}
+		// JSONReader 自带读取缓冲区
+		return new RowIterator<E>(new InputStreamReader(new FileInputStream(file), CHARSET), clz, true);
 	}
 
 	@Override
@@ -37,4 +46,76 @@ public class JsonReader implements ResourceReader {
 		return ReaderType.JSON.getType();
 	}
 
+	/**
+	 * 资源实例迭代器,按需读取下一个数组元素
+	 */
+	private static class RowIterator<E> implements ResourceIterator<E> {
+
+		private final JSONReader reader;
+		private final Class<E> clz;
+		/** 关闭时是否关闭输入(由读取器打开的文件) */
+		private final boolean owner;
+		/** 是否已读取到数组结尾 */
+		private boolean end;
+
+		RowIterator(Reader input, Class<E> clz, boolean owner) {
+			this.reader = new JSONReader(input);
+			this.clz = clz;
+			this.owner = owner;
+			try {
+				reader.startArray();
+			} catch (JSONException e) {
+				close();
+				throw new DecodeException("静态资源[" + clz.getName() + "]的内容不是 JSON 数组", e);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (end) {
+				return false;
+			}
+			try {
+				if (reader.hasNext()) {
+					return true;
+				}
+				reader.endArray();
+			} catch (JSONException e) {
+				close();
+				throw new DecodeException("静态资源[" + clz.getName() + "]的 JSON 内容无效", e);
+			}
+			close();
+			return false;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			try {
+				return reader.readObject(clz);
+			} catch (JSONException e) {
+				close();
+				throw new DecodeException("静态资源[" + clz.getName() + "]的 JSON 内容无法转换为资源实例", e);
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() {
+			if (end) {
+				return;
+			}
+			end = true;
+			if (owner) {
+				reader.close();
+			}
+		}
+	}
+
 }
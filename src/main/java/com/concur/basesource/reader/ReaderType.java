@@ -9,6 +9,10 @@ public enum ReaderType {
 
     EXCEL("excel"),
 
+    EXCEL_STREAM("excel-stream"),
+
+    BINARY("binary"),
+
     JSON("json");
 
 
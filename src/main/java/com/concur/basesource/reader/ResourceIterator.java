@@ -0,0 +1,20 @@
+package com.concur.basesource.reader;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * 按需读取的资源实例迭代器
+ * <p>每次调用{@link #next()}时才读取并创建下一个资源实例,读取完毕或出错时自动释放资源;
+ * 未读取完毕就放弃时必须调用{@link #close()}释放资源</p>
+ * @author frank
+ */
+public interface ResourceIterator<E> extends Iterator<E>, Closeable {
+
+	/**
+	 * 释放读取资源(输入流、文件等),可以重复调用
+	 */
+	@Override
+	void close();
+
+}
@@ -0,0 +1,255 @@
+package com.concur.basesource.reader;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import com.concur.unity.utils.JsonUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 资源文件清单
+ * <p>记录资源目录下每个文件包含的资源类名及对应的表格名,保存在资源目录旁的清单文件中(资源目录名 + {@link #SUFFIX}),
+ * 按相对路径、文件大小、修改时间及内容摘要判断文件是否变化,未变化的文件启动时不需要再打开</p>
+ * <p>清单文件损坏或无法写入时只记录日志,按没有清单处理</p>
+ * @author frank
+ */
+public final class ResourceManifest {
+
+	private static final Logger logger = LoggerFactory.getLogger(ResourceManifest.class);
+
+	/** 清单文件后缀 */
+	public static final String SUFFIX = ".manifest";
+	/** 内容摘要算法 */
+	private static final String DIGEST = "MD5";
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/** 资源目录 */
+	private final File dir;
+	/** 清单文件 */
+	private final File file;
+	/** 资源格式类型 */
+	private final String type;
+	/** 相对路径 - 文件记录 */
+	private final Map<String, Entry> entries;
+	/** 本次查询过的文件(相对路径) */
+	private final Set<String> visited = new HashSet<String>();
+	/** 是否需要保存 */
+	private boolean dirty;
+
+	private ResourceManifest(File dir, String type, Map<String, Entry> entries) {
+		this.dir = dir;
+		this.file = new File(dir.getParentFile(), dir.getName() + SUFFIX);
+		this.type = type;
+		this.entries = entries;
+	}
+
+	/**
+	 * 加载资源目录的清单
+	 * @param dir 资源目录
+	 * @param type 资源格式类型,与记录的类型不同的文件记录视为无效
+	 * @return 清单文件不存在或无法读取时返回空清单
+	 */
+	public static ResourceManifest load(File dir, String type) {
+		dir = dir.getAbsoluteFile();
+		File file = new File(dir.getParentFile(), dir.getName() + SUFFIX);
+		Map<String, Entry> entries = null;
+		if (file.isFile()) {
+			try {
+				String content = FileUtils.readFileToString(file, "UTF-8");
+				entries = JSON.parseObject(content, new TypeReference<HashMap<String, Entry>>() {});
+			} catch (Exception e) {
+				logger.warn("资源清单文件[{}]无法读取,将重新扫描资源文件", file.getPath(), e);
+			}
+		}
+		if (entries == null) {
+			entries = new HashMap<String, Entry>();
+		}
+		return new ResourceManifest(dir, type, entries);
+	}
+
+	/**
+	 * 获取未变化文件记录的资源表格
+	 * <p>大小和修改时间都相同时直接使用记录;修改时间不同但大小相同时比较内容摘要</p>
+	 * @param resource 资源文件
+	 * @return 资源类名 - 表格名列表,文件没有记录或已变化时返回null
+	 */
+	public Map<String, List<String>> get(File resource) {
+		String path = getPath(resource);
+		visited.add(path);
+		Entry entry = entries.get(path);
+		if (entry == null || !type.equals(entry.getType()) || entry.getSheets() == null) {
+			return null;
+		}
+		if (entry.getLength() != resource.length()) {
+			return null;
+		}
+		if (entry.getLastModified() != resource.lastModified()) {
+			String hash = digest(resource);
+			if (hash == null || !hash.equals(entry.getHash())) {
+				return null;
+			}
+			// 内容未变化(如重新检出),更新修改时间
+			entry.setLastModified(resource.lastModified());
+			dirty = true;
+		}
+		return entry.getSheets();
+	}
+
+	/**
+	 * 记录文件的资源表格
+	 * @param resource 资源文件
+	 * @param sheets 资源类名 - 表格名列表
+	 */
+	public void put(File resource, Map<String, List<String>> sheets) {
+		String path = getPath(resource);
+		visited.add(path);
+		String hash = digest(resource);
+		if (hash == null) {
+			entries.remove(path);
+			return;
+		}
+		Entry entry = new Entry();
+		entry.setType(type);
+		entry.setLength(resource.length());
+		entry.setLastModified(resource.lastModified());
+		entry.setHash(hash);
+		entry.setSheets(sheets);
+		entries.put(path, entry);
+		dirty = true;
+	}
+
+	/**
+	 * 保存清单,移除本次未查询过的文件记录(文件已删除)
+	 */
+	public void save() {
+		if (entries.keySet().retainAll(visited)) {
+			dirty = true;
+		}
+		if (!dirty) {
+			return;
+		}
+		try {
+			FileUtils.writeStringToFile(file, JsonUtils.object2PrettyJsonString(entries), "UTF-8");
+			dirty = false;
+		} catch (IOException e) {
+			logger.warn("资源清单文件[{}]无法写入", file.getPath(), e);
+		}
+	}
+
+	/**
+	 * 获取资源文件相对资源目录的路径
+	 * @param resource 资源文件
+	 * @return
+	 */
+	private String getPath(File resource) {
+		return dir.toURI().relativize(resource.getAbsoluteFile().toURI()).getPath();
+	}
+
+	/**
+	 * 计算文件内容摘要
+	 * @param resource 资源文件
+	 * @return 无法读取时返回null
+	 */
+	private static String digest(File resource) {
+		InputStream input = null;
+		try {
+			MessageDigest digest = MessageDigest.getInstance(DIGEST);
+			input = new FileInputStream(resource);
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = input.read(buffer)) != -1) {
+				digest.update(buffer, 0, count);
+			}
+			byte[] bytes = digest.digest();
+			char[] chars = new char[bytes.length * 2];
+			for (int i = 0; i < bytes.length; i++) {
+				chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+				chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+			}
+			return new String(chars);
+		} catch (IOException e) {
+			logger.warn("资源文件[{}]无法读取", resource.getPath(), e);
+			return null;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			if (input != null) {
+				try {
+					input.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * 文件记录
+	 */
+	public static class Entry {
+
+		/** 资源格式类型 */
+		private String type;
+		/** 文件大小 */
+		private long length;
+		/** 修改时间 */
+		private long lastModified;
+		/** 内容摘要 */
+		private String hash;
+		/** 资源类名 - 表格名列表 */
+		private Map<String, List<String>> sheets;
+
+		public String getType() {
+			return type;
+		}
+
+		public void setType(String type) {
+			this.type = type;
+		}
+
+		public long getLength() {
+			return length;
+		}
+
+		public void setLength(long length) {
+			this.length = length;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public void setLastModified(long lastModified) {
+			this.lastModified = lastModified;
+		}
+
+		public String getHash() {
+			return hash;
+		}
+
+		public void setHash(String hash) {
+			this.hash = hash;
+		}
+
+		public Map<String, List<String>> getSheets() {
+			return sheets;
+		}
+
+		public void setSheets(Map<String, List<String>> sheets) {
+			this.sheets = sheets;
+		}
+	}
+
+}
@@ -17,6 +17,7 @@ public interface ResourceReader {
 	
 	/**
 	 * 从输入流读取资源实例
+	 * <p>读取器可以返回{@link ResourceIterator}按需读取资源实例,调用方使用完毕后需要关闭</p>
 	 * @param <E>
 	 * @param input 输入流
 	 * @param clz 资源实例类型
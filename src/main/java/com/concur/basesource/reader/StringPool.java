@@ -0,0 +1,112 @@
+package com.concur.basesource.reader;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 资源字符串去重池
+ * <p>读取器注入字符串属性时使用,内容相同的字符串共用同一个实例;池中只保存弱引用,不再被资源实例引用的字符串可以被回收</p>
+ * <p>按散列值分段加锁,支持并行加载</p>
+ * @author frank
+ */
+public final class StringPool {
+
+	/** 分段数量(2的幂) */
+	private static final int SEGMENTS = 16;
+	/** 字符串对象头及字段的估算大小(字节) */
+	private static final int STRING_OVERHEAD = 40;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static final Map<String, WeakReference<String>>[] POOLS = new Map[SEGMENTS];
+
+	static {
+		for (int i = 0; i < SEGMENTS; i++) {
+			POOLS[i] = new WeakHashMap<String, WeakReference<String>>();
+		}
+	}
+
+	/** 查询次数 */
+	private static final AtomicLong LOOKUPS = new AtomicLong();
+	/** 命中次数 */
+	private static final AtomicLong HITS = new AtomicLong();
+	/** 估算节省的字节数 */
+	private static final AtomicLong SAVED_BYTES = new AtomicLong();
+
+	private StringPool() {
+	}
+
+	/**
+	 * 获取内容相同的共用字符串
+	 * @param value 字符串
+	 * @return 池中已有相同内容时返回池中的实例,否则放入池中并返回原实例
+	 */
+	public static String intern(String value) {
+		if (value == null) {
+			return null;
+		}
+		LOOKUPS.incrementAndGet();
+		int hash = value.hashCode();
+		Map<String, WeakReference<String>> pool = POOLS[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+		synchronized (pool) {
+			WeakReference<String> ref = pool.get(value);
+			String cached = ref == null ? null : ref.get();
+			if (cached != null) {
+				HITS.incrementAndGet();
+				SAVED_BYTES.addAndGet(STRING_OVERHEAD + value.length() * 2);
+				return cached;
+			}
+			pool.put(value, new WeakReference<String>(value));
+			return value;
+		}
+	}
+
+	/**
+	 * 池中的字符串数量(包括尚未清理的已回收项)
+	 * @return
+	 */
+	public static int size() {
+		int result = 0;
+		for (Map<String, WeakReference<String>> pool : POOLS) {
+			synchronized (pool) {
+				result += pool.size();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 查询次数
+	 * @return
+	 */
+	public static long getLookups() {
+		return LOOKUPS.get();
+	}
+
+	/**
+	 * 命中次数(共用已有实例的次数)
+	 * @return
+	 */
+	public static long getHits() {
+		return HITS.get();
+	}
+
+	/**
+	 * 估算节省的字节数
+	 * @return
+	 */
+	public static long getSavedBytes() {
+		return SAVED_BYTES.get();
+	}
+
+	/**
+	 * 获取统计信息
+	 * @return
+	 */
+	public static String getStats() {
+		return "查询:" + getLookups() + ",命中:" + getHits() + ",字符串:" + size() + ",约节省:"
+				+ (getSavedBytes() >> 10) + "KB";
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.concur.basesource.reader;
+
+import com.concur.basesource.convertor.utils.SheetInfo;
+import com.concur.basesource.convertor.utils.SheetUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Excel工作簿加载周期
+ * <p>在同一个加载周期内每个Excel文件只解析一次,对应同一文件的全部资源类共用解析结果;
+ * {@link #close()}结束加载周期并释放缓存的工作簿</p>
+ * <p>每个加载周期独立缓存工作簿,结束一个加载周期不受其他进行中的加载周期影响</p>
+ * <p>{@link ExcelReader}通过{@link #getSheets(File)}使用当前线程绑定({@link #bind()})的加载周期,
+ * 没有绑定加载周期时每次都重新解析文件</p>
+ * @author frank
+ */
+public final class WorkbookLoader {
+
+	private static final Logger logger = LoggerFactory.getLogger(WorkbookLoader.class);
+
+	/** 当前线程绑定的加载周期 */
+	private static final ThreadLocal<WorkbookLoader> CURRENT = new ThreadLocal<WorkbookLoader>();
+
+	/** 文件路径 - 已解析的工作簿 */
+	private final ConcurrentHashMap<String, CachedWorkbook> workbooks =
+			new ConcurrentHashMap<String, CachedWorkbook>();
+	/** 是否已结束 */
+	private volatile boolean closed;
+
+	/**
+	 * 获取Excel文件中的资源表格,使用当前线程绑定的加载周期
+	 * @param file Excel文件
+	 * @return 资源类名 - 表格信息(只读)
+	 * @throws FileNotFoundException 文件不存在时抛出
+	 */
+	public static Map<String, SheetInfo> getSheets(File file) throws FileNotFoundException {
+		WorkbookLoader current = CURRENT.get();
+		if (current != null) {
+			return current.load(file);
+		}
+		if (!file.isFile()) {
+			throw new FileNotFoundException(file.getPath());
+		}
+		return parse(file);
+	}
+
+	/**
+	 * 恢复{@link #bind()}之前绑定的加载周期
+	 * @param prev {@link #bind()}的返回值
+	 */
+	public static void unbind(WorkbookLoader prev) {
+		if (prev == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(prev);
+		}
+	}
+
+	/**
+	 * 在当前线程中使用该加载周期,完成后必须调用{@link #unbind(WorkbookLoader)}
+	 * @return 之前绑定的加载周期,没有时返回null
+	 */
+	public WorkbookLoader bind() {
+		WorkbookLoader prev = CURRENT.get();
+		CURRENT.set(this);
+		return prev;
+	}
+
+	/**
+	 * 获取Excel文件中的资源表格,同一加载周期内只解析一次(文件修改后重新解析)
+	 * @param file Excel文件
+	 * @return 资源类名 - 表格信息(只读)
+	 * @throws FileNotFoundException 文件不存在时抛出
+	 */
+	public Map<String, SheetInfo> load(File file) throws FileNotFoundException {
+		if (!file.isFile()) {
+			throw new FileNotFoundException(file.getPath());
+		}
+		if (closed) {
+			return parse(file);
+		}
+		String path = file.getAbsolutePath();
+		CachedWorkbook workbook = workbooks.get(path);
+		if (workbook == null) {
+			workbook = new CachedWorkbook(file);
+			CachedWorkbook prev = workbooks.putIfAbsent(path, workbook);
+			if (prev != null) {
+				workbook = prev;
+			}
+		}
+		return workbook.getSheets();
+	}
+
+	/**
+	 * 结束加载周期,释放缓存的工作簿,之后的{@link #load(File)}每次都重新解析文件
+	 */
+	public void close() {
+		closed = true;
+		workbooks.clear();
+	}
+
+	/**
+	 * 解析Excel文件
+	 * @param file Excel文件
+	 * @return
+	 */
+	private static Map<String, SheetInfo> parse(File file) {
+		long start = System.currentTimeMillis();
+		Map<String, SheetInfo> result = SheetUtils.listSheets(SheetUtils.getWorkbook(file), file);
+		if (logger.isDebugEnabled()) {
+			logger.debug("解析资源文件[{}]耗时:{}ms", file.getName(), System.currentTimeMillis() - start);
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * 已解析的工作簿,文件修改后重新解析
+	 */
+	private static class CachedWorkbook {
+
+		private final File file;
+		private long lastModified;
+		private long length;
+		private Map<String, SheetInfo> sheets;
+
+		CachedWorkbook(File file) {
+			this.file = file;
+		}
+
+		synchronized Map<String, SheetInfo> getSheets() {
+			if (sheets == null || file.lastModified() != lastModified || file.length() != length) {
+				lastModified = file.lastModified();
+				length = file.length();
+				sheets = parse(file);
+			}
+			return sheets;
+		}
+	}
+
+}
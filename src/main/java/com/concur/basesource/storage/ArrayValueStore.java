@@ -0,0 +1,119 @@
+package com.concur.basesource.storage;
+
+/**
+ * 连续 int 主键的主存储空间
+ * <p>以(主键 - 最小主键)为下标直接存取,查询只需一次边界检查和一次数组读取</p>
+ * @author frank
+ */
+final class ArrayValueStore<K, V> implements WritableValueStore<K, V> {
+
+	/** 自动选择时允许的空位数量(相对于资源实例数量) */
+	private static final int AUTO_SLACK = 64;
+	/** 指定使用数组时每个资源实例最多占用的数组长度 */
+	private static final int FORCED_RATIO = 16;
+	/** 数组最大长度 */
+	static final long MAX_SPAN = Integer.MAX_VALUE - 8;
+
+	/** 标识获取器 */
+	private final IntGetter identifier;
+	/** 最小主键 */
+	private final int minKey;
+	/** 资源实例表,null 表示空位 */
+	private final Object[] values;
+	/** 资源实例数量 */
+	private int size;
+
+	/**
+	 * 构造方法
+	 * @param identifier 标识获取器
+	 * @param minKey 最小主键
+	 * @param span 主键跨度(最大主键 - 最小主键 + 1)
+	 */
+	ArrayValueStore(IntGetter identifier, int minKey, int span) {
+		this.identifier = identifier;
+		this.minKey = minKey;
+		this.values = new Object[span];
+	}
+
+	/**
+	 * 主键分布是否足够密集,数组占用不超过同等数量的散列存储空间
+	 * @param size 资源实例数量
+	 * @param span 主键跨度
+	 * @return
+	 */
+	static boolean isDense(int size, long span) {
+		return span <= (long) size * 2 + AUTO_SLACK;
+	}
+
+	/**
+	 * 指定使用数组时主键分布是否可以接受,过于稀疏的主键会浪费大量内存
+	 * @param size 资源实例数量
+	 * @param span 主键跨度
+	 * @return
+	 */
+	static boolean isAcceptable(int size, long span) {
+		return span <= (long) size * FORCED_RATIO + AUTO_SLACK;
+	}
+
+	@Override
+	public V get(K key) {
+		if (!(key instanceof Integer)) {
+			return null;
+		}
+		return getInt(((Integer) key).intValue());
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V getInt(int key) {
+		int index = key - minKey;
+		if (index < 0 || index >= values.length) {
+			return null;
+		}
+		return (V) values[index];
+	}
+
+	@Override
+	public V getLong(long key) {
+		if (key < Integer.MIN_VALUE || key > Integer.MAX_VALUE) {
+			return null;
+		}
+		return getInt((int) key);
+	}
+
+	@Override
+	public boolean containsKey(K key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public V put(V value) {
+		return putInt(identifier.getInt(value), value);
+	}
+
+	/**
+	 * 添加资源实例
+	 * @param key 主键,必须在构造时声明的范围内
+	 * @param value 资源实例
+	 * @return 相同主键的旧实例
+	 */
+	@SuppressWarnings("unchecked")
+	V putInt(int key, V value) {
+		int index = key - minKey;
+		if (index < 0 || index >= values.length) {
+			throw new IllegalArgumentException("主键[" + key + "]超出数组存储空间范围");
+		}
+		Object prev = values[index];
+		values[index] = value;
+		if (prev == null) {
+			size++;
+		}
+		return (V) prev;
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.concur.basesource.storage;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 资源实例变化检测器,重新加载时判断读取的资源实例与当前快照中的实例内容是否相同
+ * <p>资源类(或除{@link Object}外的父类)声明了 equals 方法时使用该方法比较;
+ * 否则比较资源类及其父类声明的全部非静态属性(包括 transient 属性),注入属性({@link InjectDefinition})不参与比较</p>
+ * <p>属性值使用{@link GetterBuilder#createFieldGetter(Field)}创建的获取器读取,数组属性按内容比较</p>
+ * @author frank
+ */
+final class ChangeDetector {
+
+	/** 是否使用资源类的 equals 方法 */
+	private final boolean useEquals;
+	/** 参与比较的属性值获取器 */
+	private final Getter[] getters;
+
+	/**
+	 * 构造方法
+	 * @param clz 资源类
+	 * @param injects 非静态属性注入定义
+	 */
+	ChangeDetector(Class<?> clz, Collection<InjectDefinition> injects) {
+		this.useEquals = declaresEquals(clz);
+		if (useEquals) {
+			this.getters = new Getter[0];
+			return;
+		}
+		Set<Field> excludes = new HashSet<Field>();
+		for (InjectDefinition inject : injects) {
+			excludes.add(inject.getField());
+		}
+		List<Getter> result = new ArrayList<Getter>();
+		for (Class<?> current = clz; current != null && current != Object.class; current = current.getSuperclass()) {
+			for (Field field : current.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic() || excludes.contains(field)) {
+					continue;
+				}
+				result.add(GetterBuilder.createFieldGetter(field));
+			}
+		}
+		this.getters = result.toArray(new Getter[result.size()]);
+	}
+
+	/**
+	 * 资源实例内容是否相同
+	 * @param prev 当前快照中的资源实例
+	 * @param obj 读取的资源实例
+	 * @return
+	 */
+	boolean isSame(Object prev, Object obj) {
+		if (useEquals) {
+			return prev.equals(obj);
+		}
+		for (Getter getter : getters) {
+			if (!isEqual(getter.getValue(prev), getter.getValue(obj))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 比较属性值,数组按内容比较
+	 */
+	private static boolean isEqual(Object o1, Object o2) {
+		if (o1 == o2) {
+			return true;
+		}
+		if (o1 == null || o2 == null) {
+			return false;
+		}
+		if (o1.getClass().isArray()) {
+			return Arrays.deepEquals(new Object[] { o1 }, new Object[] { o2 });
+		}
+		return o1.equals(o2);
+	}
+
+	/**
+	 * 资源类(或除{@link Object}外的父类)是否声明了 equals 方法
+	 */
+	private static boolean declaresEquals(Class<?> clz) {
+		Method method = ReflectionUtils.findMethod(clz, "equals", Object.class);
+		return method != null && method.getDeclaringClass() != Object.class;
+	}
+
+}
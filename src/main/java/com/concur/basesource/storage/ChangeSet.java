@@ -0,0 +1,88 @@
+package com.concur.basesource.storage;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 静态资源重新加载的变更集合
+ * <p>{@link Storage}重新加载后作为通知参数传给观察者,内容未变化的资源实例会被重用,不在变更集合中</p>
+ * @author frank
+ */
+public class ChangeSet<K> {
+
+	/** 新增的主键 */
+	private final Set<K> added;
+	/** 内容变化的主键 */
+	private final Set<K> updated;
+	/** 删除的主键 */
+	private final Set<K> removed;
+
+	/**
+	 * 构造方法,传入的集合在构造后不能再被修改
+	 * @param added 新增的主键
+	 * @param updated 内容变化的主键
+	 * @param removed 删除的主键
+	 */
+	ChangeSet(Set<K> added, Set<K> updated, Set<K> removed) {
+		this.added = Collections.unmodifiableSet(added);
+		this.updated = Collections.unmodifiableSet(updated);
+		this.removed = Collections.unmodifiableSet(removed);
+	}
+
+	/**
+	 * 是否没有任何变化
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return added.isEmpty() && updated.isEmpty() && removed.isEmpty();
+	}
+
+	/**
+	 * 获取变化的资源数量
+	 * @return
+	 */
+	public int size() {
+		return added.size() + updated.size() + removed.size();
+	}
+
+	/**
+	 * 指定主键的资源是否有变化(新增、修改或删除)
+	 * @param key 主键
+	 * @return
+	 */
+	public boolean isChanged(K key) {
+		return added.contains(key) || updated.contains(key) || removed.contains(key);
+	}
+
+	// Getter ...
+
+	/**
+	 * 获取新增的主键
+	 * @return 只读集合
+	 */
+	public Set<K> getAdded() {
+		return added;
+	}
+
+	/**
+	 * 获取内容变化的主键
+	 * @return 只读集合
+	 */
+	public Set<K> getUpdated() {
+		return updated;
+	}
+
+	/**
+	 * 获取删除的主键
+	 * @return 只读集合
+	 */
+	public Set<K> getRemoved() {
+		return removed;
+	}
+
+	@Override
+	public String toString() {
+		return "added=" + added.size() + ", updated=" + updated.size() + ", removed=" + removed.size();
+	}
+
+}
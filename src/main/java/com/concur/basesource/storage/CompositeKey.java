@@ -0,0 +1,97 @@
+package com.concur.basesource.storage;
+
+import java.util.Arrays;
+
+/**
+ * 多值索引键
+ * <p>按值类型比较(1 与 "1" 不相等),散列值在创建时计算</p>
+ * <p>排序时逐个比较索引值(null 在前),前缀相同时较短的键在前</p>
+ * @author frank
+ */
+public final class CompositeKey implements Comparable<CompositeKey> {
+
+	/** 索引值(按索引值序号排列) */
+	private final Object[] values;
+	/** 散列值 */
+	private final int hash;
+
+	/**
+	 * 构造方法,传入的数组在构造后不能再被修改
+	 * @param values 索引值
+	 */
+	public CompositeKey(Object[] values) {
+		this.values = values;
+		this.hash = Arrays.hashCode(values);
+	}
+
+	/**
+	 * 获取索引值数量
+	 * @return
+	 */
+	public int size() {
+		return values.length;
+	}
+
+	/**
+	 * 获取指定位置的索引值
+	 * @param index 位置
+	 * @return
+	 */
+	public Object get(int index) {
+		return values[index];
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CompositeKey)) {
+			return false;
+		}
+		CompositeKey that = (CompositeKey) obj;
+		return this.hash == that.hash && Arrays.equals(this.values, that.values);
+	}
+
+	@Override
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public int compareTo(CompositeKey that) {
+		int length = Math.min(this.values.length, that.values.length);
+		for (int i = 0; i < length; i++) {
+			Object o1 = this.values[i];
+			Object o2 = that.values[i];
+			if (o1 == o2) {
+				continue;
+			}
+			if (o1 == null) {
+				return -1;
+			}
+			if (o2 == null) {
+				return 1;
+			}
+			int result = ((Comparable) o1).compareTo(o2);
+			if (result != 0) {
+				return result;
+			}
+		}
+		return this.values.length - that.values.length;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				builder.append('^');
+			}
+			builder.append(values[i]);
+		}
+		return builder.toString();
+	}
+
+}
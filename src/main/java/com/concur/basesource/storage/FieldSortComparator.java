@@ -35,7 +35,7 @@ public class FieldSortComparator<T> implements Comparator<T> {
 
                         SortInfo sortInfo = new SortInfo();
                         Field field = clazz.getDeclaredField(fieldName);
-                        sortInfo.fieldGetter = new FieldGetter(field);
+                        sortInfo.fieldGetter = GetterBuilder.createFieldGetter(field);
 
                         String sortType = orderValue[1];
                         sortInfo.sortType = FieldSortType.valueFrom(sortType);
@@ -67,15 +67,13 @@ public class FieldSortComparator<T> implements Comparator<T> {
             int result;
             Comparable field1 = (Comparable) sortInfo.fieldGetter.getValue(o1);
             Comparable field2 = (Comparable) sortInfo.fieldGetter.getValue(o2);
-            if (field1 == field2) {
+            if (field1 == null || field2 == null) {
+                if (field1 != field2) {
+                    return sortInfo.sortType.of(field1 == null ? -1 : 1);
+                }
+                // 都为null时相等,继续比较下一个排序属性
                 continue;
             }
-            if (field1 == null) {
-                return sortInfo.sortType.of(-1);
-            }
-            if (field1 == null) {
-                return sortInfo.sortType.of(1);
-            }
             if ((result = field1.compareTo(field2)) != 0) {
                 return sortInfo.sortType.of(result);
             }
@@ -86,7 +84,7 @@ public class FieldSortComparator<T> implements Comparator<T> {
 
     static class SortInfo {
 
-        public FieldGetter fieldGetter;
+        public Getter fieldGetter;
 
         public FieldSortType sortType;
 
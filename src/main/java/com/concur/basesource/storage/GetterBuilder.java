@@ -4,11 +4,14 @@ import com.concur.basesource.anno.Id;
 import com.concur.basesource.anno.Index;
 import com.concur.basesource.anno.Indexes;
 import com.concur.unity.reflect.ReflectionUtility;
+import com.concur.unity.utils.ConvertUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.helpers.FormattingTuple;
 import org.slf4j.helpers.MessageFormatter;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.NumberUtils;
 import org.springframework.util.StringUtils;
 
 import java.lang.reflect.Field;
@@ -27,7 +30,7 @@ public class GetterBuilder {
 	/** 方法识别器 */
 	private static class MethodGetter implements Getter {
 		
-		private final Method method;
+		protected final Method method;
 		
 		public MethodGetter(Method method) {
 			ReflectionUtility.makeAccessible(method);
@@ -44,10 +47,74 @@ public class GetterBuilder {
 				logger.error(message.getMessage());
 				throw new RuntimeException(message.getMessage());
 			}
-			return buildIndexKey(value);
+			return value;
 		}
 	}
 	
+	/** int 属性识别器 */
+	private static class IntFieldGetter extends FieldGetter implements IntGetter {
+
+		public IntFieldGetter(Field field) {
+			super(field);
+		}
+
+		@Override
+		public int getInt(Object object) {
+			try {
+				return getField().getInt(object);
+			} catch (Exception e) {
+				FormattingTuple message = MessageFormatter.format("标识符属性访问异常", e);
+				logger.error(message.getMessage());
+				throw new RuntimeException(message.getMessage());
+			}
+		}
+	}
+
+	/** long 属性识别器 */
+	private static class LongFieldGetter extends FieldGetter implements LongGetter {
+
+		public LongFieldGetter(Field field) {
+			super(field);
+		}
+
+		@Override
+		public long getLong(Object object) {
+			try {
+				return getField().getLong(object);
+			} catch (Exception e) {
+				FormattingTuple message = MessageFormatter.format("标识符属性访问异常", e);
+				logger.error(message.getMessage());
+				throw new RuntimeException(message.getMessage());
+			}
+		}
+	}
+
+	/** int 方法识别器 */
+	private static class IntMethodGetter extends MethodGetter implements IntGetter {
+
+		public IntMethodGetter(Method method) {
+			super(method);
+		}
+
+		@Override
+		public int getInt(Object object) {
+			return ((Integer) getValue(object)).intValue();
+		}
+	}
+
+	/** long 方法识别器 */
+	private static class LongMethodGetter extends MethodGetter implements LongGetter {
+
+		public LongMethodGetter(Method method) {
+			super(method);
+		}
+
+		@Override
+		public long getLong(Object object) {
+			return ((Long) getValue(object)).longValue();
+		}
+	}
+
 	/**
 	 * 识别信息
 	 * @author frank
@@ -92,6 +159,7 @@ public class GetterBuilder {
 
 	/**
 	 * 创建指定资源类的唯一标示获取实例
+	 * <p>int/long 类型的标识返回{@link IntGetter}/{@link LongGetter},用于选择无装箱的主存储空间</p>
 	 * @param clz 资源类
 	 * @return
 	 */
@@ -99,13 +167,75 @@ public class GetterBuilder {
 		IdentityInfo info = new IdentityInfo(clz);
 		Getter identifier;
 		if (info.isField()) {
-			identifier = new FieldGetter(info.field);
+			identifier = createFieldGetter(info.field);
 		} else {
-			identifier = new MethodGetter(info.method);
+			identifier = createMethodGetter(info.method);
 		}
 		return identifier;
 	}
 
+	/**
+	 * 创建属性值获取器,优先使用生成的访问类,无法生成时使用反射
+	 * <p>int/long 类型的属性返回{@link IntGetter}/{@link LongGetter}</p>
+	 * @param field 资源类属性
+	 * @return
+	 */
+	public static Getter createFieldGetter(Field field) {
+		Getter getter = GetterGenerator.generate(field);
+		if (getter != null) {
+			return getter;
+		}
+		Class<?> type = field.getType();
+		if (type == int.class) {
+			return new IntFieldGetter(field);
+		} else if (type == long.class) {
+			return new LongFieldGetter(field);
+		}
+		return new FieldGetter(field);
+	}
+
+	/**
+	 * 创建方法值获取器,优先使用生成的访问类,无法生成时使用反射
+	 * <p>int/long 返回值的方法返回{@link IntGetter}/{@link LongGetter}</p>
+	 * @param method 资源类的无参方法
+	 * @return
+	 */
+	public static Getter createMethodGetter(Method method) {
+		Getter getter = GetterGenerator.generate(method);
+		if (getter != null) {
+			return getter;
+		}
+		Class<?> type = method.getReturnType();
+		if (type == int.class) {
+			return new IntMethodGetter(method);
+		} else if (type == long.class) {
+			return new LongMethodGetter(method);
+		}
+		return new MethodGetter(method);
+	}
+
+	/**
+	 * 构建索引键,单值索引直接使用值本身,多值索引使用{@link CompositeKey}
+	 * @param indexValues 索引值(按索引值序号排列)
+	 * @return
+	 */
+	public static Object toIndexKey(Object... indexValues){
+		if (indexValues == null) {
+			return null;
+		}
+		if (indexValues.length == 1) {
+			return indexValues[0];
+		}
+		return new CompositeKey(indexValues);
+	}
+
+	/**
+	 * 构建以"^"连接的字符串索引键
+	 * @param indexValues 索引值
+	 * @return
+	 * @deprecated 索引键已不再使用字符串,请使用{@link #toIndexKey(Object...)}
+	 */
+	@Deprecated
 	public static String buildIndexKey(Object... indexValues){
 		StringBuilder builder = new StringBuilder();
 		if (indexValues != null && indexValues.length > 0) {
@@ -113,23 +243,72 @@ public class GetterBuilder {
 		}
 		return builder.toString();
 	}
+
+	/**
+	 * 将查询值转换为索引值的声明类型,类型一致时直接返回
+	 * @param value 查询值
+	 * @param type 索引值类型
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	static Object toKeyValue(Object value, Class<?> type) {
+		if (value == null || type.isInstance(value)) {
+			return value;
+		}
+		try {
+			if (value instanceof Number && Number.class.isAssignableFrom(type)) {
+				return NumberUtils.convertNumberToTargetClass((Number) value, (Class<Number>) type);
+			}
+			if (type == String.class) {
+				return value.toString();
+			}
+			return ConvertUtils.convert(value, type);
+		} catch (RuntimeException e) {
+			// 无法转换的查询值不会匹配任何索引键
+			return value;
+		}
+	}
 	
+	/**
+	 * 检查排序索引的索引值类型
+	 * @param clz 资源类
+	 * @param name 索引名
+	 * @param keyType 索引值类型
+	 * @throws IllegalStateException 索引值类型未实现{@link Comparable}时抛出
+	 */
+	private static void checkSortable(Class<?> clz, String name, Class<?> keyType) {
+		if (!Comparable.class.isAssignableFrom(keyType)) {
+			FormattingTuple message = MessageFormatter.arrayFormat("资源类[{}]的排序索引[{}]的值类型[{}]未实现Comparable",
+					new Object[] { clz.getName(), name, keyType.getName() });
+			logger.error(message.getMessage());
+			throw new IllegalStateException(message.getMessage());
+		}
+	}
+
 	/**
 	 * 属性域索引值获取器
 	 * @author frank
 	 */
 	@SuppressWarnings({"rawtypes", "unchecked"})
-	private static class FieldIndexGetter extends FieldGetter implements IndexGetter {
+	private static class FieldIndexGetter implements IndexGetter {
 		
+		private final Getter getter;
 		private final String name;
 		private final boolean unique;
+		private final boolean sorted;
 		private final Comparator comparator;
+		private final Class<?> keyType;
 		
 		public FieldIndexGetter(Class<?> clz, AnnoInfo annoInfo) {
-			super(annoInfo.getField());
+			this.getter = createFieldGetter(annoInfo.getField());
 			Index index = annoInfo.getIndex();
 			this.name = index.name();
 			this.unique = index.unique();
+			this.sorted = index.sorted();
+			this.keyType = ClassUtils.resolvePrimitiveIfNecessary(annoInfo.getField().getType());
+			if (sorted) {
+				checkSortable(clz, name, keyType);
+			}
 
 			String[] orderBy = index.orderBy();
 			if (ArrayUtils.isNotEmpty(orderBy)) {
@@ -141,7 +320,28 @@ public class GetterBuilder {
 
 		@Override
 		public Object getValue(Object object) {
-			return buildIndexKey(super.getValue(object));
+			return getter.getValue(object);
+		}
+
+		@Override
+		public Object toKey(Object value) {
+			return toKeyValue(value, keyType);
+		}
+
+		@Override
+		public Object toKey(Object[] values) {
+			if (values == null || values.length != 1) {
+				return toIndexKey(values);
+			}
+			return toKeyValue(values[0], keyType);
+		}
+
+		@Override
+		public Object toKey(int position, Object value) {
+			if (position != 0) {
+				return value;
+			}
+			return toKeyValue(value, keyType);
 		}
 
 		@Override
@@ -154,6 +354,21 @@ public class GetterBuilder {
 			return unique;
 		}
 
+		@Override
+		public boolean isSorted() {
+			return sorted;
+		}
+
+		@Override
+		public int getFieldCount() {
+			return 1;
+		}
+
+		@Override
+		public Class<?> getKeyType(int position) {
+			return keyType;
+		}
+
 		@Override
 		public Comparator getComparator() {
 			return comparator;
@@ -175,16 +390,16 @@ public class GetterBuilder {
 
 		private final String name;
 		private final boolean unique;
+		private final boolean sorted;
 		private Comparator comparator;
 		private final List<FieldInfo> fieldInfoList;
 
 		public MultiFieldIndexGetter(Class<?> clz, List<AnnoInfo> fields) {
 			String name = null;
 			boolean unique = false;
+			boolean sorted = false;
 			final List<FieldInfo> fieldInfoList = new ArrayList<FieldInfo>();
 			for (AnnoInfo field : fields) {
-				ReflectionUtility.makeAccessible(field.getField());
-
 				Index index = field.getIndex();
 				if (name != null && !name.equals(index.name())) {
 					throw new IllegalArgumentException(field.getField().getDeclaringClass().getSimpleName() +
@@ -192,6 +407,7 @@ public class GetterBuilder {
 				}
 				name = index.name();
 				unique = index.unique();
+				sorted |= index.sorted();
 
 				fieldInfoList.add(new FieldInfo(index.order(), field.getField()));
 
@@ -202,6 +418,12 @@ public class GetterBuilder {
 
 			this.name = name;
 			this.unique = unique;
+			this.sorted = sorted;
+			if (sorted) {
+				for (FieldInfo fieldInfo : fieldInfoList) {
+					checkSortable(clz, name, fieldInfo.keyType);
+				}
+			}
 
 			Collections.sort(fieldInfoList);
 			this.fieldInfoList = fieldInfoList;
@@ -218,29 +440,65 @@ public class GetterBuilder {
 			return unique;
 		}
 
+		@Override
+		public boolean isSorted() {
+			return sorted;
+		}
+
+		@Override
+		public int getFieldCount() {
+			return fieldInfoList.size();
+		}
+
+		@Override
+		public Class<?> getKeyType(int position) {
+			return fieldInfoList.get(position).keyType;
+		}
+
 		@Override
 		public Object getValue(Object obj) {
 			if (obj == null) {
 				return null;
 			}
 
-			List<Object> fieldValues = new ArrayList<Object>();
-			for (FieldInfo fieldInfo : fieldInfoList) {
-				if (fieldInfo == null || fieldInfo.field == null) {
-					continue;
-				}
-				Object fieldValue = null;
-				try {
-					fieldValue = fieldInfo.field.get(obj);
-				} catch (IllegalAccessException e) {
-					FormattingTuple message = MessageFormatter.format("标识符属性访问异常", e);
-					logger.error(message.getMessage());
-					throw new RuntimeException(message.getMessage());
+			Object[] fieldValues = new Object[fieldInfoList.size()];
+			for (int i = 0; i < fieldValues.length; i++) {
+				fieldValues[i] = fieldInfoList.get(i).getter.getValue(obj);
+			}
+
+			return new CompositeKey(fieldValues);
+		}
+
+		@Override
+		public Object toKey(Object value) {
+			if (value instanceof Object[]) {
+				return toKey((Object[]) value);
+			}
+			return toKey(new Object[] { value });
+		}
+
+		@Override
+		public Object toKey(Object[] values) {
+			if (values == null) {
+				return null;
+			}
+			Object[] keyValues = new Object[values.length];
+			for (int i = 0; i < values.length; i++) {
+				if (i < fieldInfoList.size()) {
+					keyValues[i] = toKeyValue(values[i], fieldInfoList.get(i).keyType);
+				} else {
+					keyValues[i] = values[i];
 				}
-				fieldValues.add(fieldValue);
 			}
+			return new CompositeKey(keyValues);
+		}
 
-			return buildIndexKey(fieldValues.toArray());
+		@Override
+		public Object toKey(int position, Object value) {
+			if (position >= fieldInfoList.size()) {
+				return value;
+			}
+			return toKeyValue(value, fieldInfoList.get(position).keyType);
 		}
 
 		@Override
@@ -263,9 +521,15 @@ public class GetterBuilder {
 
 		public Field field;
 
+		public Class<?> keyType;
+
+		public Getter getter;
+
 		public FieldInfo(int order, Field field) {
 			this.order = order;
 			this.field = field;
+			this.keyType = ClassUtils.resolvePrimitiveIfNecessary(field.getType());
+			this.getter = createFieldGetter(field);
 		}
 
 		@Override
@@ -285,17 +549,25 @@ public class GetterBuilder {
 	 * @author frank
 	 */
 	@SuppressWarnings({"rawtypes", "unchecked"})
-	private static class MethodIndexGetter extends MethodGetter implements IndexGetter {
+	private static class MethodIndexGetter implements IndexGetter {
 		
+		private final Getter getter;
 		private final String name;
 		private final boolean unique;
+		private final boolean sorted;
 		private final Comparator comparator;
+		private final Class<?> keyType;
 		
 		public MethodIndexGetter(Class<?> clz, Method method) {
-			super(method);
+			this.getter = createMethodGetter(method);
 			Index index = method.getAnnotation(Index.class);
 			this.name = index.name();
 			this.unique = index.unique();
+			this.sorted = index.sorted();
+			this.keyType = ClassUtils.resolvePrimitiveIfNecessary(method.getReturnType());
+			if (sorted) {
+				checkSortable(clz, name, keyType);
+			}
 
 			String[] orderBy = index.orderBy();
 			if (ArrayUtils.isNotEmpty(orderBy)) {
@@ -305,6 +577,32 @@ public class GetterBuilder {
 			}
 		}
 		
+		@Override
+		public Object getValue(Object object) {
+			return getter.getValue(object);
+		}
+
+		@Override
+		public Object toKey(Object value) {
+			return toKeyValue(value, keyType);
+		}
+
+		@Override
+		public Object toKey(Object[] values) {
+			if (values == null || values.length != 1) {
+				return toIndexKey(values);
+			}
+			return toKeyValue(values[0], keyType);
+		}
+
+		@Override
+		public Object toKey(int position, Object value) {
+			if (position != 0) {
+				return value;
+			}
+			return toKeyValue(value, keyType);
+		}
+
 		@Override
 		public String getName() {
 			return name;
@@ -315,6 +613,21 @@ public class GetterBuilder {
 			return unique;
 		}
 
+		@Override
+		public boolean isSorted() {
+			return sorted;
+		}
+
+		@Override
+		public int getFieldCount() {
+			return 1;
+		}
+
+		@Override
+		public Class<?> getKeyType(int position) {
+			return keyType;
+		}
+
 		@Override
 		public Comparator getComparator() {
 			return comparator;
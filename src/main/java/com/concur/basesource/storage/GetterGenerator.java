@@ -0,0 +1,249 @@
+package com.concur.basesource.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 值获取器字节码生成器
+ * <p>为资源类的属性/方法生成直接访问的{@link Getter}实现类,替代{@link Field#get(Object)}和{@link Method#invoke(Object, Object...)}</p>
+ * <p>属性为 public 时直接读取属性,否则调用同类型的 public getter 方法(getXxx/isXxx),都不满足时返回null,由调用方使用反射实现</p>
+ * @author frank
+ */
+final class GetterGenerator implements Opcodes {
+
+	private static final Logger logger = LoggerFactory.getLogger(GetterGenerator.class);
+
+	/** 生成类的包名 */
+	private static final String PACKAGE = "com/concur/basesource/storage/generated/";
+	/** 生成类序号 */
+	private static final AtomicInteger SEQUENCE = new AtomicInteger();
+	/** 资源类的类加载器 - 生成类的类加载器(生成类的类加载器以资源类的类加载器为父加载器,只能弱引用,否则条目永远不会被清除) */
+	private static final Map<ClassLoader, WeakReference<GeneratedClassLoader>> LOADERS =
+			new WeakHashMap<ClassLoader, WeakReference<GeneratedClassLoader>>();
+
+	/**
+	 * 生成类的类加载器
+	 */
+	private static class GeneratedClassLoader extends ClassLoader {
+
+		GeneratedClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+
+	private GetterGenerator() {
+	}
+
+	/**
+	 * 生成属性值获取器
+	 * @param field 资源类属性
+	 * @return 无法生成时返回null
+	 */
+	static Getter generate(Field field) {
+		if (Modifier.isStatic(field.getModifiers())) {
+			return null;
+		}
+		Class<?> owner = field.getDeclaringClass();
+		if (Modifier.isPublic(field.getModifiers()) && isAccessible(owner)) {
+			return generate(owner, field.getName(), field.getType(), null);
+		}
+		Method method = findGetter(field);
+		if (method == null) {
+			return null;
+		}
+		return generate(method);
+	}
+
+	/**
+	 * 生成方法值获取器
+	 * @param method 资源类的无参方法
+	 * @return 无法生成时返回null
+	 */
+	static Getter generate(Method method) {
+		if (Modifier.isStatic(method.getModifiers()) || !Modifier.isPublic(method.getModifiers())
+				|| method.getParameterTypes().length > 0 || method.getReturnType() == void.class) {
+			return null;
+		}
+		Class<?> owner = method.getDeclaringClass();
+		if (!isAccessible(owner)) {
+			return null;
+		}
+		return generate(owner, method.getName(), method.getReturnType(), method);
+	}
+
+	/**
+	 * 查找与属性同类型的 public getter 方法
+	 * @param field 属性
+	 * @return
+	 */
+	private static Method findGetter(Field field) {
+		String suffix = StringUtils.capitalize(field.getName());
+		String[] names;
+		if (field.getType() == boolean.class) {
+			names = new String[] { "is" + suffix, "get" + suffix };
+		} else {
+			names = new String[] { "get" + suffix };
+		}
+		for (String name : names) {
+			try {
+				Method method = field.getDeclaringClass().getMethod(name);
+				if (method.getReturnType() == field.getType()) {
+					return method;
+				}
+			} catch (NoSuchMethodException e) {
+				// 继续查找
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 检查生成类是否能访问指定类
+	 * @param clz
+	 * @return
+	 */
+	private static boolean isAccessible(Class<?> clz) {
+		for (Class<?> c = clz; c != null; c = c.getEnclosingClass()) {
+			if (!Modifier.isPublic(c.getModifiers())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 生成获取器类并实例化
+	 * @param owner 声明属性/方法的类
+	 * @param name 属性名/方法名
+	 * @param type 值类型
+	 * @param method 方法,读取属性时为null
+	 * @return 生成失败时返回null
+	 */
+	private static Getter generate(Class<?> owner, String name, Class<?> type, Method method) {
+		try {
+			GeneratedClassLoader loader = getLoader(owner);
+			if (loader == null) {
+				return null;
+			}
+			String className = PACKAGE + owner.getSimpleName() + "$" + name + "$Getter" + SEQUENCE.incrementAndGet();
+			byte[] bytes = createClass(className, owner, name, type, method);
+			Class<?> clz = loader.define(className.replace('/', '.'), bytes);
+			return (Getter) clz.newInstance();
+		} catch (Throwable e) {
+			logger.warn("无法生成资源类[{}]的[{}]值获取器,使用反射访问:{}", new Object[] { owner.getName(), name, e.toString() });
+			return null;
+		}
+	}
+
+	/**
+	 * 获取生成类的类加载器,资源类的类加载器无法访问{@link Getter}时返回null
+	 * @param owner 资源类
+	 * @return
+	 */
+	private static GeneratedClassLoader getLoader(Class<?> owner) throws ClassNotFoundException {
+		ClassLoader parent = owner.getClassLoader();
+		if (parent == null || Class.forName(Getter.class.getName(), false, parent) != Getter.class) {
+			return null;
+		}
+		synchronized (LOADERS) {
+			WeakReference<GeneratedClassLoader> reference = LOADERS.get(parent);
+			GeneratedClassLoader loader = reference == null ? null : reference.get();
+			if (loader == null) {
+				// 生成类和获取器都已回收时重新创建
+				loader = new GeneratedClassLoader(parent);
+				LOADERS.put(parent, new WeakReference<GeneratedClassLoader>(loader));
+			}
+			return loader;
+		}
+	}
+
+	/**
+	 * 生成获取器类字节码
+	 */
+	private static byte[] createClass(String className, Class<?> owner, String name, Class<?> type, Method method) {
+		Class<?> iface;
+		if (type == int.class) {
+			iface = IntGetter.class;
+		} else if (type == long.class) {
+			iface = LongGetter.class;
+		} else {
+			iface = Getter.class;
+		}
+
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_6, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, "java/lang/Object",
+				new String[] { Type.getInternalName(iface) });
+
+		// 构造方法
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// Object getValue(Object)
+		mv = cw.visitMethod(ACC_PUBLIC, "getValue", "(Ljava/lang/Object;)Ljava/lang/Object;", null, null);
+		mv.visitCode();
+		loadValue(mv, owner, name, type, method);
+		if (type.isPrimitive()) {
+			Class<?> wrapper = ClassUtils.resolvePrimitiveIfNecessary(type);
+			mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(wrapper), "valueOf",
+					"(" + Type.getDescriptor(type) + ")" + Type.getDescriptor(wrapper), false);
+		}
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// int getInt(Object) / long getLong(Object)
+		if (type == int.class || type == long.class) {
+			boolean isInt = type == int.class;
+			mv = cw.visitMethod(ACC_PUBLIC, isInt ? "getInt" : "getLong",
+					isInt ? "(Ljava/lang/Object;)I" : "(Ljava/lang/Object;)J", null, null);
+			mv.visitCode();
+			loadValue(mv, owner, name, type, method);
+			mv.visitInsn(isInt ? IRETURN : LRETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * 生成读取值的指令
+	 */
+	private static void loadValue(MethodVisitor mv, Class<?> owner, String name, Class<?> type, Method method) {
+		String ownerName = Type.getInternalName(owner);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitTypeInsn(CHECKCAST, ownerName);
+		if (method == null) {
+			mv.visitFieldInsn(GETFIELD, ownerName, name, Type.getDescriptor(type));
+		} else if (owner.isInterface()) {
+			mv.visitMethodInsn(INVOKEINTERFACE, ownerName, name, Type.getMethodDescriptor(method), true);
+		} else {
+			mv.visitMethodInsn(INVOKEVIRTUAL, ownerName, name, Type.getMethodDescriptor(method), false);
+		}
+	}
+
+}
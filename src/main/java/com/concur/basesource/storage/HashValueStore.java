@@ -0,0 +1,60 @@
+package com.concur.basesource.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基于{@link HashMap}的主存储空间,用于非整数类型的主键
+ * @author frank
+ */
+final class HashValueStore<K, V> implements WritableValueStore<K, V> {
+
+	/** 资源类 */
+	private final Class<?> clz;
+	/** 标识获取器 */
+	private final Getter identifier;
+	/** 主键 - 资源实例 */
+	private final Map<K, V> values;
+
+	HashValueStore(Class<?> clz, Getter identifier, int expectedSize) {
+		this.clz = clz;
+		this.identifier = identifier;
+		this.values = new HashMap<K, V>(Math.max(16, (int) (expectedSize / 0.75f) + 1));
+	}
+
+	@Override
+	public V get(K key) {
+		return values.get(key);
+	}
+
+	@Override
+	public V getInt(int key) {
+		return values.get(Integer.valueOf(key));
+	}
+
+	@Override
+	public V getLong(long key) {
+		return values.get(Long.valueOf(key));
+	}
+
+	@Override
+	public boolean containsKey(K key) {
+		return values.containsKey(key);
+	}
+
+	@Override
+	public int size() {
+		return values.size();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V put(V value) {
+		K key = (K) identifier.getValue(value);
+		if (key == null) {
+			throw new IllegalStateException("静态资源[" + clz.getName() + "]主键标识属性不能为null");
+		}
+		return values.put(key, value);
+	}
+
+}
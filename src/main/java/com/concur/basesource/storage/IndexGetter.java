@@ -20,12 +20,53 @@ public interface IndexGetter {
 	 */
 	boolean isUnique();
 
+	/**
+	 * 是否排序索引
+	 * @return
+	 */
+	boolean isSorted();
+
+	/**
+	 * 获取索引值数量,单值索引为 1,多值索引为索引属性的数量
+	 * @return
+	 */
+	int getFieldCount();
+
+	/**
+	 * 获取指定位置的索引值类型(基本类型转换为包装类型)
+	 * @param position 索引值位置(按索引值序号排列)
+	 * @return
+	 */
+	Class<?> getKeyType(int position);
+
 	/**
 	 * 获取索引值
 	 * @param obj 静态资源实例
 	 * @return 索引值
 	 */
 	Object getValue(Object obj);
+
+	/**
+	 * 将查询值转换为索引键(单值索引)
+	 * @param value 查询值
+	 * @return 索引键
+	 */
+	Object toKey(Object value);
+
+	/**
+	 * 将查询值转换为索引键
+	 * @param values 查询值(按索引值序号排列)
+	 * @return 索引键
+	 */
+	Object toKey(Object[] values);
+
+	/**
+	 * 将查询值转换为指定位置的索引值(多值索引的前缀查询)
+	 * @param position 索引值位置(按索引值序号排列)
+	 * @param value 查询值
+	 * @return 索引值
+	 */
+	Object toKey(int position, Object value);
 	
 	/**
 	 * 获取索引排序器
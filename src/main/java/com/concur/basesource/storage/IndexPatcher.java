@@ -0,0 +1,251 @@
+package com.concur.basesource.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 索引增量更新器
+ * <p>重新加载时只重建受变化资源实例影响的索引列表,其余索引列表直接沿用当前快照中的只读列表</p>
+ * <p>重建的索引列表按加载顺序排列(存在索引排序器时再进行排序),与完整构建的结果一致</p>
+ * @author frank
+ */
+final class IndexPatcher<V> {
+
+	private static final Logger logger = LoggerFactory.getLogger(IndexPatcher.class);
+
+	/** 资源类 */
+	private final Class<?> clz;
+	/** 新的全部资源实例(按加载顺序) */
+	private final List<V> all;
+	/** 被修改或删除的原实例 */
+	private final List<V> oldRows;
+	/** 新增或修改后的实例 */
+	private final List<V> newRows;
+	/** 被修改或删除的原实例集合 */
+	private final Set<V> oldSet;
+	/** 新增或修改后的实例集合 */
+	private final Set<V> newSet;
+	/** 资源实例的加载位置(按需创建) */
+	private Map<V, Integer> positions;
+
+	/**
+	 * 构造方法
+	 * @param clz 资源类
+	 * @param all 新的全部资源实例
+	 * @param oldRows 被修改或删除的原实例
+	 * @param newRows 新增或修改后的实例
+	 */
+	IndexPatcher(Class<?> clz, List<V> all, List<V> oldRows, List<V> newRows) {
+		this.clz = clz;
+		this.all = all;
+		this.oldRows = oldRows;
+		this.newRows = newRows;
+		this.oldSet = identitySet(oldRows);
+		this.newSet = identitySet(newRows);
+	}
+
+	/**
+	 * 检查未变化的资源实例是否保持原来的加载顺序
+	 * @param previous 原来的全部资源实例
+	 * @return 顺序改变时只能完整构建索引
+	 */
+	boolean isOrderKept(List<V> previous) {
+		int i = 0;
+		int j = 0;
+		while (true) {
+			while (i < previous.size() && oldSet.contains(previous.get(i))) {
+				i++;
+			}
+			while (j < all.size() && newSet.contains(all.get(j))) {
+				j++;
+			}
+			if (i >= previous.size() || j >= all.size()) {
+				return i >= previous.size() && j >= all.size();
+			}
+			if (previous.get(i) != all.get(j)) {
+				return false;
+			}
+			i++;
+			j++;
+		}
+	}
+
+	/**
+	 * 更新索引
+	 * @param getter 索引值获取器
+	 * @param current 当前快照中的索引
+	 * @return 新的索引,未受影响的索引列表与当前快照共用
+	 */
+	Map<Object, List<V>> patchIndex(IndexGetter getter, Map<Object, List<V>> current) {
+		Map<Object, List<V>> result;
+		if (current == null) {
+			result = new HashMap<Object, List<V>>();
+		} else {
+			result = new HashMap<Object, List<V>>(current);
+		}
+		Map<Object, List<V>> added = groupBy(getter, newRows, false);
+		Set<Object> keys = new HashSet<Object>(added.keySet());
+		for (V value : oldRows) {
+			keys.add(getter.getValue(value));
+		}
+
+		for (Object key : keys) {
+			List<V> bucket = merge(result.get(key), added.get(key), getter);
+			if (bucket.isEmpty()) {
+				result.remove(key);
+			} else {
+				result.put(key, bucket);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 更新多值索引
+	 * @param getter 索引值获取器
+	 * @param current 当前快照中的多值索引
+	 * @return 新的多值索引,未受影响的第一层节点与当前快照共用
+	 */
+	PrefixIndex<V> patchPrefix(IndexGetter getter, PrefixIndex<V> current) {
+		PrefixIndex<V> result;
+		if (current == null) {
+			result = new PrefixIndex<V>();
+		} else {
+			result = current.copy();
+		}
+		Map<Object, List<V>> added = groupBy(getter, newRows, true);
+		Set<Object> keys = new HashSet<Object>(added.keySet());
+		for (V value : oldRows) {
+			keys.add(((CompositeKey) getter.getValue(value)).get(0));
+		}
+
+		for (Object key : keys) {
+			List<V> rows = merge(result.getRows(key), added.get(key), getter);
+			result.replace(key, rows, getter);
+		}
+		return result;
+	}
+
+	/**
+	 * 更新唯一值索引
+	 * @param getter 索引值获取器
+	 * @param current 当前快照中的唯一值索引
+	 * @return 新的唯一值索引
+	 */
+	Map<Object, V> patchUnique(IndexGetter getter, Map<Object, V> current) {
+		Map<Object, V> result;
+		if (current == null) {
+			result = new HashMap<Object, V>();
+		} else {
+			result = new HashMap<Object, V>(current);
+		}
+		for (V value : oldRows) {
+			Object key = getter.getValue(value);
+			if (result.get(key) == value) {
+				result.remove(key);
+			}
+		}
+		for (V value : newRows) {
+			Object key = getter.getValue(value);
+			if (result.put(key, value) != null) {
+				FormattingTuple message = MessageFormatter.arrayFormat("[{}]资源的唯一索引[{}]的值[{}]重复", new Object[] {
+						clz.getName(), getter.getName(), key });
+				logger.debug(message.getMessage());
+				throw new RuntimeException(message.getMessage());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 合并索引列表:去掉被修改或删除的原实例,加入新增或修改后的实例
+	 * @param current 当前的索引列表
+	 * @param added 加入的实例
+	 * @param getter 索引值获取器
+	 * @return 按加载顺序(及索引排序器)排列的新列表
+	 */
+	@SuppressWarnings("unchecked")
+	private List<V> merge(List<V> current, List<V> added, IndexGetter getter) {
+		List<V> result = new ArrayList<V>();
+		if (current != null) {
+			for (V value : current) {
+				if (!oldSet.contains(value)) {
+					result.add(value);
+				}
+			}
+		}
+		if (added != null) {
+			result.addAll(added);
+		}
+		if (result.size() > 1) {
+			sortByPosition(result);
+			if (getter.hasComparator()) {
+				Collections.sort(result, getter.getComparator());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 按索引值分组
+	 * @param getter 索引值获取器
+	 * @param rows 资源实例
+	 * @param first 是否只使用多值索引的第一个索引值
+	 * @return
+	 */
+	private Map<Object, List<V>> groupBy(IndexGetter getter, List<V> rows, boolean first) {
+		Map<Object, List<V>> result = new HashMap<Object, List<V>>();
+		for (V value : rows) {
+			Object key = getter.getValue(value);
+			if (first) {
+				key = ((CompositeKey) key).get(0);
+			}
+			List<V> list = result.get(key);
+			if (list == null) {
+				list = new ArrayList<V>();
+				result.put(key, list);
+			}
+			list.add(value);
+		}
+		return result;
+	}
+
+	/**
+	 * 按加载顺序排序
+	 * @param rows 资源实例
+	 */
+	private void sortByPosition(List<V> rows) {
+		if (positions == null) {
+			positions = new IdentityHashMap<V, Integer>(all.size());
+			for (int i = 0; i < all.size(); i++) {
+				positions.put(all.get(i), i);
+			}
+		}
+		final Map<V, Integer> positions = this.positions;
+		Collections.sort(rows, new Comparator<V>() {
+			@Override
+			public int compare(V o1, V o2) {
+				return positions.get(o1).compareTo(positions.get(o2));
+			}
+		});
+	}
+
+	private static <V> Set<V> identitySet(List<V> rows) {
+		Set<V> result = Collections.newSetFromMap(new IdentityHashMap<V, Boolean>(rows.size()));
+		result.addAll(rows);
+		return result;
+	}
+
+}
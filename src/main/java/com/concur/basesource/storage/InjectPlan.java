@@ -0,0 +1,65 @@
+package com.concur.basesource.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+import org.springframework.context.ApplicationContext;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+
+/**
+ * 资源实例注入计划
+ * <p>创建时从 Spring 容器获取全部注入值,之后注入每个资源实例时只设置属性值,不再查找容器</p>
+ * <p>每次加载创建一次,加载期间容器中的注入值不会变化</p>
+ * @author frank
+ */
+final class InjectPlan {
+
+	private static final Logger logger = LoggerFactory.getLogger(InjectPlan.class);
+
+	/** 资源类 */
+	private final Class<?> clz;
+	/** 注入属性 */
+	private final Field[] fields;
+	/** 注入值 */
+	private final Object[] values;
+
+	/**
+	 * 构造方法
+	 * @param clz 资源类
+	 * @param injects 非静态属性注入定义
+	 * @param applicationContext 注入值所在的容器
+	 */
+	InjectPlan(Class<?> clz, Collection<InjectDefinition> injects, ApplicationContext applicationContext) {
+		this.clz = clz;
+		this.fields = new Field[injects.size()];
+		this.values = new Object[injects.size()];
+		int i = 0;
+		for (InjectDefinition inject : injects) {
+			fields[i] = inject.getField();
+			values[i] = inject.getValue(applicationContext);
+			i++;
+		}
+	}
+
+	/**
+	 * 注入资源实例
+	 * @param instance 资源实例
+	 * @throws IllegalStateException 无法设置属性值时抛出(重新加载失败,保留当前快照)
+	 */
+	void inject(Object instance) {
+		for (int i = 0; i < fields.length; i++) {
+			try {
+				fields[i].set(instance, values[i]);
+			} catch (Exception e) {
+				FormattingTuple message = MessageFormatter.format("无法注入静态资源[{}]的[{}]属性值", clz.getName(),
+						fields[i].getName());
+				logger.error(message.getMessage(), e);
+				throw new IllegalStateException(message.getMessage(), e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.concur.basesource.storage;
+
+/**
+ * int 类型值获取接口,获取值时不需要装箱
+ * @author frank
+ */
+public interface IntGetter extends Getter {
+
+	/**
+	 * 获取 int 值
+	 * @param value 静态资源实例
+	 * @return 值
+	 */
+	int getInt(Object value);
+
+}
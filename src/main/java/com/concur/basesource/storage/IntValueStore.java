@@ -0,0 +1,147 @@
+package com.concur.basesource.storage;
+
+/**
+ * int 主键的主存储空间
+ * <p>开放寻址(线性探测)散列表,主键以 int 数组保存,查询时不需要装箱</p>
+ * @author frank
+ */
+final class IntValueStore<K, V> extends OpenHashValueStore<K, V> {
+
+	/** 标识获取器 */
+	private final IntGetter identifier;
+	/** 主键表 */
+	private int[] keys;
+	/** 最小主键 */
+	private int minKey = Integer.MAX_VALUE;
+	/** 最大主键 */
+	private int maxKey = Integer.MIN_VALUE;
+
+	IntValueStore(IntGetter identifier, int expectedSize) {
+		this.identifier = identifier;
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	@Override
+	public V get(K key) {
+		if (!(key instanceof Integer)) {
+			return null;
+		}
+		return getInt(((Integer) key).intValue());
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V getInt(int key) {
+		return (V) values[indexOf(key)];
+	}
+
+	@Override
+	public V getLong(long key) {
+		if (key < Integer.MIN_VALUE || key > Integer.MAX_VALUE) {
+			return null;
+		}
+		return getInt((int) key);
+	}
+
+	@Override
+	public V put(V value) {
+		return putInt(identifier.getInt(value), value);
+	}
+
+	/**
+	 * 添加资源实例
+	 * @param key 主键
+	 * @param value 资源实例
+	 * @return 相同主键的旧实例
+	 */
+	@SuppressWarnings("unchecked")
+	V putInt(int key, V value) {
+		int i = indexOf(key);
+		Object prev = values[i];
+		values[i] = value;
+		if (prev != null) {
+			return (V) prev;
+		}
+		keys[i] = key;
+		if (key < minKey) {
+			minKey = key;
+		}
+		if (key > maxKey) {
+			maxKey = key;
+		}
+		inserted();
+		return null;
+	}
+
+	/**
+	 * 转换为数组存储空间
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	ArrayValueStore<K, V> toArrayStore() {
+		ArrayValueStore<K, V> result = new ArrayValueStore<K, V>(identifier, minKey, (int) getSpan());
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				result.putInt(keys[i], (V) values[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 获取主键跨度(最大主键 - 最小主键 + 1)
+	 * @return 没有资源实例时返回0
+	 */
+	long getSpan() {
+		if (size() == 0) {
+			return 0;
+		}
+		return (long) maxKey - minKey + 1;
+	}
+
+	@Override
+	void allocateKeys(int capacity) {
+		this.keys = new int[capacity];
+	}
+
+	@Override
+	void rehash(int capacity) {
+		int[] oldKeys = this.keys;
+		Object[] oldValues = this.values;
+		allocate(capacity);
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				int j = indexOf(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * 探测主键所在的位置
+	 * @param key 主键
+	 * @return 主键不存在时返回应写入的空位
+	 */
+	private int indexOf(int key) {
+		int[] keys = this.keys;
+		Object[] values = this.values;
+		int mask = this.mask;
+		int i = hash(key) & mask;
+		while (values[i] != null && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * 打散连续主键,避免线性探测聚集
+	 * @param key 主键
+	 * @return
+	 */
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
@@ -0,0 +1,191 @@
+package com.concur.basesource.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * 存储空间监听器注册表
+ * <p>按主键、索引值分别登记监听器,重新加载后只挑选受影响的监听器,去重后批量通知;
+ * 设置了通知执行器时在执行器中通知,否则在加载线程中通知</p>
+ * <p>某个监听器抛出异常时仍然通知其余监听器,全部通知完成后抛出第一个异常(在加载线程中通知时重新加载失败)</p>
+ * @author frank
+ */
+final class ListenerRegistry<K, V> {
+
+	private static final Logger logger = LoggerFactory.getLogger(ListenerRegistry.class);
+
+	/** 监听整个存储空间的监听器 */
+	private final List<StorageListener<K, V>> listeners = new CopyOnWriteArrayList<StorageListener<K, V>>();
+	/** 主键 - 监听器 */
+	private final ConcurrentMap<K, List<StorageListener<K, V>>> keys =
+			new ConcurrentHashMap<K, List<StorageListener<K, V>>>();
+	/** 索引名 - 索引键 - 监听器 */
+	private final ConcurrentMap<String, ConcurrentMap<Object, List<StorageListener<K, V>>>> indexs =
+			new ConcurrentHashMap<String, ConcurrentMap<Object, List<StorageListener<K, V>>>>();
+	/** 通知执行器,为null时在加载线程中通知 */
+	private volatile Executor executor;
+
+	void add(StorageListener<K, V> listener) {
+		listeners.add(listener);
+	}
+
+	void add(K key, StorageListener<K, V> listener) {
+		load(keys, key).add(listener);
+	}
+
+	void addIndex(String name, Object indexKey, StorageListener<K, V> listener) {
+		ConcurrentMap<Object, List<StorageListener<K, V>>> index = indexs.get(name);
+		if (index == null) {
+			ConcurrentMap<Object, List<StorageListener<K, V>>> created =
+					new ConcurrentHashMap<Object, List<StorageListener<K, V>>>();
+			index = indexs.putIfAbsent(name, created);
+			if (index == null) {
+				index = created;
+			}
+		}
+		load(index, indexKey).add(listener);
+	}
+
+	/**
+	 * 移除监听器(包括按主键和索引值登记的)
+	 * @param listener 监听器
+	 */
+	void remove(StorageListener<K, V> listener) {
+		listeners.remove(listener);
+		for (List<StorageListener<K, V>> list : keys.values()) {
+			list.remove(listener);
+		}
+		for (Map<Object, List<StorageListener<K, V>>> index : indexs.values()) {
+			for (List<StorageListener<K, V>> list : index.values()) {
+				list.remove(listener);
+			}
+		}
+	}
+
+	void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * 获取已登记监听器的索引名
+	 * @return
+	 */
+	Set<String> getIndexNames() {
+		return indexs.keySet();
+	}
+
+	/**
+	 * 通知受影响的监听器
+	 * @param storage 存储空间
+	 * @param changes 变更集合
+	 * @param indexKeys 索引名 - 变化涉及的索引键(只包含{@link #getIndexNames()}中的索引)
+	 */
+	void fire(final Storage<K, V> storage, final ChangeSet<K> changes, Map<String, Set<Object>> indexKeys) {
+		final Set<StorageListener<K, V>> targets = new LinkedHashSet<StorageListener<K, V>>(listeners);
+		if (!changes.isEmpty()) {
+			collectKeys(changes, targets);
+			for (Entry<String, Set<Object>> entry : indexKeys.entrySet()) {
+				Map<Object, List<StorageListener<K, V>>> index = indexs.get(entry.getKey());
+				if (index != null) {
+					for (Object indexKey : entry.getValue()) {
+						addAll(targets, index.get(indexKey));
+					}
+				}
+			}
+		}
+		if (targets.isEmpty()) {
+			return;
+		}
+		Executor current = this.executor;
+		if (current == null) {
+			notify(storage, changes, targets);
+			return;
+		}
+		current.execute(new Runnable() {
+			@Override
+			public void run() {
+				ListenerRegistry.this.notify(storage, changes, targets);
+			}
+		});
+	}
+
+	/**
+	 * 挑选按主键登记的受影响监听器,从数量较少的一方开始遍历
+	 */
+	private void collectKeys(ChangeSet<K> changes, Set<StorageListener<K, V>> targets) {
+		if (keys.isEmpty()) {
+			return;
+		}
+		if (keys.size() < changes.size()) {
+			for (Entry<K, List<StorageListener<K, V>>> entry : keys.entrySet()) {
+				if (changes.isChanged(entry.getKey())) {
+					targets.addAll(entry.getValue());
+				}
+			}
+			return;
+		}
+		collectKeys(changes.getAdded(), targets);
+		collectKeys(changes.getUpdated(), targets);
+		collectKeys(changes.getRemoved(), targets);
+	}
+
+	private void collectKeys(Collection<K> changed, Set<StorageListener<K, V>> targets) {
+		for (K key : changed) {
+			addAll(targets, keys.get(key));
+		}
+	}
+
+	/**
+	 * 通知监听器,全部通知完成后抛出第一个异常
+	 */
+	private void notify(Storage<K, V> storage, ChangeSet<K> changes, Set<StorageListener<K, V>> targets) {
+		List<RuntimeException> errors = new ArrayList<RuntimeException>(0);
+		for (StorageListener<K, V> listener : targets) {
+			try {
+				listener.onChange(storage, changes);
+			} catch (RuntimeException e) {
+				logger.error("静态资源[{}]的监听器[{}]处理变更时出现异常", new Object[]{
+					storage.getClz().getSimpleName(), listener, e});
+				errors.add(e);
+			}
+		}
+		if (errors.isEmpty()) {
+			return;
+		}
+		if (errors.size() > 1) {
+			logger.error("静态资源[{}]共有{}个监听器处理变更失败", storage.getClz().getSimpleName(), errors.size());
+		}
+		throw errors.get(0);
+	}
+
+	private static <T> void addAll(Set<T> targets, List<T> list) {
+		if (list != null) {
+			targets.addAll(list);
+		}
+	}
+
+	private static <T, L> List<L> load(ConcurrentMap<T, List<L>> map, T key) {
+		List<L> result = map.get(key);
+		if (result == null) {
+			List<L> created = new CopyOnWriteArrayList<L>();
+			result = map.putIfAbsent(key, created);
+			if (result == null) {
+				result = created;
+			}
+		}
+		return result;
+	}
+
+}
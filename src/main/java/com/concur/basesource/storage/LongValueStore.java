@@ -0,0 +1,108 @@
+package com.concur.basesource.storage;
+
+/**
+ * long 主键的主存储空间
+ * <p>开放寻址(线性探测)散列表,主键以 long 数组保存,查询时不需要装箱</p>
+ * @author frank
+ */
+final class LongValueStore<K, V> extends OpenHashValueStore<K, V> {
+
+	/** 标识获取器 */
+	private final LongGetter identifier;
+	/** 主键表 */
+	private long[] keys;
+
+	LongValueStore(LongGetter identifier, int expectedSize) {
+		this.identifier = identifier;
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	@Override
+	public V get(K key) {
+		if (!(key instanceof Long)) {
+			return null;
+		}
+		return getLong(((Long) key).longValue());
+	}
+
+	@Override
+	public V getInt(int key) {
+		return getLong(key);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V getLong(long key) {
+		return (V) values[indexOf(key)];
+	}
+
+	@Override
+	public V put(V value) {
+		return putLong(identifier.getLong(value), value);
+	}
+
+	/**
+	 * 添加资源实例
+	 * @param key 主键
+	 * @param value 资源实例
+	 * @return 相同主键的旧实例
+	 */
+	@SuppressWarnings("unchecked")
+	V putLong(long key, V value) {
+		int i = indexOf(key);
+		Object prev = values[i];
+		values[i] = value;
+		if (prev != null) {
+			return (V) prev;
+		}
+		keys[i] = key;
+		inserted();
+		return null;
+	}
+
+	@Override
+	void allocateKeys(int capacity) {
+		this.keys = new long[capacity];
+	}
+
+	@Override
+	void rehash(int capacity) {
+		long[] oldKeys = this.keys;
+		Object[] oldValues = this.values;
+		allocate(capacity);
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				int j = indexOf(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * 探测主键所在的位置
+	 * @param key 主键
+	 * @return 主键不存在时返回应写入的空位
+	 */
+	private int indexOf(long key) {
+		long[] keys = this.keys;
+		Object[] values = this.values;
+		int mask = this.mask;
+		int i = hash(key) & mask;
+		while (values[i] != null && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * 打散连续主键,避免线性探测聚集
+	 * @param key 主键
+	 * @return
+	 */
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+}
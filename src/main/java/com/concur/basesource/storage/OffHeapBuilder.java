@@ -0,0 +1,247 @@
+package com.concur.basesource.storage;
+
+import com.concur.basesource.reader.BinaryWriter;
+import com.concur.unity.utils.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * 堆外存储空间的快照构建器
+ * <p>资源实例通过{@link #add(Object)}逐个编码到{@link BinaryWriter}的列缓冲区,主键和索引只记录行号,不保留资源实例;
+ * 全部添加后通过{@link #build(InjectPlan)}生成只读的快照</p>
+ * @author frank
+ */
+final class OffHeapBuilder<K, V> {
+
+	private static final Logger logger = LoggerFactory.getLogger(OffHeapBuilder.class);
+
+	/** 资源类 */
+	private final Class<V> clz;
+	/** 资源文件名(用于日志) */
+	private final String fileName;
+	/** 标识获取器 */
+	private final Getter identifier;
+	/** 索引获取器集合 */
+	private final Map<String, IndexGetter> indexGetters;
+	/** 列编码器 */
+	private final BinaryWriter writer;
+
+	/** int/long 主键(下标为行号),其他类型主键时为null */
+	private long[] keys;
+	/** 主键 - 行号,int/long 主键时为null */
+	private final Map<Object, Integer> rowMap;
+	/** 索引名 - 索引值 - 行号 */
+	private final Map<String, Map<Object, List<Integer>>> indexs = new HashMap<String, Map<Object, List<Integer>>>();
+	/** 多值索引名 - 保存行号的前缀树 */
+	private final Map<String, PrefixIndex<Integer>> prefixes = new HashMap<String, PrefixIndex<Integer>>();
+	/** 唯一索引名 - 索引值 - 行号 */
+	private final Map<String, Map<Object, Integer>> uniques = new HashMap<String, Map<Object, Integer>>();
+	/** 排序索引名 - 各行的索引键(下标为行号) */
+	private final Map<String, List<Object>> sortedKeys = new HashMap<String, List<Object>>();
+
+	/**
+	 * 构造方法
+	 * @param clz 资源类
+	 * @param fileName 资源文件名(用于日志)
+	 * @param identifier 标识获取器
+	 * @param indexGetters 索引获取器集合
+	 * @param expectedSize 预期数量
+	 */
+	OffHeapBuilder(Class<V> clz, String fileName, Getter identifier, Map<String, IndexGetter> indexGetters,
+				   int expectedSize) {
+		this.clz = clz;
+		this.fileName = fileName;
+		this.identifier = identifier;
+		this.indexGetters = indexGetters;
+		this.writer = new BinaryWriter(clz);
+		if (identifier instanceof IntGetter || identifier instanceof LongGetter) {
+			this.keys = new long[Math.max(expectedSize, 16)];
+			this.rowMap = null;
+		} else {
+			this.rowMap = new HashMap<Object, Integer>(expectedSize * 4 / 3 + 1);
+		}
+		for (IndexGetter getter : indexGetters.values()) {
+			if (getter.isSorted()) {
+				sortedKeys.put(getter.getName(), new ArrayList<Object>(expectedSize));
+			}
+		}
+	}
+
+	/**
+	 * 编码资源实例,记录主键和各索引的行号
+	 * @param value 资源实例(编码后不再引用)
+	 * @throws IllegalStateException 主键重复时抛出
+	 * @throws RuntimeException 唯一索引值重复时抛出
+	 */
+	void add(V value) {
+		int row = writer.add(value);
+		if (rowMap == null) {
+			if (row == keys.length) {
+				keys = Arrays.copyOf(keys, keys.length << 1);
+			}
+			keys[row] = identifier instanceof IntGetter ? ((IntGetter) identifier).getInt(value)
+					: ((LongGetter) identifier).getLong(value);
+		} else if (rowMap.put(identifier.getValue(value), row) != null) {
+			FormattingTuple message = MessageFormatter.arrayFormat("静态数据唯一标识重复[{},{}]内容:[{}]",
+					new Object[]{clz, fileName, JsonUtils.object2JsonString(value)});
+			logger.error(message.getMessage());
+			throw new IllegalStateException(message.getMessage());
+		}
+
+		for (IndexGetter getter : indexGetters.values()) {
+			String name = getter.getName();
+			Object indexKey = getter.getValue(value);
+			if (getter.isSorted()) {
+				sortedKeys.get(name).add(indexKey);
+			}
+			if (getter.isUnique()) {
+				Map<Object, Integer> index = uniques.get(name);
+				if (index == null) {
+					index = new HashMap<Object, Integer>();
+					uniques.put(name, index);
+				}
+				if (index.put(indexKey, row) != null) {
+					FormattingTuple message = MessageFormatter.arrayFormat("[{}]资源的唯一索引[{}]的值[{}]重复", new Object[] {
+						clz.getName(), name, indexKey });
+					logger.debug(message.getMessage());
+					throw new RuntimeException(message.getMessage());
+				}
+			} else if (indexKey instanceof CompositeKey) {
+				PrefixIndex<Integer> index = prefixes.get(name);
+				if (index == null) {
+					index = new PrefixIndex<Integer>();
+					prefixes.put(name, index);
+				}
+				index.add((CompositeKey) indexKey, row);
+			} else {
+				Map<Object, List<Integer>> index = indexs.get(name);
+				if (index == null) {
+					index = new HashMap<Object, List<Integer>>();
+					indexs.put(name, index);
+				}
+				List<Integer> rows = index.get(indexKey);
+				if (rows == null) {
+					rows = new ArrayList<Integer>();
+					index.put(indexKey, rows);
+				}
+				rows.add(row);
+			}
+		}
+	}
+
+	/**
+	 * 完成编码,生成只读的快照(调用后不能再添加)
+	 * @param injects 注入计划
+	 * @return
+	 * @throws IllegalStateException 主键重复时抛出
+	 */
+	StorageSnapshot<K, V> build(InjectPlan injects) {
+		OffHeapTable<V> table = new OffHeapTable<V>(clz, writer.toDirectBuffer(), injects);
+		ValueStore<K, V> values = buildValueStore(table);
+		// 索引排序器比较的资源实例,每行只解码一次
+		Object[] decoded = hasComparator() ? table.decodeAll() : null;
+
+		Map<String, Map<Object, List<V>>> rowIndexs = new HashMap<String, Map<Object, List<V>>>(indexs.size());
+		for (Entry<String, Map<Object, List<Integer>>> entry : indexs.entrySet()) {
+			Comparator<Integer> comparator = getRowComparator(entry.getKey(), decoded);
+			Map<Object, List<V>> index = new HashMap<Object, List<V>>(entry.getValue().size() * 4 / 3 + 1);
+			for (Entry<Object, List<Integer>> bucket : entry.getValue().entrySet()) {
+				List<Integer> rows = bucket.getValue();
+				if (comparator != null) {
+					Collections.sort(rows, comparator);
+				}
+				index.put(bucket.getKey(), table.toRows(toArray(rows)));
+			}
+			rowIndexs.put(entry.getKey(), index);
+		}
+		Map<String, PrefixIndex<V>> rowPrefixes = new HashMap<String, PrefixIndex<V>>(prefixes.size());
+		for (Entry<String, PrefixIndex<Integer>> entry : prefixes.entrySet()) {
+			Comparator<Integer> comparator = getRowComparator(entry.getKey(), decoded);
+			if (comparator != null) {
+				entry.getValue().sort(comparator);
+			}
+			rowPrefixes.put(entry.getKey(), PrefixIndex.toRows(entry.getValue(), table));
+		}
+		Map<String, Map<Object, V>> rowUniques = new HashMap<String, Map<Object, V>>(uniques.size());
+		for (Entry<String, Map<Object, Integer>> entry : uniques.entrySet()) {
+			rowUniques.put(entry.getKey(), table.toRows(entry.getValue()));
+		}
+		Map<String, SortedIndex<V>> sorteds = new HashMap<String, SortedIndex<V>>(sortedKeys.size());
+		for (Entry<String, List<Object>> entry : sortedKeys.entrySet()) {
+			sorteds.put(entry.getKey(), SortedIndex.build(entry.getValue().toArray(),
+					getRowComparator(entry.getKey(), decoded), table));
+		}
+		return new StorageSnapshot<K, V>(values, table.getAll(), rowIndexs, rowPrefixes, rowUniques, sorteds);
+	}
+
+	/**
+	 * 创建主存储空间,int/long 主键按升序排列后二分查找
+	 */
+	private ValueStore<K, V> buildValueStore(OffHeapTable<V> table) {
+		if (rowMap != null) {
+			return new OffHeapValueStore<K, V>(table, rowMap);
+		}
+		int size = table.size();
+		long[] sorted = Arrays.copyOf(keys, size);
+		Arrays.sort(sorted);
+		for (int i = 1; i < size; i++) {
+			if (sorted[i] == sorted[i - 1]) {
+				FormattingTuple message = MessageFormatter.arrayFormat("静态数据唯一标识重复[{},{}]主键:[{}]",
+						new Object[]{clz, fileName, sorted[i]});
+				logger.error(message.getMessage());
+				throw new IllegalStateException(message.getMessage());
+			}
+		}
+		int[] rows = new int[size];
+		for (int row = 0; row < size; row++) {
+			rows[Arrays.binarySearch(sorted, keys[row])] = row;
+		}
+		return new OffHeapValueStore<K, V>(table, sorted, rows);
+	}
+
+	/**
+	 * 是否有索引使用索引排序器
+	 */
+	private boolean hasComparator() {
+		for (IndexGetter getter : indexGetters.values()) {
+			if (getter.hasComparator()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 获取索引的按行号比较的排序器
+	 * @param name 索引名
+	 * @param decoded 已解码的资源实例(下标为行号)
+	 * @return 没有索引排序器时返回null
+	 */
+	private Comparator<Integer> getRowComparator(String name, Object[] decoded) {
+		IndexGetter getter = indexGetters.get(name);
+		if (!getter.hasComparator()) {
+			return null;
+		}
+		return OffHeapTable.rowComparator(getter.getComparator(), decoded);
+	}
+
+	private static int[] toArray(List<Integer> rows) {
+		int[] result = new int[rows.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = rows.get(i);
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,190 @@
+package com.concur.basesource.storage;
+
+import com.concur.basesource.reader.BinaryTable;
+import com.concur.basesource.reader.BinaryWriter;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * 堆外资源表
+ * <p>资源实例按列编码保存在直接缓冲区中(格式与二进制快照相同),按行号读取时创建新的资源实例并注入 Spring 容器的内容</p>
+ * <p>索引只保存行号,通过{@link #toRows(int[])}转换为按需创建实例的只读列表</p>
+ * @author frank
+ */
+final class OffHeapTable<V> {
+
+	/** 编码后的资源实例 */
+	private final BinaryTable<V> table;
+	/** 注入计划(构建时获取注入值) */
+	private final InjectPlan injects;
+	/** 全部资源实例(按加载顺序) */
+	private final List<V> all;
+
+	/**
+	 * 构造方法
+	 * @param clz 资源类
+	 * @param buffer 编码完成的资源实例(见{@link BinaryWriter#toDirectBuffer()})
+	 * @param injects 注入计划
+	 */
+	OffHeapTable(Class<V> clz, ByteBuffer buffer, InjectPlan injects) {
+		this.table = new BinaryTable<V>(buffer, clz, clz.getName(), false);
+		this.injects = injects;
+		this.all = new RowList<V>(this, null);
+	}
+
+	/**
+	 * 资源实例数量
+	 * @return
+	 */
+	int size() {
+		return table.size();
+	}
+
+	/**
+	 * 创建指定行的资源实例
+	 * @param row 行号
+	 * @return 每次调用都返回新的实例
+	 * @throws IllegalStateException 无法注入属性值时抛出
+	 */
+	V get(int row) {
+		V result = table.get(row);
+		injects.inject(result);
+		return result;
+	}
+
+	/**
+	 * 解码全部行的资源实例,不注入(构建索引时排序使用)
+	 * @return 下标为行号
+	 */
+	Object[] decodeAll() {
+		Object[] result = new Object[table.size()];
+		for (int row = 0; row < result.length; row++) {
+			result[row] = table.get(row);
+		}
+		return result;
+	}
+
+	/**
+	 * 创建按行号比较的排序器,比较已解码的资源实例
+	 * @param comparator 资源实例的排序器
+	 * @param decoded 已解码的资源实例(见{@link #decodeAll()})
+	 * @return
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	static Comparator<Integer> rowComparator(final Comparator comparator, final Object[] decoded) {
+		return new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return comparator.compare(decoded[o1], decoded[o2]);
+			}
+		};
+	}
+
+	/**
+	 * 获取全部资源实例
+	 * @return 按加载顺序的只读列表
+	 */
+	List<V> getAll() {
+		return all;
+	}
+
+	/**
+	 * 将行号转换为按需创建实例的只读列表
+	 * @param rows 行号(不会复制,调用后不能再修改)
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	List<V> toRows(int[] rows) {
+		if (rows.length == 0) {
+			return Collections.EMPTY_LIST;
+		}
+		return new RowList<V>(this, rows);
+	}
+
+	/**
+	 * 将唯一索引值 - 行号转换为按需创建实例的只读索引
+	 * @param rows 唯一索引值 - 行号(不会复制,调用后不能再修改)
+	 * @return
+	 */
+	Map<Object, V> toRows(Map<Object, Integer> rows) {
+		return new RowMap<V>(this, rows);
+	}
+
+	/**
+	 * 只保存行号的只读列表,读取元素时创建资源实例
+	 */
+	private static class RowList<V> extends AbstractList<V> implements RandomAccess {
+
+		private final OffHeapTable<V> table;
+		/** 行号,为null时表示全部行 */
+		private final int[] rows;
+
+		RowList(OffHeapTable<V> table, int[] rows) {
+			this.table = table;
+			this.rows = rows;
+		}
+
+		@Override
+		public V get(int index) {
+			if (rows == null) {
+				return table.get(index);
+			}
+			return table.get(rows[index]);
+		}
+
+		@Override
+		public int size() {
+			return rows == null ? table.size() : rows.length;
+		}
+	}
+
+	/**
+	 * 只保存行号的只读唯一索引,读取值时创建资源实例
+	 */
+	private static class RowMap<V> extends AbstractMap<Object, V> {
+
+		private final OffHeapTable<V> table;
+		/** 唯一索引值 - 行号 */
+		private final Map<Object, Integer> rows;
+
+		RowMap(OffHeapTable<V> table, Map<Object, Integer> rows) {
+			this.table = table;
+			this.rows = rows;
+		}
+
+		@Override
+		public V get(Object key) {
+			Integer row = rows.get(key);
+			return row == null ? null : table.get(row);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return rows.containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			return rows.size();
+		}
+
+		@Override
+		public Set<Map.Entry<Object, V>> entrySet() {
+			Set<Map.Entry<Object, V>> result = new LinkedHashSet<Map.Entry<Object, V>>(rows.size() * 4 / 3 + 1);
+			for (Map.Entry<Object, Integer> entry : rows.entrySet()) {
+				result.add(new SimpleImmutableEntry<Object, V>(entry.getKey(), table.get(entry.getValue())));
+			}
+			return Collections.unmodifiableSet(result);
+		}
+	}
+
+}
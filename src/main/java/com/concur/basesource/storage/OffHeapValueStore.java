@@ -0,0 +1,128 @@
+package com.concur.basesource.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * 堆外主存储空间
+ * <p>资源实例保存在{@link OffHeapTable}中,int/long 主键以有序数组保存(二分查找),其余主键使用 主键 - 行号 散列表</p>
+ * <p>只读(没有写入方法,由{@link OffHeapBuilder}构建),每次查询都返回新创建的资源实例</p>
+ * @author frank
+ */
+final class OffHeapValueStore<K, V> implements ValueStore<K, V> {
+
+	/** 堆外资源表 */
+	private final OffHeapTable<V> table;
+	/** 有序的 int/long 主键,其他类型主键时为null */
+	private final long[] keys;
+	/** 与有序主键对应的行号 */
+	private final int[] rows;
+	/** 主键 - 行号,int/long 主键时为null */
+	private final Map<Object, Integer> rowMap;
+
+	/**
+	 * 构造 int/long 主键的存储空间
+	 * @param table 堆外资源表
+	 * @param keys 升序排列的主键
+	 * @param rows 与主键对应的行号
+	 */
+	OffHeapValueStore(OffHeapTable<V> table, long[] keys, int[] rows) {
+		this.table = table;
+		this.keys = keys;
+		this.rows = rows;
+		this.rowMap = null;
+	}
+
+	/**
+	 * 构造其他类型主键的存储空间
+	 * @param table 堆外资源表
+	 * @param rowMap 主键 - 行号
+	 */
+	OffHeapValueStore(OffHeapTable<V> table, Map<Object, Integer> rowMap) {
+		this.table = table;
+		this.keys = null;
+		this.rows = null;
+		this.rowMap = rowMap;
+	}
+
+	@Override
+	public V get(K key) {
+		int row = rowOf(key);
+		return row < 0 ? null : table.get(row);
+	}
+
+	@Override
+	public V getInt(int key) {
+		if (keys == null) {
+			return getRow(rowMap.get(Integer.valueOf(key)));
+		}
+		return getLong(key);
+	}
+
+	@Override
+	public V getLong(long key) {
+		if (keys == null) {
+			return getRow(rowMap.get(Long.valueOf(key)));
+		}
+		int index = Arrays.binarySearch(keys, key);
+		return index < 0 ? null : table.get(rows[index]);
+	}
+
+	@Override
+	public boolean containsKey(K key) {
+		return rowOf(key) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return table.size();
+	}
+
+	/**
+	 * 获取主键不在指定存储空间中的资源实例,只为这些主键创建资源实例(重新加载时计算已删除的资源)
+	 * @param other 使用相同标识获取器构建的存储空间
+	 * @return
+	 */
+	List<V> getMissing(OffHeapValueStore<K, ?> other) {
+		List<V> result = new ArrayList<V>();
+		if (keys == null) {
+			for (Entry<Object, Integer> entry : rowMap.entrySet()) {
+				if (other.rowOf(entry.getKey()) < 0) {
+					result.add(table.get(entry.getValue()));
+				}
+			}
+			return result;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			if (Arrays.binarySearch(other.keys, keys[i]) < 0) {
+				result.add(table.get(rows[i]));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 获取主键对应的行号
+	 * @param key 主键
+	 * @return 不存在时返回-1
+	 */
+	private int rowOf(Object key) {
+		if (keys == null) {
+			Integer row = rowMap.get(key);
+			return row == null ? -1 : row;
+		}
+		if (!(key instanceof Integer) && !(key instanceof Long)) {
+			return -1;
+		}
+		int index = Arrays.binarySearch(keys, ((Number) key).longValue());
+		return index < 0 ? -1 : rows[index];
+	}
+
+	private V getRow(Integer row) {
+		return row == null ? null : table.get(row);
+	}
+
+}
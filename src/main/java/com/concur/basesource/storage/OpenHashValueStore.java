@@ -0,0 +1,78 @@
+package com.concur.basesource.storage;
+
+/**
+ * 基本类型主键的主存储空间
+ * <p>开放寻址(线性探测)散列表的公共部分:资源实例表、容量和扩容;主键数组、探测和散列由子类按主键类型实现,
+ * 查询时不需要装箱</p>
+ * @author frank
+ */
+abstract class OpenHashValueStore<K, V> implements WritableValueStore<K, V> {
+
+	/** 最大装载因子 */
+	private static final float LOAD_FACTOR = 0.5f;
+
+	/** 资源实例表,null 表示空位 */
+	Object[] values;
+	/** 下标掩码 */
+	int mask;
+	/** 扩容阈值 */
+	private int threshold;
+	/** 资源实例数量 */
+	private int size;
+
+	@Override
+	public boolean containsKey(K key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 分配指定容量的主键表和资源实例表
+	 * @param capacity 容量(2的幂)
+	 */
+	final void allocate(int capacity) {
+		allocateKeys(capacity);
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+		this.threshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	/**
+	 * 在空位写入新主键后调用,超过装载因子时扩容
+	 */
+	final void inserted() {
+		if (++size > threshold) {
+			rehash(values.length << 1);
+		}
+	}
+
+	/**
+	 * 分配主键表
+	 * @param capacity 容量
+	 */
+	abstract void allocateKeys(int capacity);
+
+	/**
+	 * 扩容并重新放置全部主键
+	 * @param capacity 新容量
+	 */
+	abstract void rehash(int capacity);
+
+	/**
+	 * 计算容量(2的幂)
+	 * @param expectedSize 预期数量
+	 * @return
+	 */
+	static int tableSizeFor(int expectedSize) {
+		int capacity = 16;
+		while (capacity * LOAD_FACTOR < expectedSize) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+}
@@ -0,0 +1,226 @@
+package com.concur.basesource.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多值索引的前缀树
+ * <p>每层节点对应一个索引值(按索引值序号),节点保存该前缀下的全部资源实例,支持只指定前面几个索引值的查询</p>
+ * <p>构建完成并冻结后不再修改</p>
+ * @author frank
+ */
+final class PrefixIndex<V> {
+
+	/** 根节点(不保存资源实例) */
+	private final Node<V> root = new Node<V>();
+
+	/**
+	 * 复制索引,第一层节点与原索引共用
+	 * @return 可继续修改第一层节点的新索引
+	 */
+	PrefixIndex<V> copy() {
+		PrefixIndex<V> result = new PrefixIndex<V>();
+		if (root.children != null) {
+			result.root.children = new HashMap<Object, Node<V>>(root.children);
+		}
+		return result;
+	}
+
+	/**
+	 * 替换第一个索引值下的全部资源实例,新节点会被排序并冻结
+	 * @param key 第一个索引值
+	 * @param rows 该索引值下的全部资源实例(按加载顺序),为空时删除节点
+	 * @param getter 索引值获取器
+	 */
+	@SuppressWarnings("unchecked")
+	void replace(Object key, List<V> rows, IndexGetter getter) {
+		if (rows.isEmpty()) {
+			if (root.children != null) {
+				root.children.remove(key);
+			}
+			return;
+		}
+		Node<V> child = new Node<V>();
+		for (V value : rows) {
+			CompositeKey indexKey = (CompositeKey) getter.getValue(value);
+			Node<V> node = child;
+			node.rows.add(value);
+			for (int i = 1; i < indexKey.size(); i++) {
+				node = node.child(indexKey.get(i));
+				node.rows.add(value);
+			}
+		}
+		if (getter.hasComparator()) {
+			child.sort(getter.getComparator());
+		}
+		child.freeze();
+		if (root.children == null) {
+			root.children = new HashMap<Object, Node<V>>();
+		}
+		root.children.put(key, child);
+	}
+
+	/**
+	 * 获取第一个索引值下的全部资源实例(不转换索引值)
+	 * @param key 第一个索引值
+	 * @return 不存在时返回null
+	 */
+	List<V> getRows(Object key) {
+		Node<V> node = root.get(key);
+		if (node == null) {
+			return null;
+		}
+		return node.rows;
+	}
+
+	/**
+	 * 添加资源实例
+	 * @param key 多值索引键
+	 * @param value 资源实例
+	 */
+	void add(CompositeKey key, V value) {
+		Node<V> node = root;
+		for (int i = 0; i < key.size(); i++) {
+			node = node.child(key.get(i));
+			node.rows.add(value);
+		}
+	}
+
+	/**
+	 * 使用索引排序器对每个节点的资源实例排序
+	 * @param comparator 索引排序器
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	void sort(Comparator comparator) {
+		root.sort(comparator);
+	}
+
+	/**
+	 * 冻结索引,节点的资源实例列表转为只读列表(已冻结的节点不会重复处理)
+	 */
+	void freeze() {
+		root.freeze();
+	}
+
+	/**
+	 * 将保存行号的索引转换为按需创建实例的只读索引
+	 * @param rows 保存行号的索引
+	 * @param table 堆外资源表
+	 * @return
+	 */
+	static <V> PrefixIndex<V> toRows(PrefixIndex<Integer> rows, OffHeapTable<V> table) {
+		PrefixIndex<V> result = new PrefixIndex<V>();
+		result.root.children = toRows(rows.root, table).children;
+		return result;
+	}
+
+	/**
+	 * 获取指定前缀下的资源实例
+	 * @param getter 索引值获取器,用于转换查询值
+	 * @param values 查询值(按索引值序号排列,可只指定前面的索引值)
+	 * @return 只读列表,不存在会返回{@link Collections#EMPTY_LIST}
+	 */
+	@SuppressWarnings("unchecked")
+	List<V> get(IndexGetter getter, Object[] values) {
+		if (values == null || values.length == 0) {
+			return Collections.EMPTY_LIST;
+		}
+		Node<V> node = root;
+		for (int i = 0; i < values.length && node != null; i++) {
+			node = node.get(getter.toKey(i, values[i]));
+		}
+		if (node == null) {
+			return Collections.EMPTY_LIST;
+		}
+		return node.rows;
+	}
+
+	/**
+	 * 获取第一个索引值下的资源实例
+	 * @param getter 索引值获取器,用于转换查询值
+	 * @param value 第一个索引值
+	 * @return 只读列表,不存在会返回{@link Collections#EMPTY_LIST}
+	 */
+	@SuppressWarnings("unchecked")
+	List<V> get(IndexGetter getter, Object value) {
+		Node<V> node = root.get(getter.toKey(0, value));
+		if (node == null) {
+			return Collections.EMPTY_LIST;
+		}
+		return node.rows;
+	}
+
+	private static <V> Node<V> toRows(Node<Integer> node, OffHeapTable<V> table) {
+		Node<V> result = new Node<V>();
+		int[] rows = new int[node.rows.size()];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = node.rows.get(i);
+		}
+		result.rows = table.toRows(rows);
+		if (node.children != null) {
+			result.children = new HashMap<Object, Node<V>>(node.children.size() * 4 / 3 + 1);
+			for (Map.Entry<Object, Node<Integer>> entry : node.children.entrySet()) {
+				result.children.put(entry.getKey(), toRows(entry.getValue(), table));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 前缀树节点
+	 */
+	private static class Node<V> {
+
+		/** 下一层节点,最后一层为null */
+		private Map<Object, Node<V>> children;
+		/** 该前缀下的资源实例 */
+		private List<V> rows = new ArrayList<V>();
+
+		Node<V> get(Object key) {
+			if (children == null) {
+				return null;
+			}
+			return children.get(key);
+		}
+
+		Node<V> child(Object key) {
+			if (children == null) {
+				children = new HashMap<Object, Node<V>>();
+			}
+			Node<V> node = children.get(key);
+			if (node == null) {
+				node = new Node<V>();
+				children.put(key, node);
+			}
+			return node;
+		}
+
+		@SuppressWarnings({"rawtypes", "unchecked"})
+		void sort(Comparator comparator) {
+			Collections.sort(rows, comparator);
+			if (children != null) {
+				for (Node<V> node : children.values()) {
+					node.sort(comparator);
+				}
+			}
+		}
+
+		void freeze() {
+			if (!(rows instanceof ArrayList)) {
+				return;
+			}
+			((ArrayList<V>) rows).trimToSize();
+			rows = Collections.unmodifiableList(rows);
+			if (children != null) {
+				for (Node<V> node : children.values()) {
+					node.freeze();
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+package com.concur.basesource.storage;
+
+import com.concur.basesource.reader.WorkbookLoader;
+import com.concur.unity.thread.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 静态资源热加载调度器
+ * <p>文件变化后等待一段时间没有新的变化(文件保存完成)才重新加载,期间的多次变化合并为一次;
+ * 合并后的资源类在独立的线程池中并行重新加载,完成后汇总每个资源类的耗时和失败情况</p>
+ * @author frank
+ */
+final class ReloadScheduler {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReloadScheduler.class);
+
+	/** 持续变化时的最长等待时间(等待时间的倍数) */
+	private static final int MAX_WAIT_RATIO = 10;
+
+	private final StorageManager storageManager;
+	/** 等待时间(毫秒) */
+	private final long delay;
+	/** 合并变化的调度线程 */
+	private final ScheduledExecutorService timer;
+	/** 重新加载线程池 */
+	private final ExecutorService workers;
+
+	/** 等待重新加载的资源类 */
+	private final Set<Class<?>> pending = new LinkedHashSet<Class<?>>();
+	/** 第一个等待的变化时间 */
+	private long firstChange;
+	/** 已调度的加载任务 */
+	private ScheduledFuture<?> task;
+
+	private final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			flush();
+		}
+	};
+
+	/**
+	 * 构造方法
+	 * @param storageManager 资源管理器
+	 * @param delay 等待时间(毫秒)
+	 * @param threads 重新加载线程数量,小于等于0时使用CPU核数
+	 */
+	ReloadScheduler(StorageManager storageManager, long delay, int threads) {
+		this.storageManager = storageManager;
+		this.delay = delay;
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		ThreadGroup threadGroup = new ThreadGroup("静态资源热加载");
+		this.timer = Executors.newSingleThreadScheduledExecutor(
+				new NamedThreadFactory(threadGroup, "静态资源热加载调度线程"));
+		this.workers = Executors.newFixedThreadPool(threads, new NamedThreadFactory(threadGroup, "静态资源热加载线程池"));
+	}
+
+	/**
+	 * 资源文件已变化,等待一段时间没有新的变化后重新加载
+	 * @param classes 资源文件对应的资源类
+	 */
+	synchronized void schedule(Collection<Class<?>> classes) {
+		long now = System.currentTimeMillis();
+		if (pending.isEmpty()) {
+			firstChange = now;
+		}
+		pending.addAll(classes);
+		if (task != null) {
+			task.cancel(false);
+		}
+		// 持续变化时最多等待 MAX_WAIT_RATIO 倍的时间
+		long wait = Math.min(delay, firstChange + delay * MAX_WAIT_RATIO - now);
+		task = timer.schedule(flushTask, Math.max(wait, 0), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 停止调度,正在进行的重新加载会被中断
+	 */
+	synchronized void shutdown() {
+		pending.clear();
+		timer.shutdownNow();
+		workers.shutdownNow();
+	}
+
+	/**
+	 * 并行重新加载等待中的资源类(在调度线程中执行,上一次加载完成前不会开始下一次)
+	 * <p>同一次加载在一个加载周期内进行,同一个Excel文件中的资源类共用解析结果</p>
+	 */
+	private void flush() {
+		final List<Class<?>> classes;
+		synchronized (this) {
+			classes = new ArrayList<Class<?>>(pending);
+			pending.clear();
+		}
+		if (classes.isEmpty()) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		int failed;
+		WorkbookLoader workbooks = new WorkbookLoader();
+		try {
+			failed = reload(classes, workbooks);
+		} finally {
+			workbooks.close();
+		}
+		logger.warn("静态资源热加载完成,数量:{},失败:{},耗时:{}ms", new Object[] { classes.size(), failed,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) });
+	}
+
+	/**
+	 * 并行重新加载资源类并等待全部完成
+	 * @param classes 资源类
+	 * @param workbooks 本次加载的加载周期
+	 * @return 失败的数量
+	 */
+	private int reload(List<Class<?>> classes, final WorkbookLoader workbooks) {
+		List<Future<Long>> futures = new ArrayList<Future<Long>>(classes.size());
+		for (final Class<?> clz : classes) {
+			futures.add(workers.submit(new Callable<Long>() {
+				@Override
+				public Long call() throws Exception {
+					long begin = System.nanoTime();
+					WorkbookLoader prev = workbooks.bind();
+					try {
+						storageManager.reload(clz);
+					} finally {
+						WorkbookLoader.unbind(prev);
+					}
+					return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+				}
+			}));
+		}
+		int failed = 0;
+		for (int i = 0; i < futures.size(); i++) {
+			Class<?> clz = classes.get(i);
+			try {
+				Long cost = futures.get(i).get();
+				logger.info("静态资源[{}]热加载完成,耗时:{}ms", clz.getSimpleName(), cost);
+			} catch (ExecutionException e) {
+				failed++;
+				logger.error("静态资源[{}]热加载失败", clz.getName(), e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				logger.error("静态资源热加载被中断");
+				break;
+			}
+		}
+		return failed;
+	}
+
+}
@@ -1,6 +1,7 @@
 package com.concur.basesource.storage;
 
 import com.concur.basesource.anno.InjectBean;
+import com.concur.basesource.anno.StaticResource;
 import com.concur.unity.reflect.ReflectionUtility;
 import com.concur.unity.utils.StringUtils;
 import org.apache.commons.lang.builder.ReflectionToStringBuilder;
@@ -9,7 +10,8 @@ import org.springframework.util.ReflectionUtils.FieldFilter;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 
@@ -34,56 +36,57 @@ public class ResourceDefinition {
 	private final String location;
 	/** 资源格式 */
 	private final String format;
-	/** 资源的注入信息 */
-	private final Set<InjectDefinition> injects = new HashSet<InjectDefinition>();
+	/** 主存储空间结构 */
+	private final StoreType storeType;
+	/** 静态属性注入定义 */
+	private final Set<InjectDefinition> staticInjects;
+	/** 非静态属性注入定义 */
+	private final Set<InjectDefinition> injects;
 	
 	/** 构造方法 */
 	public ResourceDefinition(Class<?> clz, FormatDefinition format, String file) {
 		this.clz = clz;
 		this.format = format.getType();
+		StaticResource anno = clz.getAnnotation(StaticResource.class);
+		this.storeType = anno != null ? anno.store() : StoreType.AUTO;
 
 		if (StringUtils.isNotBlank(file)) {
 			this.location = file;
 		} else {
 			this.location = format.getLocation();
 		}
+		// 创建时区分静态和非静态属性,之后不再变化
+		final Set<InjectDefinition> statics = new LinkedHashSet<InjectDefinition>();
+		final Set<InjectDefinition> instances = new LinkedHashSet<InjectDefinition>();
 		ReflectionUtility.doWithDeclaredFields(clz, new FieldCallback() {
 			@Override
 			public void doWith(Field field) throws IllegalArgumentException, IllegalAccessException {
 				InjectDefinition definition = new InjectDefinition(field);
-				injects.add(definition);
+				if (Modifier.isStatic(field.getModifiers())) {
+					statics.add(definition);
+				} else {
+					instances.add(definition);
+				}
 			}
 		}, INJECT_FILTER);
+		this.staticInjects = Collections.unmodifiableSet(statics);
+		this.injects = Collections.unmodifiableSet(instances);
 	}
 	
 	/**
 	 * 获取静态属性注入定义
-	 * @return
+	 * @return 只读集合
 	 */
 	public Set<InjectDefinition> getStaticInjects() {
-		HashSet<InjectDefinition> result = new HashSet<InjectDefinition>();
-		for (InjectDefinition definition : this.injects) {
-			Field field = definition.getField();
-			if (Modifier.isStatic(field.getModifiers())) {
-				result.add(definition);
-			}
-		}
-		return result;
+		return staticInjects;
 	}
 	
 	/**
 	 * 获取非静态属性注入定义
-	 * @return
+	 * @return 只读集合
 	 */
 	public Set<InjectDefinition> getInjects() {
-		HashSet<InjectDefinition> result = new HashSet<InjectDefinition>();
-		for (InjectDefinition definition : this.injects) {
-			Field field = definition.getField();
-			if (!Modifier.isStatic(field.getModifiers())) {
-				result.add(definition);
-			}
-		}
-		return result;
+		return injects;
 	}
 
 	/**
@@ -108,6 +111,10 @@ public class ResourceDefinition {
 		return format;
 	}
 
+	public StoreType getStoreType() {
+		return storeType;
+	}
+
 	@Override
 	public String toString() {
 		return ReflectionToStringBuilder.toString(this);
@@ -0,0 +1,166 @@
+package com.concur.basesource.storage;
+
+import com.concur.unity.thread.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 静态资源校验器
+ * <p>全部存储空间共用同一个校验器工厂;资源实例较多时分段在共用的线程池中并行校验,校验完全部实例后汇总所有不通过的内容</p>
+ * <p>线程池第一次并行校验时创建,线程数量不超过CPU核数,空闲时线程自动退出,由{@link #shutdown()}关闭</p>
+ * @author frank
+ */
+final class ResourceValidator {
+
+	private static final Logger logger = LoggerFactory.getLogger(ResourceValidator.class);
+
+	/** 并行校验时每段的资源实例数量 */
+	private static final int CHUNK_SIZE = 512;
+	/** 校验线程的空闲时间(秒),超过后线程退出 */
+	private static final long IDLE_SECONDS = 60;
+
+	/**
+	 * 共用的校验器工厂(创建代价较高,第一次使用时创建)
+	 */
+	private static class Holder {
+		static final ValidatorFactory FACTORY = Validation.buildDefaultValidatorFactory();
+	}
+
+	/** 并行校验线程池,没有创建或已关闭时为null */
+	private static ExecutorService executor;
+
+	private ResourceValidator() {
+	}
+
+	/**
+	 * 获取并行校验线程池,不存在时创建
+	 * @return
+	 */
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			int threads = Runtime.getRuntime().availableProcessors();
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, IDLE_SECONDS, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(),
+					new NamedThreadFactory(new ThreadGroup("静态资源校验"), "静态资源校验线程池"));
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+		}
+		return executor;
+	}
+
+	/**
+	 * 关闭并行校验线程池(资源管理器销毁时调用),之后的并行校验会重新创建线程池
+	 */
+	static synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/**
+	 * 校验资源实例
+	 * @param clz 资源类
+	 * @param fileName 资源文件名(用于日志)
+	 * @param values 要校验的资源实例
+	 * @param identifier 标识获取器
+	 * @throws RuntimeException 存在校验不通过的资源实例时抛出,异常信息包含全部不通过的内容
+	 */
+	static <V> void validate(final Class<V> clz, final String fileName, List<V> values, final Getter identifier) {
+		if (values.isEmpty()) {
+			return;
+		}
+		final Validator validator = Holder.FACTORY.getValidator();
+		List<String> errors;
+		int chunks = (values.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		int threads = Math.min(chunks, Runtime.getRuntime().availableProcessors());
+		if (threads <= 1) {
+			errors = validate(validator, clz, fileName, values, identifier);
+		} else {
+			errors = new ArrayList<String>();
+			ExecutorService pool = getExecutor();
+			try {
+				List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>(chunks);
+				for (int start = 0; start < values.size(); start += CHUNK_SIZE) {
+					final List<V> chunk = values.subList(start, Math.min(start + CHUNK_SIZE, values.size()));
+					futures.add(pool.submit(new Callable<List<String>>() {
+						@Override
+						public List<String> call() throws Exception {
+							return validate(validator, clz, fileName, chunk, identifier);
+						}
+					}));
+				}
+				// 按顺序汇总,与资源文件中的顺序一致
+				for (Future<List<String>> future : futures) {
+					errors.addAll(future.get());
+				}
+			} catch (ExecutionException e) {
+				FormattingTuple message = MessageFormatter.format("静态数据校验时出现异常[{}:{}]", clz.getSimpleName(), fileName);
+				logger.error(message.getMessage(), e.getCause());
+				throw new IllegalStateException(message.getMessage(), e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				FormattingTuple message = MessageFormatter.format("静态数据校验被中断[{}:{}]", clz.getSimpleName(), fileName);
+				logger.error(message.getMessage());
+				throw new IllegalStateException(message.getMessage(), e);
+			}
+		}
+
+		if (!errors.isEmpty()) {
+			StringBuilder buf = new StringBuilder();
+			for (String error : errors) {
+				buf.append(error);
+			}
+			FormattingTuple message = MessageFormatter.arrayFormat("静态数据校验不通过[{}:{}]共{}个资源实例:\n{}",
+					new Object[]{clz.getSimpleName(), fileName, errors.size(), buf});
+			logger.error(message.getMessage());
+			throw new RuntimeException(message.getMessage());
+		}
+	}
+
+	/**
+	 * 顺序校验资源实例
+	 * @return 每个不通过的资源实例对应一条内容
+	 */
+	private static <V> List<String> validate(Validator validator, Class<V> clz, String fileName, List<V> values,
+			Getter identifier) {
+		List<String> result = new ArrayList<String>();
+		for (V obj : values) {
+			Set<ConstraintViolation<V>> violations;
+			try {
+				violations = validator.validate(obj);
+			} catch (Exception e) {
+				logger.error("静态数据校验时出现异常[{}:{}]", new Object[]{clz.getSimpleName(), fileName, e});
+				continue;
+			}
+			if (violations == null || violations.isEmpty()) {
+				continue;
+			}
+			StringBuilder buf = new StringBuilder("主键id=").append(identifier.getValue(obj)).append(':');
+			for (ConstraintViolation<V> violation : violations) {
+				buf.append(violation.getPropertyPath()).append('-');
+				buf.append(violation.getMessage()).append("<BR>\n");
+			}
+			result.add(buf.toString());
+		}
+		return result;
+	}
+
+}
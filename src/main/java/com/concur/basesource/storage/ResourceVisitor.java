@@ -0,0 +1,16 @@
+package com.concur.basesource.storage;
+
+/**
+ * 静态资源实例访问器
+ * @author frank
+ */
+public interface ResourceVisitor<V> {
+
+	/**
+	 * 访问静态资源实例
+	 * @param value 静态资源实例
+	 * @return 是否继续访问,返回false时中止遍历
+	 */
+	boolean visit(V value);
+
+}
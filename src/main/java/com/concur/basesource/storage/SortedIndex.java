@@ -0,0 +1,204 @@
+package com.concur.basesource.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 排序索引
+ * <p>资源实例按索引键升序排列(键相同时按索引排序器或加载顺序),查询使用二分查找</p>
+ * <p>索引键为null的资源实例不进入排序索引</p>
+ * @author frank
+ */
+final class SortedIndex<V> {
+
+	/** 索引键(与资源实例一一对应) */
+	private final Object[] keys;
+	/** 资源实例(只读) */
+	private final List<V> rows;
+
+	private SortedIndex(Object[] keys, List<V> rows) {
+		this.keys = keys;
+		this.rows = rows;
+	}
+
+	/**
+	 * 构建排序索引
+	 * @param getter 索引值获取器
+	 * @param all 全部资源实例
+	 * @return
+	 */
+	@SuppressWarnings("rawtypes")
+	static <V> SortedIndex<V> build(IndexGetter getter, List<V> all) {
+		List<Entry<V>> entries = new ArrayList<Entry<V>>(all.size());
+		for (V value : all) {
+			Object key = getter.getValue(value);
+			if (key != null) {
+				entries.add(new Entry<V>((Comparable) key, value));
+			}
+		}
+		sort(entries, getter.getComparator());
+
+		Object[] keys = new Object[entries.size()];
+		List<V> rows = new ArrayList<V>(entries.size());
+		for (int i = 0; i < keys.length; i++) {
+			Entry<V> entry = entries.get(i);
+			keys[i] = entry.key;
+			rows.add(entry.value);
+		}
+		return new SortedIndex<V>(keys, Collections.unmodifiableList(rows));
+	}
+
+	/**
+	 * 获取索引键小于等于指定键的最大资源实例
+	 * @param key 索引键,null表示不限
+	 * @return 键相同时返回排序在前的实例,不存在返回null
+	 */
+	V floor(Object key) {
+		int index = (key == null ? keys.length : upperBound(key)) - 1;
+		if (index < 0) {
+			return null;
+		}
+		return rows.get(lowerBound(keys[index]));
+	}
+
+	/**
+	 * 获取索引键大于等于指定键的最小资源实例
+	 * @param key 索引键,null表示不限
+	 * @return 键相同时返回排序在前的实例,不存在返回null
+	 */
+	V ceiling(Object key) {
+		int index = key == null ? 0 : lowerBound(key);
+		if (index >= keys.length) {
+			return null;
+		}
+		return rows.get(index);
+	}
+
+	/**
+	 * 获取索引键在指定范围内的资源实例
+	 * @param from 起始键(包含),null表示不限
+	 * @param to 结束键(包含),null表示不限
+	 * @return 只读的列表视图,不会复制资源实例
+	 */
+	@SuppressWarnings("unchecked")
+	List<V> range(Object from, Object to) {
+		int start = from == null ? 0 : lowerBound(from);
+		int end = to == null ? keys.length : upperBound(to);
+		if (start >= end) {
+			return Collections.EMPTY_LIST;
+		}
+		if (start == 0 && end == keys.length) {
+			return rows;
+		}
+		return rows.subList(start, end);
+	}
+
+	/**
+	 * 构建只保存行号的排序索引
+	 * @param keys 各行的索引键(下标为行号)
+	 * @param comparator 按行号比较的索引排序器,没有时为null
+	 * @param table 堆外资源表
+	 * @return
+	 */
+	@SuppressWarnings("rawtypes")
+	static <V> SortedIndex<V> build(Object[] keys, Comparator<Integer> comparator, OffHeapTable<V> table) {
+		List<Entry<Integer>> entries = new ArrayList<Entry<Integer>>(keys.length);
+		for (int row = 0; row < keys.length; row++) {
+			if (keys[row] != null) {
+				entries.add(new Entry<Integer>((Comparable) keys[row], row));
+			}
+		}
+		sort(entries, comparator);
+
+		Object[] sortedKeys = new Object[entries.size()];
+		int[] rows = new int[entries.size()];
+		for (int i = 0; i < rows.length; i++) {
+			Entry<Integer> entry = entries.get(i);
+			sortedKeys[i] = entry.key;
+			rows[i] = entry.value;
+		}
+		return new SortedIndex<V>(sortedKeys, table.toRows(rows));
+	}
+
+	/**
+	 * 稳定排序,键相同时保持索引排序器或加载顺序
+	 * @param entries 索引项
+	 * @param comparator 索引排序器,没有时为null
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static <T> void sort(List<Entry<T>> entries, final Comparator comparator) {
+		Collections.sort(entries, new Comparator<Entry<T>>() {
+			@Override
+			public int compare(Entry<T> o1, Entry<T> o2) {
+				int result = o1.key.compareTo(o2.key);
+				if (result == 0 && comparator != null) {
+					result = comparator.compare(o1.value, o2.value);
+				}
+				return result;
+			}
+		});
+	}
+
+	/**
+	 * 获取全部资源实例
+	 * @return 按索引键排列的只读列表
+	 */
+	List<V> getRows() {
+		return rows;
+	}
+
+	/**
+	 * 第一个键大于等于指定键的位置
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private int lowerBound(Object key) {
+		int low = 0;
+		int high = keys.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (((Comparable) keys[mid]).compareTo(key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * 第一个键大于指定键的位置
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private int upperBound(Object key) {
+		int low = 0;
+		int high = keys.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (((Comparable) keys[mid]).compareTo(key) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * 构建时使用的索引项
+	 */
+	@SuppressWarnings("rawtypes")
+	private static class Entry<V> {
+
+		private final Comparable key;
+
+		private final V value;
+
+		Entry(Comparable key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.concur.basesource.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+
+/**
+ * 静态资源实例引用
+ * <p>{@link #get()}每次都从存储空间的当前快照按主键获取资源实例(不缓存,不会持有旧快照);
+ * 重新加载只替换存储空间的快照,引用不需要重新注入</p>
+ * @author frank
+ */
+public final class StaticRef<V> {
+
+	private static final Logger logger = LoggerFactory.getLogger(StaticRef.class);
+
+	/** 存储空间 */
+	private final Storage<Object, V> storage;
+	/** 主键 */
+	private final Object key;
+	/** 资源实例是否必须存在 */
+	private final boolean required;
+
+	StaticRef(Storage<Object, V> storage, Object key, boolean required) {
+		this.storage = storage;
+		this.key = key;
+		this.required = required;
+	}
+
+	/**
+	 * 获取当前的资源实例
+	 * @return 不存在且不是必须时返回null
+	 * @throws IllegalStateException 资源实例必须存在但当前快照中不存在时抛出
+	 */
+	public V get() {
+		V value = storage.getSnapshot().getValues().get(key);
+		if (required && value == null) {
+			FormattingTuple message = MessageFormatter.format("标识为[{}]的静态资源[{}]不存在", key,
+					storage.getClz().getName());
+			logger.error(message.getMessage());
+			throw new IllegalStateException(message.getMessage());
+		}
+		return value;
+	}
+
+	/**
+	 * 获取主键
+	 * @return
+	 */
+	public Object getKey() {
+		return key;
+	}
+
+	@Override
+	public String toString() {
+		return "StaticRef[" + storage.getClz().getSimpleName() + ":" + key + "]";
+	}
+
+}
@@ -1,5 +1,6 @@
 package com.concur.basesource.storage;
 
+import com.concur.basesource.reader.FileResourceReader;
 import com.concur.basesource.reader.ReaderHolder;
 import com.concur.basesource.reader.ResourceReader;
 import com.concur.unity.utils.JsonUtils;
@@ -12,10 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 
-import javax.validation.ConstraintViolation;
-import javax.validation.Validation;
-import javax.validation.Validator;
-import javax.validation.ValidatorFactory;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -23,23 +21,26 @@ import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 /**
  * 存储空间对象
  * @author frank
  */
-public class Storage<K, V> extends Observable implements ApplicationContextAware {
+public class Storage<K, V> implements ApplicationContextAware {
 
 	private static final Logger logger = LoggerFactory.getLogger(Storage.class);
 
 	@Autowired
 	private ReaderHolder readerHolder;
+	/** 变更监听器 */
+	private final ListenerRegistry<K, V> listeners = new ListenerRegistry<K, V>();
 
 	/** 已初始化标识 */
-	private boolean initialized;
+	private volatile boolean initialized;
 	/** 资源定义 */
 	private ResourceDefinition resourceDefinition;
 
@@ -52,13 +53,14 @@ public class Storage<K, V> extends Observable implements ApplicationContextAware
 			return; // 避免重复初始化
 		}
 
-		// 设置初始化标识
-		this.initialized = true;
 		// 获取资源信息
 		this.resourceDefinition = definition;
 		this.reader = readerHolder.getReader(definition.getFormat());
 		this.identifier = GetterBuilder.createIdGetter(definition.getClz());
 		this.indexGetters = GetterBuilder.createIndexGetters(definition.getClz());
+		this.detector = new ChangeDetector(definition.getClz(), definition.getInjects());
+		// 设置初始化标识(在资源信息之后设置,保证读取线程可见)
+		this.initialized = true;
 		// 注入静态属性
 		Set<InjectDefinition> injects = definition.getStaticInjects();
 		for (InjectDefinition inject : injects) {
@@ -83,24 +85,20 @@ public class Storage<K, V> extends Observable implements ApplicationContextAware
 	private Getter identifier;
 	/** 索引获取器集合 */
 	private Map<String, IndexGetter> indexGetters;
+	/** 资源实例变化检测器 */
+	private ChangeDetector detector;
 
-	/** 主存储空间 */
-	private Map<K, V> values = new HashMap<K, V>();
-	/** 索引存储空间 */
-	private Map<String, Map<Object, List<V>>> indexs = new HashMap<String, Map<Object, List<V>>>();
-	/** 唯一值存储空间 */
-	private Map<String, Map<Object, V>> uniques = new HashMap<String, Map<Object, V>>();
+	/** 当前数据快照(主存储空间、索引存储空间、唯一值存储空间) */
+	private volatile StorageSnapshot<K, V> snapshot = StorageSnapshot.empty();
 
-	/** 读取锁 */
-	private final Lock readLock;
-	/** 写入锁 */
-	private final Lock writeLock;
+	/** 变化数量超过资源数量的 1/INCREMENTAL_RATIO 时完整构建索引 */
+	private static final int INCREMENTAL_RATIO = 4;
 
-	public Storage() {
-		ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-		readLock = lock.readLock();
-		writeLock = lock.writeLock();
-	}
+	/** 堆外存储重新加载时每批校验的资源实例数量 */
+	private static final int VALIDATE_BATCH = 4096;
+
+	/** 重新加载锁,读取操作不需要加锁 */
+	private final Lock reloadLock = new ReentrantLock();
 
 
 	/**
@@ -120,18 +118,45 @@ public class Storage<K, V> extends Observable implements ApplicationContextAware
 	 */
 	public V get(K key, boolean flag) {
 		isReady();
-		readLock.lock();
-		try {
-			V result = values.get(key);
-			if (flag && result == null) {
-				FormattingTuple message = MessageFormatter.format("标识为[{}]的静态资源[{}]不存在", key, getClz().getName());
-				logger.error(message.getMessage());
-				throw new IllegalStateException(message.getMessage());
-			}
-			return result;
-		} finally {
-			readLock.unlock();
+		V result = snapshot.getValues().get(key);
+		if (flag && result == null) {
+			FormattingTuple message = MessageFormatter.format("标识为[{}]的静态资源[{}]不存在", key, getClz().getName());
+			logger.error(message.getMessage());
+			throw new IllegalStateException(message.getMessage());
 		}
+		return result;
+	}
+
+	/**
+	 * 获取指定键的资源实例引用,引用总是读取当前快照中的资源实例,重新加载后不需要重新获取
+	 * @param key 键
+	 * @param required 资源实例是否必须存在,true:{@link StaticRef#get()}不存在时抛出异常
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public StaticRef<V> getRef(K key, boolean required) {
+		isReady();
+		return new StaticRef<V>((Storage<Object, V>) this, key, required);
+	}
+
+	/**
+	 * 获取指定 int 主键对应的静态资源实例,int 类型主键的资源查询时不需要装箱
+	 * @param key 主键
+	 * @return 不存在时返回null
+	 */
+	public V getInt(int key) {
+		isReady();
+		return snapshot.getValues().getInt(key);
+	}
+
+	/**
+	 * 获取指定 long 主键对应的静态资源实例,long 类型主键的资源查询时不需要装箱
+	 * @param key 主键
+	 * @return 不存在时返回null
+	 */
+	public V getLong(long key) {
+		isReady();
+		return snapshot.getValues().getLong(key);
 	}
 
 	/**
@@ -141,26 +166,16 @@ public class Storage<K, V> extends Observable implements ApplicationContextAware
 	 */
 	public boolean containsId(K key) {
 		isReady();
-		readLock.lock();
-		try {
-			return values.containsKey(key);
-		} finally {
-			readLock.unlock();
-		}
+		return snapshot.getValues().containsKey(key);
 	}
 
 	/**
 	 * 获取全部的静态资源实例
-	 * @return 返回的集合是只读的，不能进行元素的添加或移除
+	 * @return 返回的集合是只读的，不能进行元素的添加或移除,重新加载后不会改变已返回集合的内容
 	 */
 	public Collection<V> getAll() {
 		isReady();
-		readLock.lock();
-		try {
-			return Collections.unmodifiableCollection(values.values());
-		} finally {
-			readLock.unlock();
-		}
+		return snapshot.getAll();
 	}
 
 	/**
@@ -171,109 +186,360 @@ public class Storage<K, V> extends Observable implements ApplicationContextAware
 	 */
 	public V getUnique(String name, Object... value) {
 		isReady();
-		readLock.lock();
-		try {
-			Map<Object, V> index = uniques.get(name);
-			if (index == null) {
-				return null;
-			}
-			String indexKey = GetterBuilder.buildIndexKey(value);
-			return index.get(indexKey);
-		} finally {
-			readLock.unlock();
+		Map<Object, V> index = snapshot.getUniques().get(name);
+		if (index == null) {
+			return null;
 		}
+		IndexGetter getter = indexGetters.get(name);
+		checkIndexValues(getter, value);
+		Object indexKey = getter.toKey(value);
+		return index.get(indexKey);
 	}
 
 	/**
 	 * 获取指定的索引内容列表
+	 * <p>多值索引可只指定前面的索引值,返回该前缀下的全部内容</p>
 	 * @param name 索引名
 	 * @param value 索引值
-	 * @return 不存在会返回{@link Collections#EMPTY_LIST}
+	 * @return 返回的列表是只读的,不存在会返回{@link Collections#EMPTY_LIST}
+	 * @throws IllegalArgumentException 索引值数量超过索引属性数量时抛出
 	 */
-	@SuppressWarnings("unchecked")
 	public List<V> getIndex(String name, Object... value) {
 		isReady();
-		readLock.lock();
-		try {
-			Map<Object, List<V>> index = indexs.get(name);
-			if (index == null) {
-				return Collections.EMPTY_LIST;
+		IndexGetter getter = indexGetters.get(name);
+		if (getter == null) {
+			return getIndexList(name, null);
+		}
+		checkIndexValues(getter, value);
+		PrefixIndex<V> prefix = getPrefixIndex(name);
+		if (prefix != null) {
+			return prefix.get(getter, value);
+		}
+		return getIndexList(name, getter.toKey(value));
+	}
+
+	/**
+	 * 获取指定的索引内容列表(单值索引)
+	 * @param name 索引名
+	 * @param value 索引值,数组作为多个索引值处理(与{@link #getIndex(String, Object...)}相同)
+	 * @return 返回的列表是只读的,不存在会返回{@link Collections#EMPTY_LIST}
+	 */
+	public List<V> getIndex(String name, Object value) {
+		if (value instanceof Object[]) {
+			return getIndex(name, (Object[]) value);
+		}
+		PrefixIndex<V> prefix = getPrefixIndex(name);
+		if (prefix != null) {
+			return prefix.get(indexGetters.get(name), value);
+		}
+		IndexGetter getter = indexGetters.get(name);
+		if (getter == null) {
+			return getIndexList(name, null);
+		}
+		return getIndexList(name, getter.toKey(value));
+	}
+
+	/**
+	 * 获取指定的索引内容列表(单值索引)
+	 * @param name 索引名
+	 * @param value 索引值
+	 * @return 返回的列表是只读的,不存在会返回{@link Collections#EMPTY_LIST}
+	 */
+	public List<V> getIndex(String name, int value) {
+		PrefixIndex<V> prefix = getPrefixIndex(name);
+		if (prefix != null) {
+			return prefix.get(indexGetters.get(name), Integer.valueOf(value));
+		}
+		IndexGetter getter = indexGetters.get(name);
+		if (getter == null) {
+			return getIndexList(name, null);
+		}
+		return getIndexList(name, getter.toKey(Integer.valueOf(value)));
+	}
+
+	/**
+	 * 遍历指定的索引内容,不会复制索引列表
+	 * @param name 索引名
+	 * @param value 索引值,多值索引使用数组
+	 * @param visitor 访问器
+	 */
+	public void forEachIndex(String name, Object value, ResourceVisitor<V> visitor) {
+		List<V> indexList = getIndex(name, value);
+		for (int i = 0, size = indexList.size(); i < size; i++) {
+			if (!visitor.visit(indexList.get(i))) {
+				return;
 			}
-			String indexKey = GetterBuilder.buildIndexKey(value);
-			List<V> indexList = index.get(indexKey);
-			if (indexList == null) {
-				return Collections.EMPTY_LIST;
+		}
+	}
+
+	/**
+	 * 获取排序索引中索引值小于等于指定值的最大资源实例,如按经验值查找等级
+	 * @param name 排序索引名
+	 * @param value 索引值,多值索引使用数组,null 表示不限(返回索引值最大的实例)
+	 * @return 索引值相同时返回排序在前的实例,不存在会返回 null
+	 * @throws IllegalArgumentException 索引值无法转换为索引值类型时抛出
+	 */
+	public V getFloor(String name, Object value) {
+		SortedIndex<V> index = getSortedIndex(name);
+		if (index == null) {
+			return null;
+		}
+		return index.floor(toSortedKey(name, value));
+	}
+
+	/**
+	 * 获取排序索引中索引值大于等于指定值的最小资源实例
+	 * @param name 排序索引名
+	 * @param value 索引值,多值索引使用数组,null 表示不限(返回索引值最小的实例)
+	 * @return 索引值相同时返回排序在前的实例,不存在会返回 null
+	 * @throws IllegalArgumentException 索引值无法转换为索引值类型时抛出
+	 */
+	public V getCeiling(String name, Object value) {
+		SortedIndex<V> index = getSortedIndex(name);
+		if (index == null) {
+			return null;
+		}
+		return index.ceiling(toSortedKey(name, value));
+	}
+
+	/**
+	 * 获取排序索引中索引值在指定范围内的资源实例
+	 * @param name 排序索引名
+	 * @param from 起始索引值(包含),null 表示不限
+	 * @param to 结束索引值(包含),null 表示不限
+	 * @return 按索引值排列的只读列表视图(不会复制),不存在会返回{@link Collections#EMPTY_LIST}
+	 * @throws IllegalArgumentException 索引值无法转换为索引值类型时抛出
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> getRange(String name, Object from, Object to) {
+		SortedIndex<V> index = getSortedIndex(name);
+		if (index == null) {
+			return Collections.EMPTY_LIST;
+		}
+		return index.range(toSortedKey(name, from), toSortedKey(name, to));
+	}
+
+	/**
+	 * 将查询值转换为排序索引的索引键,转换后的索引值必须是索引值的声明类型(排序索引使用{@link Comparable}比较)
+	 * @param name 排序索引名
+	 * @param value 查询值,多值索引使用数组,null 表示不限
+	 * @return 索引键,查询值为 null 时返回 null
+	 * @throws IllegalArgumentException 查询值数量不正确或无法转换为索引值类型时抛出
+	 */
+	private Object toSortedKey(String name, Object value) {
+		if (value == null) {
+			return null;
+		}
+		IndexGetter getter = indexGetters.get(name);
+		Object key;
+		if (value instanceof Object[]) {
+			checkIndexValues(getter, (Object[]) value);
+			key = getter.toKey((Object[]) value);
+		} else {
+			key = getter.toKey(value);
+		}
+		if (key instanceof CompositeKey) {
+			CompositeKey compositeKey = (CompositeKey) key;
+			for (int i = 0; i < compositeKey.size(); i++) {
+				checkSortedKey(getter, i, compositeKey.get(i));
 			}
-			return new ArrayList<V>(indexList);
-		} finally {
-			readLock.unlock();
+		} else {
+			checkSortedKey(getter, 0, key);
 		}
+		return key;
+	}
+
+	/**
+	 * 检查排序索引指定位置的索引值类型
+	 * @param getter 索引值获取器
+	 * @param position 索引值位置
+	 * @param key 转换后的索引值
+	 * @throws IllegalArgumentException 索引值不是声明类型时抛出
+	 */
+	private void checkSortedKey(IndexGetter getter, int position, Object key) {
+		Class<?> keyType = getter.getKeyType(position);
+		if (key != null && !keyType.isInstance(key)) {
+			FormattingTuple message = MessageFormatter.arrayFormat("静态资源[{}]的排序索引[{}]的查询值[{}]无法转换为[{}]类型",
+					new Object[] { getClz().getName(), getter.getName(), key, keyType.getName() });
+			logger.error(message.getMessage());
+			throw new IllegalArgumentException(message.getMessage());
+		}
+	}
+
+	/**
+	 * 检查查询值的数量,单值索引只能指定一个索引值,多值索引不能超过索引属性的数量
+	 * @param getter 索引值获取器
+	 * @param values 查询值
+	 * @throws IllegalArgumentException 索引值数量不正确时抛出
+	 */
+	private void checkIndexValues(IndexGetter getter, Object[] values) {
+		if (values == null) {
+			return;
+		}
+		int count = getter.getFieldCount();
+		if (values.length == 0 || values.length > count) {
+			FormattingTuple message = MessageFormatter.arrayFormat("静态资源[{}]的索引[{}]有{}个索引值,查询值数量[{}]不正确",
+					new Object[] { getClz().getName(), getter.getName(), count, values.length });
+			logger.error(message.getMessage());
+			throw new IllegalArgumentException(message.getMessage());
+		}
+	}
+
+	/**
+	 * 获取多值索引的前缀树
+	 * @param name 索引名
+	 * @return 不存在或不是多值索引时返回 null
+	 */
+	private PrefixIndex<V> getPrefixIndex(String name) {
+		isReady();
+		return snapshot.getPrefixes().get(name);
+	}
+
+	/**
+	 * 获取排序索引
+	 * @param name 排序索引名
+	 * @return 不存在或不是排序索引时返回 null
+	 */
+	private SortedIndex<V> getSortedIndex(String name) {
+		isReady();
+		return snapshot.getSorteds().get(name);
+	}
+
+	/**
+	 * 获取索引内容列表
+	 * @param name 索引名
+	 * @param indexKey 索引键
+	 * @return 只读的索引列表
+	 */
+	@SuppressWarnings("unchecked")
+	private List<V> getIndexList(String name, Object indexKey) {
+		isReady();
+		Map<Object, List<V>> index = snapshot.getIndexs().get(name);
+		if (index == null) {
+			return Collections.EMPTY_LIST;
+		}
+		List<V> indexList = index.get(indexKey);
+		if (indexList == null) {
+			return Collections.EMPTY_LIST;
+		}
+		return indexList;
+	}
+
+	/**
+	 * 添加监听整个存储空间的监听器,每次重新加载后都会收到通知
+	 * @param listener 监听器
+	 */
+	public void addListener(StorageListener<K, V> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * 添加监听指定主键的监听器,该主键的资源新增、修改或删除时收到通知
+	 * @param key 主键
+	 * @param listener 监听器
+	 */
+	public void addListener(K key, StorageListener<K, V> listener) {
+		listeners.add(key, listener);
+	}
+
+	/**
+	 * 添加监听指定索引值的监听器,索引值对应的内容变化时收到通知
+	 * @param name 索引名
+	 * @param value 索引值(多值索引为完整的索引值数组)
+	 * @param listener 监听器
+	 */
+	public void addIndexListener(String name, Object value, StorageListener<K, V> listener) {
+		isReady();
+		IndexGetter getter = indexGetters.get(name);
+		if (getter == null) {
+			FormattingTuple message = MessageFormatter.format("静态资源[{}]的索引[{}]不存在", getClz().getName(), name);
+			logger.error(message.getMessage());
+			throw new IllegalArgumentException(message.getMessage());
+		}
+		Object indexKey = value instanceof Object[] ? getter.toKey((Object[]) value) : getter.toKey(value);
+		listeners.addIndex(name, indexKey, listener);
+	}
+
+	/**
+	 * 移除监听器
+	 * @param listener 监听器
+	 */
+	public void removeListener(StorageListener<K, V> listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * 设置监听器的通知执行器,未设置时在加载线程中通知
+	 * @param executor 通知执行器
+	 */
+	public void setListenerExecutor(Executor executor) {
+		listeners.setExecutor(executor);
 	}
 
 	/**
 	 * 重新加载静态资源
+	 * <p>新数据在独立的存储空间中构建,完成后一次性替换当前快照,加载期间的读取操作不会被阻塞</p>
+	 * <p>按主键与当前快照比较,内容未变化的资源实例直接重用(不再注入和校验),变化较少时只重建受影响的索引列表,
+	 * 监听器收到的通知参数为{@link ChangeSet}</p>
+	 * <p>资源类声明了 equals 方法时使用该方法判断内容是否变化,否则比较全部非静态属性(包括 transient 属性,不包括注入属性),
+	 * 见{@link ChangeDetector}</p>
+	 * <p>堆外存储({@link StoreType#OFF_HEAP})读取的资源实例直接编码到列缓冲区,不在堆中保留全部资源实例</p>
+	 * @throws IllegalStateException 资源文件不存在或无法注入资源实例的属性值时抛出,当前快照保持不变
 	 */
 	@SuppressWarnings("unchecked")
 	public void reload() {
 		isReady();
-		writeLock.lock();
+		reloadLock.lock();
 		InputStream input = null;
+		Iterator<V> it = null;
 		try {
-			// 数据校验bean
-			ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-			Validator validator = factory.getValidator();
-
 			// 获取数据源
 			final File file = new File(getLocation());
-			input = new FileInputStream(file);
-			// 获取存储空间
-			Iterator<V> it = reader.read(input, getClz());
-			clear();
+			// 获取存储空间(按需读取的迭代器边读取边处理)
+			if (reader instanceof FileResourceReader) {
+				it = ((FileResourceReader) reader).read(file, getClz());
+			} else {
+				input = new FileInputStream(file);
+				it = reader.read(input, getClz());
+			}
+			// 当前快照
+			StorageSnapshot<K, V> current = this.snapshot;
+			// 注入值每次加载只获取一次
+			InjectPlan injects = new InjectPlan(getClz(), resourceDefinition.getInjects(), applicationContext);
+			if (resourceDefinition.getStoreType() == StoreType.OFF_HEAP) {
+				reloadOffHeap(it, file.getName(), current, injects);
+				return;
+			}
+			ValueStore<K, V> currentValues = current.getValues();
+			// 新的存储空间
+			WritableValueStore<K, V> values = createValueStore(currentValues.size());
+			List<V> all = new ArrayList<V>(current.getAll().size());
+			// 变化内容
+			Set<K> added = new HashSet<K>();
+			Set<K> updated = new HashSet<K>();
+			Set<K> removed = new HashSet<K>();
+			List<V> oldRows = new ArrayList<V>();
+			List<V> newRows = new ArrayList<V>();
 			while (it.hasNext()) {
 				V obj = it.next();
-				// 注入 Spring 容器的内容
-				Set<InjectDefinition> injects = resourceDefinition.getInjects();
-				for (InjectDefinition inject : injects) {
-					Field field = inject.getField();
-					Object value = inject.getValue(applicationContext);
-					try {
-						field.set(obj, value);
-					} catch (Exception e) {
-						logger.error("设置静态对象[{}]属性[{}]时出现异常", new Object[] {
-							resourceDefinition.getClz().getSimpleName(), field.getName(), e });
-					}
-				}
-				// 静态数据是否合法的检查
-				if (resourceDefinition.isNeedValidate()) {
-					boolean pass = true;
-					String message = "";
-					try {
-						// validate
-						Set<ConstraintViolation<V>> violations = validator.validate(obj);
-						if (violations != null && violations.size() > 0) {
-							pass = false;
-							StringBuffer buf = new StringBuffer();
-							for(ConstraintViolation<V> violation: violations) {
-								buf.append(violation.getPropertyPath().toString() + "-");
-								buf.append(violation.getMessage() + "<BR>\n");
-							}
-							message = buf.toString();
-						}
-					} catch (Exception e) {
-						logger.error("静态数据校验时出现异常[{}:{}]", resourceDefinition.getClz().getSimpleName(), file.getName(), e);
-					} finally {
-						if (!pass) {
-							Object id = identifier.getValue(obj);
-							FormattingTuple logMsg = MessageFormatter.arrayFormat("静态数据校验不通过[{}:{}]主键id={}:{}",
-									new Object[]{resourceDefinition
-									.getClz().getSimpleName(), file.getName(), id, message});
-							logger.error(logMsg.getMessage());
-							throw new RuntimeException(logMsg.getMessage());
-						}
+				K id = (K) identifier.getValue(obj);
+				V prev = currentValues.get(id);
+				if (prev != null && detector.isSame(prev, obj)) {
+					// 内容未变化,重用原实例
+					obj = prev;
+				} else {
+					injects.inject(obj);
+					if (prev == null) {
+						added.add(id);
+					} else {
+						updated.add(id);
+						oldRows.add(prev);
 					}
+					newRows.add(obj);
 				}
 
-				if (put(obj) != null) {
+				all.add(obj);
+				if (values.put(obj) != null) {
 					FormattingTuple message = MessageFormatter.format("静态数据唯一标识重复[{},{}]内容:[{}]",
 							new Object[]{getClz(), file.getName(),
 							JsonUtils.object2JsonString(obj)});
@@ -281,19 +547,33 @@ public class Storage<K, V> extends Observable implements ApplicationContextAware
 					throw new IllegalStateException(message.getMessage());
 				}
 			}
-			// 对排序索引进行排序
-			for (Entry<String, Map<Object, List<V>>> entry : indexs.entrySet()) {
-				String key = entry.getKey();
-				IndexGetter getter = indexGetters.get(key);
-				if (getter.hasComparator()) {
-					for (List<V> values : entry.getValue().values()) {
-						Collections.sort(values, getter.getComparator());
-					}
+			// 静态数据是否合法的检查(只校验新增和变化的资源实例)
+			if (resourceDefinition.isNeedValidate()) {
+				ResourceValidator.validate(getClz(), file.getName(), newRows, identifier);
+			}
+			// 已删除的资源
+			for (V obj : current.getAll()) {
+				K id = (K) identifier.getValue(obj);
+				if (!values.containsKey(id)) {
+					removed.add(id);
+					oldRows.add(obj);
 				}
 			}
-			// 通知监听器
-			this.setChanged();
-			this.notifyObservers();
+			ChangeSet<K> changes = new ChangeSet<K>(added, updated, removed);
+
+			// 替换快照
+			IndexPatcher<V> patcher = new IndexPatcher<V>(getClz(), all, oldRows, newRows);
+			if (current.getAll().isEmpty() || changes.size() * INCREMENTAL_RATIO > all.size()
+					|| !patcher.isOrderKept(current.getAll())) {
+				this.snapshot = buildSnapshot(values, all);
+			} else if (!changes.isEmpty()) {
+				this.snapshot = patchSnapshot(current, patcher, values, all);
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("静态资源[{}]重新加载完成,{}", getClz().getSimpleName(), changes);
+			}
+			// 通知受影响的监听器
+			listeners.fire(this, changes, getChangedIndexKeys(oldRows, newRows));
 		} catch (IOException e) {
 			FormattingTuple message = MessageFormatter.format("静态资源[{}]所对应的资源文件[{}]不存在", getClz().getName(),
 					getLocation());
@@ -304,16 +584,222 @@ public class Storage<K, V> extends Observable implements ApplicationContextAware
 			logger.error(message.getMessage());
 			throw new IllegalStateException(message.getMessage(), e);
 		} finally {
+			if (it instanceof Closeable) {
+				try {
+					((Closeable) it).close();
+				} catch (Exception e) {
+				}
+			}
 			if (input != null) {
 				try {
 					input.close();
 				} catch (Exception e) {
 				}
 			}
-			writeLock.unlock();
+			reloadLock.unlock();
+		}
+	}
+
+	/**
+	 * 获取变化涉及的索引键(只计算已登记监听器的索引)
+	 * @param oldRows 修改前和已删除的资源实例
+	 * @param newRows 新增和修改后的资源实例
+	 * @return 索引名 - 索引键
+	 */
+	private Map<String, Set<Object>> getChangedIndexKeys(List<V> oldRows, List<V> newRows) {
+		Set<String> names = listeners.getIndexNames();
+		if (names.isEmpty() || (oldRows.isEmpty() && newRows.isEmpty())) {
+			return Collections.emptyMap();
+		}
+		Map<String, Set<Object>> result = new HashMap<String, Set<Object>>();
+		for (V obj : oldRows) {
+			collectIndexKeys(result, names, obj);
+		}
+		for (V obj : newRows) {
+			collectIndexKeys(result, names, obj);
+		}
+		return result;
+	}
+
+	/**
+	 * 记录资源实例涉及的索引键
+	 * @param result 索引名 - 索引键
+	 * @param names 需要计算的索引名
+	 * @param obj 资源实例
+	 */
+	private void collectIndexKeys(Map<String, Set<Object>> result, Set<String> names, V obj) {
+		for (String name : names) {
+			Set<Object> keys = result.get(name);
+			if (keys == null) {
+				keys = new HashSet<Object>();
+				result.put(name, keys);
+			}
+			keys.add(indexGetters.get(name).getValue(obj));
 		}
 	}
 
+	/**
+	 * 重新加载堆外存储的静态资源
+	 * <p>读取的资源实例与当前快照比较后立即编码,只有新增和变化的资源实例会被注入,并按批校验;
+	 * 当前快照中的资源实例只在比较时创建一次,已删除的资源按主键查找,只为已删除的主键创建资源实例</p>
+	 * @param it 资源实例迭代器
+	 * @param fileName 资源文件名(用于日志)
+	 * @param current 当前快照
+	 * @param injects 注入计划
+	 */
+	@SuppressWarnings("unchecked")
+	private void reloadOffHeap(Iterator<V> it, String fileName, StorageSnapshot<K, V> current, InjectPlan injects) {
+		ValueStore<K, V> currentValues = current.getValues();
+		boolean validate = resourceDefinition.isNeedValidate();
+		Set<String> names = listeners.getIndexNames();
+		OffHeapBuilder<K, V> builder = new OffHeapBuilder<K, V>(getClz(), fileName, identifier, indexGetters,
+				currentValues.size());
+		// 变化内容
+		Set<K> added = new HashSet<K>();
+		Set<K> updated = new HashSet<K>();
+		Set<K> removed = new HashSet<K>();
+		Map<String, Set<Object>> indexKeys = new HashMap<String, Set<Object>>();
+		// 等待校验的资源实例
+		List<V> newRows = new ArrayList<V>();
+		// 仍然存在的原有资源数量
+		int kept = 0;
+		while (it.hasNext()) {
+			V obj = it.next();
+			K id = (K) identifier.getValue(obj);
+			V prev = currentValues.get(id);
+			if (prev != null) {
+				kept++;
+			}
+			if (prev == null || !detector.isSame(prev, obj)) {
+				injects.inject(obj);
+				if (prev == null) {
+					added.add(id);
+				} else {
+					updated.add(id);
+					collectIndexKeys(indexKeys, names, prev);
+				}
+				collectIndexKeys(indexKeys, names, obj);
+				if (validate) {
+					newRows.add(obj);
+					if (newRows.size() >= VALIDATE_BATCH) {
+						ResourceValidator.validate(getClz(), fileName, newRows, identifier);
+						newRows.clear();
+					}
+				}
+			}
+			builder.add(obj);
+		}
+		if (validate) {
+			ResourceValidator.validate(getClz(), fileName, newRows, identifier);
+		}
+		StorageSnapshot<K, V> built = builder.build(injects);
+		// 已删除的资源(原有资源都仍然存在时不需要查找)
+		ValueStore<K, V> values = built.getValues();
+		if (kept < currentValues.size()) {
+			List<V> oldRows = currentValues instanceof OffHeapValueStore
+					? ((OffHeapValueStore<K, V>) currentValues).getMissing((OffHeapValueStore<K, V>) values)
+					: current.getAll();
+			for (V obj : oldRows) {
+				K id = (K) identifier.getValue(obj);
+				if (!values.containsKey(id)) {
+					removed.add(id);
+					collectIndexKeys(indexKeys, names, obj);
+				}
+			}
+		}
+		ChangeSet<K> changes = new ChangeSet<K>(added, updated, removed);
+
+		// 替换快照
+		if (current.getAll().isEmpty() || !changes.isEmpty()) {
+			this.snapshot = built;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("静态资源[{}]使用堆外存储空间重新加载完成,数量:{},{}",
+					new Object[] { getClz().getSimpleName(), values.size(), changes });
+		}
+		// 通知受影响的监听器
+		listeners.fire(this, changes, indexKeys);
+	}
+
+	/**
+	 * 完整构建快照
+	 * @param values 主存储空间
+	 * @param all 全部资源实例
+	 * @return
+	 */
+	private StorageSnapshot<K, V> buildSnapshot(WritableValueStore<K, V> values, List<V> all) {
+		Map<String, Map<Object, List<V>>> indexs = new HashMap<String, Map<Object, List<V>>>();
+		Map<String, PrefixIndex<V>> prefixes = new HashMap<String, PrefixIndex<V>>();
+		Map<String, Map<Object, V>> uniques = new HashMap<String, Map<Object, V>>();
+		for (V obj : all) {
+			putIndex(obj, indexs, prefixes, uniques);
+		}
+		// 对排序索引进行排序
+		for (Entry<String, Map<Object, List<V>>> entry : indexs.entrySet()) {
+			String key = entry.getKey();
+			IndexGetter getter = indexGetters.get(key);
+			if (getter.hasComparator()) {
+				@SuppressWarnings("unchecked")
+				Comparator<V> comparator = getter.getComparator();
+				for (List<V> list : entry.getValue().values()) {
+					Collections.sort(list, comparator);
+				}
+			}
+		}
+		for (Entry<String, PrefixIndex<V>> entry : prefixes.entrySet()) {
+			IndexGetter getter = indexGetters.get(entry.getKey());
+			if (getter.hasComparator()) {
+				entry.getValue().sort(getter.getComparator());
+			}
+		}
+		// 构建排序索引
+		Map<String, SortedIndex<V>> sorteds = new HashMap<String, SortedIndex<V>>();
+		for (IndexGetter getter : indexGetters.values()) {
+			if (getter.isSorted()) {
+				sorteds.put(getter.getName(), SortedIndex.build(getter, all));
+			}
+		}
+		return new StorageSnapshot<K, V>(selectLayout(values), all, indexs, prefixes, uniques, sorteds);
+	}
+
+	/**
+	 * 在当前快照的基础上构建快照,只重建受变化资源实例影响的索引列表,排序索引整体重建
+	 * @param current 当前快照
+	 * @param patcher 索引增量更新器
+	 * @param values 主存储空间
+	 * @param all 全部资源实例
+	 * @return
+	 */
+	private StorageSnapshot<K, V> patchSnapshot(StorageSnapshot<K, V> current, IndexPatcher<V> patcher,
+												WritableValueStore<K, V> values, List<V> all) {
+		Map<String, Map<Object, List<V>>> indexs = new HashMap<String, Map<Object, List<V>>>();
+		Map<String, PrefixIndex<V>> prefixes = new HashMap<String, PrefixIndex<V>>();
+		Map<String, Map<Object, V>> uniques = new HashMap<String, Map<Object, V>>();
+		Map<String, SortedIndex<V>> sorteds = new HashMap<String, SortedIndex<V>>();
+		for (IndexGetter getter : indexGetters.values()) {
+			String name = getter.getName();
+			if (getter.isUnique()) {
+				uniques.put(name, patcher.patchUnique(getter, current.getUniques().get(name)));
+			} else if (current.getPrefixes().containsKey(name)) {
+				prefixes.put(name, patcher.patchPrefix(getter, current.getPrefixes().get(name)));
+			} else {
+				indexs.put(name, patcher.patchIndex(getter, current.getIndexs().get(name)));
+			}
+			if (getter.isSorted()) {
+				sorteds.put(name, SortedIndex.build(getter, all));
+			}
+		}
+		return new StorageSnapshot<K, V>(selectLayout(values), all, indexs, prefixes, uniques, sorteds);
+	}
+
+	/**
+	 * 获取当前快照
+	 * @return
+	 */
+	StorageSnapshot<K, V> getSnapshot() {
+		return snapshot;
+	}
+
 	/**
 	 * 检查是否已经初始化完成
 	 * @return
@@ -345,49 +831,85 @@ public class Storage<K, V> extends Observable implements ApplicationContextAware
 	}
 
 	/**
-	 * 清空全部存储空间
+	 * 创建主存储空间,int/long 类型主键使用无装箱的存储空间
+	 * @param expectedSize 预期数量
+	 * @return
 	 */
-	private void clear() {
-		values.clear();
-		indexs.clear();
-		uniques.clear();
+	private WritableValueStore<K, V> createValueStore(int expectedSize) {
+		if (identifier instanceof IntGetter) {
+			return new IntValueStore<K, V>((IntGetter) identifier, expectedSize);
+		}
+		if (identifier instanceof LongGetter) {
+			return new LongValueStore<K, V>((LongGetter) identifier, expectedSize);
+		}
+		return new HashValueStore<K, V>(getClz(), identifier, expectedSize);
 	}
 
-	private V put(V value) {
-		// 唯一标识处理
-		@SuppressWarnings("unchecked")
-		K key = (K) identifier.getValue(value);
-		if (key == null) {
-			FormattingTuple message = MessageFormatter.format("静态资源[{}]主键标识属性不能为null", getClz().getName());
-			logger.error(message.getMessage());
-			throw new RuntimeException(message.getMessage());
+	/**
+	 * 根据主键分布选择主存储空间结构,连续的 int 主键转换为数组存储空间
+	 * @param values 加载完成的主存储空间
+	 * @return
+	 */
+	private ValueStore<K, V> selectLayout(WritableValueStore<K, V> values) {
+		StoreType storeType = resourceDefinition.getStoreType();
+		if (storeType == StoreType.HASH || !(values instanceof IntValueStore)) {
+			if (storeType == StoreType.ARRAY) {
+				logger.warn("静态资源[{}]的主键不是int类型,无法使用数组存储空间", getClz().getName());
+			}
+			return values;
+		}
+		IntValueStore<K, V> store = (IntValueStore<K, V>) values;
+		long span = store.getSpan();
+		if (span == 0) {
+			return values;
+		}
+		if (storeType == StoreType.ARRAY
+				&& (span > ArrayValueStore.MAX_SPAN || !ArrayValueStore.isAcceptable(store.size(), span))) {
+			logger.warn("静态资源[{}]的主键过于稀疏(数量:{},主键跨度:{}),无法使用数组存储空间,改用散列表",
+					new Object[] { getClz().getName(), store.size(), span });
+			return values;
 		}
-		V result = values.put(key, value);
+		if (span > ArrayValueStore.MAX_SPAN) {
+			return values;
+		}
+		if (storeType == StoreType.ARRAY || ArrayValueStore.isDense(store.size(), span)) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("静态资源[{}]使用数组存储空间,数量:{},主键跨度:{}",
+						new Object[] { getClz().getSimpleName(), store.size(), span });
+			}
+			return store.toArrayStore();
+		}
+		return values;
+	}
 
+	private void putIndex(V value, Map<String, Map<Object, List<V>>> indexs,
+						  Map<String, PrefixIndex<V>> prefixes, Map<String, Map<Object, V>> uniques) {
 		// 索引处理
 		for (IndexGetter getter : indexGetters.values()) {
 			String name = getter.getName();
 			Object indexKey = getter.getValue(value);
 			// 索引内容存储
 			if (getter.isUnique()) {
-				Map<Object, V> index = loadUniqueIndex(name);
+				Map<Object, V> index = loadUniqueIndex(uniques, name);
 				if (index.put(indexKey, value) != null) {
-					FormattingTuple message = new FormattingTuple("[{}]资源的唯一索引[{}]的值[{}]重复", new Object[] {
-						getClz().getName(), name, indexKey }, null);
+					FormattingTuple message = MessageFormatter.arrayFormat("[{}]资源的唯一索引[{}]的值[{}]重复", new Object[] {
+						getClz().getName(), name, indexKey });
 					logger.debug(message.getMessage());
 					throw new RuntimeException(message.getMessage());
 				}
+			} else if (indexKey instanceof CompositeKey) {
+				// 多值索引使用前缀树
+				PrefixIndex<V> index = loadPrefixIndex(prefixes, name);
+				index.add((CompositeKey) indexKey, value);
 			} else {
-				List<V> index = loadListIndex(name, indexKey);
+				List<V> index = loadListIndex(indexs, name, indexKey);
 				index.add(value);
 			}
 		}
-
-		return result;
 	}
 
-	private List<V> loadListIndex(String name, Object key) {
-		Map<Object, List<V>> index = loadListIndex(name);
+	private List<V> loadListIndex(Map<String, Map<Object, List<V>>> indexs, String name, Object key) {
+		Map<Object, List<V>> index = loadListIndex(indexs, name);
 		if (index.containsKey(key)) {
 			return index.get(key);
 		}
@@ -397,7 +919,7 @@ public class Storage<K, V> extends Observable implements ApplicationContextAware
 		return result;
 	}
 
-	private Map<Object, List<V>> loadListIndex(String name) {
+	private Map<Object, List<V>> loadListIndex(Map<String, Map<Object, List<V>>> indexs, String name) {
 		if (indexs.containsKey(name)) {
 			return indexs.get(name);
 		}
@@ -407,7 +929,17 @@ public class Storage<K, V> extends Observable implements ApplicationContextAware
 		return result;
 	}
 
-	private Map<Object, V> loadUniqueIndex(String name) {
+	private PrefixIndex<V> loadPrefixIndex(Map<String, PrefixIndex<V>> prefixes, String name) {
+		if (prefixes.containsKey(name)) {
+			return prefixes.get(name);
+		}
+
+		PrefixIndex<V> result = new PrefixIndex<V>();
+		prefixes.put(name, result);
+		return result;
+	}
+
+	private Map<Object, V> loadUniqueIndex(Map<String, Map<Object, V>> uniques, String name) {
 		if (uniques.containsKey(name)) {
 			return uniques.get(name);
 		}
@@ -0,0 +1,19 @@
+package com.concur.basesource.storage;
+
+/**
+ * 存储空间变更监听器
+ * <p>通过{@link Storage#addListener(StorageListener)}监听整个存储空间,或通过
+ * {@link Storage#addListener(Object, StorageListener)}、{@link Storage#addIndexListener(String, Object, StorageListener)}
+ * 只监听指定主键或索引值;每次重新加载最多通知一次</p>
+ * @author frank
+ */
+public interface StorageListener<K, V> {
+
+	/**
+	 * 存储空间重新加载完成
+	 * @param storage 存储空间(已替换为新的内容)
+	 * @param changes 本次加载的变更集合
+	 */
+	void onChange(Storage<K, V> storage, ChangeSet<K> changes);
+
+}
@@ -3,6 +3,10 @@ package com.concur.basesource.storage;
 import com.concur.basesource.convertor.files.monitor.FileAlterationListener;
 import com.concur.basesource.convertor.files.monitor.FileAlterationMonitor;
 import com.concur.basesource.convertor.files.monitor.FileAlterationObserver;
+import com.concur.basesource.convertor.files.monitor.FileMonitor;
+import com.concur.basesource.convertor.files.monitor.WatchServiceMonitor;
+import com.concur.basesource.reader.WorkbookLoader;
+import com.concur.unity.thread.NamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.helpers.FormattingTuple;
@@ -13,11 +17,19 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -32,15 +44,26 @@ public class StorageManager implements ApplicationContextAware, FileAlterationLi
 	/** 静态类资源定义 */
 	private ConcurrentHashMap<String, ResourceDefinition> definitions =
 		new ConcurrentHashMap<String, ResourceDefinition>();
-	/** 资源存储空间 */
+	/** 资源存储空间(只保存初始化完成的存储空间) */
 	private ConcurrentHashMap<Class<?>, Storage<?, ?>> storages = 
 		new ConcurrentHashMap<Class<?>, Storage<?,?>>();
-	/** 文件列表映射 */
-	private Map<String, Class<?>> resourceMap = new HashMap<String, Class<?>>();
+	/** 正在初始化的存储空间,同一个类资源只初始化一次,其他线程等待初始化完成 */
+	private final ConcurrentHashMap<Class<?>, LoadingTask> loadings =
+		new ConcurrentHashMap<Class<?>, LoadingTask>();
+	/** 资源文件 - 文件中的资源类 */
+	private Map<String, List<Class<?>>> resourceMap = new HashMap<String, List<Class<?>>>();
 	/** 资源文件路径 */
 	private String resourcePath;
-	/** 文件变更监听器 */
-	private FileAlterationMonitor fileAlterationMonitor;
+	/** 文件变更监视器 */
+	private FileMonitor fileMonitor;
+	/** 热加载等待时间(毫秒) */
+	private long reloadDelay = 1000;
+	/** 热加载线程数量,小于等于0时使用CPU核数 */
+	private int reloadThreads;
+	/** 热加载调度器,开始监听文件变化时创建 */
+	private ReloadScheduler reloadScheduler;
+	/** 启动期间的加载周期,设置后初始化存储空间和预加载时共用同一文件的解析结果 */
+	private volatile WorkbookLoader workbooks;
 
 	/**
 	 * 初始化静态类资源
@@ -73,6 +96,71 @@ public class StorageManager implements ApplicationContextAware, FileAlterationLi
 		storage.reload();
 	}
 
+	/**
+	 * 并行预加载全部静态资源,全部加载完成后才返回
+	 * @param threads 线程数量,小于等于0时使用CPU核数
+	 * @throws IllegalStateException 任意资源加载失败时抛出
+	 */
+	public void preload(int threads) {
+		List<ResourceDefinition> list = new ArrayList<ResourceDefinition>(definitions.values());
+		if (list.isEmpty()) {
+			return;
+		}
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		threads = Math.min(threads, list.size());
+
+		long start = System.nanoTime();
+		ThreadGroup threadGroup = new ThreadGroup("静态资源预加载");
+		ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new NamedThreadFactory(threadGroup, "静态资源预加载线程池"));
+		// 同一个Excel文件中的资源类共用解析结果,没有启动期间的加载周期时使用独立的加载周期
+		final boolean own = this.workbooks == null;
+		final WorkbookLoader cycle = own ? new WorkbookLoader() : this.workbooks;
+		try {
+			List<Future<Long>> futures = new ArrayList<Future<Long>>(list.size());
+			for (final ResourceDefinition definition : list) {
+				futures.add(executor.submit(new Callable<Long>() {
+					@Override
+					public Long call() throws Exception {
+						long begin = System.nanoTime();
+						WorkbookLoader prev = cycle.bind();
+						try {
+							getStorage(definition.getClz());
+						} finally {
+							WorkbookLoader.unbind(prev);
+						}
+						return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+					}
+				}));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				Class<?> clz = list.get(i).getClz();
+				try {
+					Long cost = futures.get(i).get();
+					logger.info("静态资源[{}]预加载完成,耗时:{}ms", clz.getSimpleName(), cost);
+				} catch (ExecutionException e) {
+					FormattingTuple message = MessageFormatter.format("静态资源[{}]预加载失败", clz.getName());
+					logger.error(message.getMessage(), e.getCause());
+					throw new IllegalStateException(message.getMessage(), e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					FormattingTuple message = MessageFormatter.format("静态资源[{}]预加载被中断", clz.getName());
+					logger.error(message.getMessage());
+					throw new IllegalStateException(message.getMessage(), e);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			if (own) {
+				cycle.close();
+			}
+		}
+		logger.warn("静态资源预加载完成,数量:{},线程数:{},耗时:{}ms", new Object[] { list.size(), threads,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) });
+	}
+
 	/**
 	 * 监听文件变化
 	 * @param resourcePath 监听路径
@@ -89,25 +177,95 @@ public class StorageManager implements ApplicationContextAware, FileAlterationLi
 			return;
 		}
 
-		/** 文件更新监视器 */
-		this.fileAlterationMonitor = new FileAlterationMonitor(3 * 1000);
+		// 停止之前的监视器
+		if (this.fileMonitor != null) {
+			try {
+				this.fileMonitor.stop();
+			} catch (Exception e) {
+				logger.error("停止静态资源文件监视器时出现异常", e);
+			}
+		}
+		if (this.reloadScheduler == null) {
+			this.reloadScheduler = new ReloadScheduler(this, reloadDelay, reloadThreads);
+		}
+		this.fileMonitor = createFileMonitor(path);
 		try {
-			this.fileAlterationMonitor.start();
+			this.fileMonitor.start();
 		} catch (Exception e) {
-			e.printStackTrace();
+			logger.error("无法监听静态资源路径[{}]", resourcePath, e);
+		}
+	}
+
+	/**
+	 * 停止监听文件变化,关闭热加载和校验使用的线程池
+	 */
+	public void destroy() {
+		if (this.fileMonitor != null) {
+			try {
+				this.fileMonitor.stop();
+			} catch (Exception e) {
+				logger.error("停止静态资源文件监视器时出现异常", e);
+			}
+			this.fileMonitor = null;
 		}
-		// 清理文件监听器
-		for (FileAlterationObserver observer : this.fileAlterationMonitor.getObservers()) {
-			this.fileAlterationMonitor.removeObserver(observer);
+		if (this.reloadScheduler != null) {
+			this.reloadScheduler.shutdown();
+			this.reloadScheduler = null;
 		}
+		ResourceValidator.shutdown();
+	}
 
+	/**
+	 * 创建文件监视器,支持文件系统事件时使用{@link WatchServiceMonitor},否则每3秒轮询一次
+	 * @param path 监听路径
+	 * @return
+	 */
+	private FileMonitor createFileMonitor(File path) {
+		// 先确认 JDK 提供 WatchService,再加载引用了它的 WatchServiceMonitor
+		if (hasWatchService()) {
+			FileMonitor monitor = createWatchServiceMonitor(path);
+			if (monitor != null) {
+				return monitor;
+			}
+		}
+		FileAlterationMonitor monitor = new FileAlterationMonitor(3 * 1000);
 		FileAlterationObserver observer = new FileAlterationObserver(path, false);
+		observer.addListener(this);
+		monitor.addObserver(observer);
+		return monitor;
+	}
+
+	/**
+	 * JDK 是否提供{@link java.nio.file.WatchService}(JDK 7 以上)
+	 * @return
+	 */
+	private static boolean hasWatchService() {
 		try {
-			observer.initialize();
-			this.fileAlterationMonitor.addObserver(observer);
-			observer.addListener(this);
-		} catch (Exception e) {
-			e.printStackTrace();
+			Class.forName("java.nio.file.WatchService");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 创建基于文件系统事件的监视器,只在{@link #hasWatchService()}返回true时调用
+	 * @param path 监听路径
+	 * @return 当前平台不支持或无法创建时返回null
+	 */
+	private FileMonitor createWatchServiceMonitor(File path) {
+		if (!WatchServiceMonitor.isSupported()) {
+			return null;
+		}
+		try {
+			FileMonitor monitor = new WatchServiceMonitor(path, this);
+			logger.info("使用文件系统事件监听静态资源路径[{}]", path);
+			return monitor;
+		} catch (IOException e) {
+			logger.warn("无法创建文件系统事件监视器,改为轮询监听静态资源路径[{}]", path, e);
+			return null;
 		}
 	}
 
@@ -123,8 +281,9 @@ public class StorageManager implements ApplicationContextAware, FileAlterationLi
 	 * @return
 	 */
 	public Storage<?, ?> getStorage(Class clz) {
-		if (storages.containsKey(clz)) {
-			return storages.get(clz);
+		Storage<?, ?> storage = storages.get(clz);
+		if (storage != null) {
+			return storage;
 		}
 		return initializeStorage(clz);
 	}
@@ -142,25 +301,102 @@ public class StorageManager implements ApplicationContextAware, FileAlterationLi
 	}
 
 	/**
-	 * 初始化类资源的存储空间
+	 * 初始化类资源的存储空间,初始化(加载资源)完成后才放入{@link #storages}
+	 * <p>并发获取同一个类资源时只有一个线程执行初始化,其他线程等待初始化完成,不会获取到未加载的存储空间</p>
 	 * @param clz 类实例
 	 * @return
+	 * @throws IllegalStateException 资源定义不存在、初始化时循环获取自身或初始化被中断时抛出
 	 */
-	private Storage initializeStorage(Class clz) {
-		ResourceDefinition definition = this.definitions.get(clz.getName());
+	private Storage initializeStorage(final Class clz) {
+		final ResourceDefinition definition = this.definitions.get(clz.getName());
 		if (definition == null) {
 			FormattingTuple message = MessageFormatter.format("静态资源[{}]的信息定义不存在，可能是配置缺失", clz.getSimpleName());
 			logger.error(message.getMessage());
 			throw new IllegalStateException(message.getMessage());
 		}
-		AutowireCapableBeanFactory beanFactory = this.applicationContext.getAutowireCapableBeanFactory();
-		Storage storage = beanFactory.createBean(Storage.class);
-		
-		Storage prev = storages.putIfAbsent(clz, storage);
+		LoadingTask task = new LoadingTask(new Callable<Storage<?, ?>>() {
+			@Override
+			public Storage<?, ?> call() throws Exception {
+				AutowireCapableBeanFactory beanFactory = applicationContext.getAutowireCapableBeanFactory();
+				Storage storage = beanFactory.createBean(Storage.class);
+				WorkbookLoader cycle = workbooks;
+				WorkbookLoader prev = cycle == null ? null : cycle.bind();
+				try {
+					storage.initialize(definition);
+				} finally {
+					if (cycle != null) {
+						WorkbookLoader.unbind(prev);
+					}
+				}
+				storages.put(clz, storage);
+				return storage;
+			}
+		});
+		LoadingTask prev = loadings.putIfAbsent(clz, task);
 		if (prev == null) {
-			storage.initialize(definition);
+			try {
+				task.run();
+			} finally {
+				loadings.remove(clz, task);
+			}
+		} else if (prev.isRunningIn(Thread.currentThread())) {
+			FormattingTuple message = MessageFormatter.format("静态资源[{}]初始化时获取了自身的存储空间(循环依赖)", clz.getName());
+			logger.error(message.getMessage());
+			throw new IllegalStateException(message.getMessage());
+		} else {
+			task = prev;
+		}
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			FormattingTuple message = MessageFormatter.format("静态资源[{}]初始化失败", clz.getName());
+			logger.error(message.getMessage(), cause);
+			throw new IllegalStateException(message.getMessage(), cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			FormattingTuple message = MessageFormatter.format("等待静态资源[{}]初始化时被中断", clz.getName());
+			logger.error(message.getMessage());
+			throw new IllegalStateException(message.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 存储空间初始化任务,记录执行初始化的线程
+	 */
+	private static final class LoadingTask extends FutureTask<Storage<?, ?>> {
+
+		/** 执行初始化的线程 */
+		private volatile Thread thread;
+
+		LoadingTask(Callable<Storage<?, ?>> callable) {
+			super(callable);
+		}
+
+		@Override
+		public void run() {
+			thread = Thread.currentThread();
+			try {
+				super.run();
+			} finally {
+				thread = null;
+			}
+		}
+
+		/**
+		 * 是否正在指定线程中执行初始化
+		 * @param current 线程
+		 * @return
+		 */
+		boolean isRunningIn(Thread current) {
+			return thread == current;
 		}
-		return prev == null ? storage : prev;
 	}
 
 	// 实现接口的方法
@@ -180,14 +416,30 @@ public class StorageManager implements ApplicationContextAware, FileAlterationLi
 		this.storages.clear();
 	}
 
-	public Map<String, Class<?>> getResourceMap() {
+	public Map<String, List<Class<?>>> getResourceMap() {
 		return resourceMap;
 	}
 
-	public void setResourceMap(Map<String, Class<?>> resourceMap) {
+	public void setResourceMap(Map<String, List<Class<?>>> resourceMap) {
 		this.resourceMap = resourceMap;
 	}
 
+	public void setReloadDelay(long reloadDelay) {
+		this.reloadDelay = reloadDelay;
+	}
+
+	public void setReloadThreads(int reloadThreads) {
+		this.reloadThreads = reloadThreads;
+	}
+
+	/**
+	 * 设置启动期间的加载周期,之后初始化的存储空间共用同一文件的解析结果;加载周期由调用方结束
+	 * @param workbooks 加载周期,为null时不再使用
+	 */
+	public void setWorkbooks(WorkbookLoader workbooks) {
+		this.workbooks = workbooks;
+	}
+
 	public String getResourcePath() {
 		return resourcePath;
 	}
@@ -215,19 +467,32 @@ public class StorageManager implements ApplicationContextAware, FileAlterationLi
 	@Override
 	public void onFileCreate(File file) {
 		logger.warn("监听到添加静态资源文件:{}", file.getName());
-		Class<?> cls = resourceMap.get(file.getAbsolutePath());
-		if (cls != null) {
-			this.reload(cls);
-		}
+		scheduleReload(file);
 	}
 
 	@Override
 	public void onFileChange(File file) {
 		logger.warn("监听到更改静态资源文件:{}", file.getName());
-		Class<?> cls = resourceMap.get(file.getAbsolutePath());
-		if (cls != null) {
-			this.reload(cls);
+		scheduleReload(file);
+	}
+
+	/**
+	 * 合并文件变化后重新加载文件中的全部资源类
+	 * @param file 资源文件
+	 */
+	private void scheduleReload(File file) {
+		List<Class<?>> classes = resourceMap.get(file.getAbsolutePath());
+		if (classes == null || classes.isEmpty()) {
+			return;
+		}
+		ReloadScheduler scheduler = this.reloadScheduler;
+		if (scheduler == null) {
+			for (Class<?> clz : classes) {
+				this.reload(clz);
+			}
+			return;
 		}
+		scheduler.schedule(classes);
 	}
 
 	@Override
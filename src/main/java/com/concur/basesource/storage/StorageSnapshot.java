@@ -0,0 +1,111 @@
+package com.concur.basesource.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * 存储空间数据快照
+ * <p>快照构建完成后不再修改,{@link Storage}通过替换快照引用完成重新加载,读取时无需加锁</p>
+ * @author frank
+ */
+class StorageSnapshot<K, V> {
+
+	/** 空快照 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static final StorageSnapshot EMPTY = new StorageSnapshot(new HashValueStore(Object.class, null, 0),
+			new ArrayList(0), new HashMap(), new HashMap(), new HashMap(), new HashMap());
+
+	/** 主存储空间 */
+	private final ValueStore<K, V> values;
+	/** 全部资源实例(只读,按加载顺序) */
+	private final List<V> all;
+	/** 索引存储空间 */
+	private final Map<String, Map<Object, List<V>>> indexs;
+	/** 唯一值存储空间 */
+	private final Map<String, Map<Object, V>> uniques;
+	/** 多值索引存储空间(前缀树) */
+	private final Map<String, PrefixIndex<V>> prefixes;
+	/** 排序索引存储空间 */
+	private final Map<String, SortedIndex<V>> sorteds;
+
+	/**
+	 * 构造方法,传入的集合在构造后不能再被修改,索引列表会被冻结为只读列表
+	 * @param values 主存储空间
+	 * @param all 全部资源实例
+	 * @param indexs 索引存储空间
+	 * @param prefixes 多值索引存储空间
+	 * @param uniques 唯一值存储空间
+	 * @param sorteds 排序索引存储空间
+	 */
+	StorageSnapshot(ValueStore<K, V> values, List<V> all, Map<String, Map<Object, List<V>>> indexs,
+					Map<String, PrefixIndex<V>> prefixes, Map<String, Map<Object, V>> uniques,
+					Map<String, SortedIndex<V>> sorteds) {
+		this.values = values;
+		this.all = freeze(all);
+		for (Map<Object, List<V>> index : indexs.values()) {
+			for (Entry<Object, List<V>> bucket : index.entrySet()) {
+				bucket.setValue(freeze(bucket.getValue()));
+			}
+		}
+		this.indexs = indexs;
+		for (PrefixIndex<V> prefix : prefixes.values()) {
+			prefix.freeze();
+		}
+		this.prefixes = prefixes;
+		this.uniques = uniques;
+		this.sorteds = sorteds;
+	}
+
+	/**
+	 * 冻结索引列表,从上一个快照沿用的只读列表直接返回
+	 * @param list 索引列表
+	 * @return 只读列表
+	 */
+	private static <V> List<V> freeze(List<V> list) {
+		if (!(list instanceof ArrayList)) {
+			return list;
+		}
+		((ArrayList<V>) list).trimToSize();
+		return Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * 获取空快照
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	static <K, V> StorageSnapshot<K, V> empty() {
+		return EMPTY;
+	}
+
+	// Getter ...
+
+	ValueStore<K, V> getValues() {
+		return values;
+	}
+
+	List<V> getAll() {
+		return all;
+	}
+
+	Map<String, Map<Object, List<V>>> getIndexs() {
+		return indexs;
+	}
+
+	Map<String, PrefixIndex<V>> getPrefixes() {
+		return prefixes;
+	}
+
+	Map<String, Map<Object, V>> getUniques() {
+		return uniques;
+	}
+
+	Map<String, SortedIndex<V>> getSorteds() {
+		return sorteds;
+	}
+
+}
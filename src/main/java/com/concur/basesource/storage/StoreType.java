@@ -0,0 +1,27 @@
+package com.concur.basesource.storage;
+
+/**
+ * 主存储空间结构
+ * @author frank
+ */
+public enum StoreType {
+
+	/** 加载时根据主键分布自动选择,连续的 int 主键使用数组,其余使用散列表 */
+	AUTO,
+
+	/** 散列表 */
+	HASH,
+
+	/** 以(主键 - 最小主键)为下标的数组,仅支持 int 类型主键;主键过于稀疏时仍使用散列表 */
+	ARRAY,
+
+	/**
+	 * 堆外列存储,资源实例按列编码保存在直接缓冲区中,索引只保存行号,查询时创建新的资源实例
+	 * <p>适用于行数很多的资源,加载时读取的资源实例直接编码,不在堆中保留全部实例</p>
+	 * <p>实例标识:{@link Storage#get(Object)}、索引列表的每个元素、唯一索引和排序索引的每次查询都会解码并注入一个新的实例,
+	 * 同一主键两次获取的实例不满足 ==,不能作为 IdentityHashMap/WeakHashMap 等按实例缓存的键,
+	 * 在实例上修改或缓存的内容也不会保留;需要判断是否同一资源时请比较主键</p>
+	 */
+	OFF_HEAP
+
+}
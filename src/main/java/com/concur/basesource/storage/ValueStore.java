@@ -0,0 +1,44 @@
+package com.concur.basesource.storage;
+
+/**
+ * 主存储空间
+ * <p>只读,构建快照时通过{@link WritableValueStore}写入</p>
+ * @author frank
+ */
+interface ValueStore<K, V> {
+
+	/**
+	 * 获取指定主键的资源实例
+	 * @param key 主键
+	 * @return 不存在时返回null
+	 */
+	V get(K key);
+
+	/**
+	 * 获取指定 int 主键的资源实例
+	 * @param key 主键
+	 * @return 不存在时返回null
+	 */
+	V getInt(int key);
+
+	/**
+	 * 获取指定 long 主键的资源实例
+	 * @param key 主键
+	 * @return 不存在时返回null
+	 */
+	V getLong(long key);
+
+	/**
+	 * 是否包含指定主键
+	 * @param key 主键
+	 * @return
+	 */
+	boolean containsKey(K key);
+
+	/**
+	 * 资源实例数量
+	 * @return
+	 */
+	int size();
+
+}
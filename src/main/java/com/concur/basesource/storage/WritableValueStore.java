@@ -0,0 +1,17 @@
+package com.concur.basesource.storage;
+
+/**
+ * 可写入的主存储空间
+ * <p>在构建快照时通过{@link #put(Object)}写入,快照发布后只读</p>
+ * @author frank
+ */
+interface WritableValueStore<K, V> extends ValueStore<K, V> {
+
+	/**
+	 * 添加资源实例,主键由存储空间的标识获取器获取
+	 * @param value 资源实例
+	 * @return 相同主键的旧实例,不存在时返回null
+	 */
+	V put(V value);
+
+}
@@ -8,7 +8,6 @@ import java.util.*;
 import com.concur.basesource.anno.StaticResource;
 import com.concur.basesource.convertor.task.ConvertTask;
 import com.concur.basesource.convertor.utils.SheetInfo;
-import com.concur.basesource.convertor.utils.SheetUtils;
 import com.concur.basesource.reader.*;
 import com.concur.basesource.storage.FormatDefinition;
 import com.concur.basesource.storage.ResourceDefinition;
@@ -16,7 +15,7 @@ import com.concur.basesource.storage.Storage;
 import com.concur.unity.utils.PathUtil;
 import com.concur.unity.utils.StringUtils;
 import org.apache.commons.io.FileUtils;
-import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.helpers.FormattingTuple;
@@ -64,12 +63,14 @@ public class ConfigDefinitionParser extends AbstractBeanDefinitionParser {
 		register(parserContext);
 
 		FormatDefinition format = parseFormat(element);
-		// 遍历资源文件夹
-        Map<String, String> files = getResourceFiles(format);
+		// 遍历资源文件夹,解析的工作簿交给 StorageManagerFactory 在启动期间继续使用
+		WorkbookLoader workbooks = new WorkbookLoader();
+        Map<String, String> files = getResourceFiles(format, workbooks);
 
 		// 要创建的对象信息
 		ManagedList<BeanDefinition> resources = new ManagedList<BeanDefinition>();
-		ManagedMap<String, Class<?>> resourceMap = new ManagedMap<String, Class<?>>();
+		// 资源文件 - 文件中的资源类(一个工作簿可以包含多个资源类)
+		Map<String, List<Class<?>>> resourceMap = new HashMap<String, List<Class<?>>>();
 
 		// 检查XML内容
 		NodeList child = element.getChildNodes();
@@ -98,7 +99,7 @@ public class ConfigDefinitionParser extends AbstractBeanDefinitionParser {
 					BeanDefinition definition = parseResource(clz, format, filePath);
 					resources.add(definition);
 
-					resourceMap.put(filePath, clz);
+					addResourceFile(resourceMap, filePath, clz);
 				}
 			}
 
@@ -118,16 +119,35 @@ public class ConfigDefinitionParser extends AbstractBeanDefinitionParser {
 				BeanDefinition definition = parseResource(clz, format, filePath);
 				resources.add(definition);
 
-				resourceMap.put(filePath, clz);
+				addResourceFile(resourceMap, filePath, clz);
 			}
 		}
 
 		BeanDefinitionBuilder factory = BeanDefinitionBuilder.rootBeanDefinition(StorageManagerFactory.class);
 		factory.addPropertyValue("definitions", resources);
 		factory.addPropertyValue("resourceMap", resourceMap);
+		factory.addPropertyValue("workbooks", workbooks);
 		String path = PathUtil.getCurrentWorkDirectory() +
 				StringUtils.replaceFirstLetter(format.getLocation(), "/");
 		factory.addPropertyValue("resourcePath", path);
+		// 预加载配置
+		String preload = element.getAttribute(SchemaNames.CONFIG_ATTRIBUTE_PRELOAD);
+		if (StringUtils.isNotBlank(preload)) {
+			factory.addPropertyValue("preload", Boolean.valueOf(preload));
+		}
+		String threads = element.getAttribute(SchemaNames.CONFIG_ATTRIBUTE_THREADS);
+		if (StringUtils.isNotBlank(threads)) {
+			factory.addPropertyValue("preloadThreads", Integer.valueOf(threads.trim()));
+		}
+		// 热加载配置
+		String reloadDelay = element.getAttribute(SchemaNames.CONFIG_ATTRIBUTE_RELOAD_DELAY);
+		if (StringUtils.isNotBlank(reloadDelay)) {
+			factory.addPropertyValue("reloadDelay", Long.valueOf(reloadDelay.trim()));
+		}
+		String reloadThreads = element.getAttribute(SchemaNames.CONFIG_ATTRIBUTE_RELOAD_THREADS);
+		if (StringUtils.isNotBlank(reloadThreads)) {
+			factory.addPropertyValue("reloadThreads", Integer.valueOf(reloadThreads.trim()));
+		}
 		AbstractBeanDefinition definition = factory.getBeanDefinition();
 
 		return definition;
@@ -207,6 +227,16 @@ public class ConfigDefinitionParser extends AbstractBeanDefinitionParser {
 		BeanDefinitionBuilder factory = BeanDefinitionBuilder.rootBeanDefinition(ExcelReader.class);
 		registry.registerBeanDefinition(name, factory.getBeanDefinition());
 
+		// 注册 ExcelStreamReader
+		name = StringUtils.uncapitalize(ExcelStreamReader.class.getSimpleName());
+		factory = BeanDefinitionBuilder.rootBeanDefinition(ExcelStreamReader.class);
+		registry.registerBeanDefinition(name, factory.getBeanDefinition());
+
+		// 注册 BinaryReader
+		name = StringUtils.uncapitalize(BinaryReader.class.getSimpleName());
+		factory = BeanDefinitionBuilder.rootBeanDefinition(BinaryReader.class);
+		registry.registerBeanDefinition(name, factory.getBeanDefinition());
+
 		// 注册 JsonReader
 		name = StringUtils.uncapitalize(JsonReader.class.getSimpleName());
 		factory = BeanDefinitionBuilder.rootBeanDefinition(JsonReader.class);
@@ -265,38 +295,105 @@ public class ConfigDefinitionParser extends AbstractBeanDefinitionParser {
 		}
 	}
 
+	/**
+	 * 记录资源文件中的资源类
+	 * @param resourceMap 资源文件 - 文件中的资源类
+	 * @param filePath 资源文件
+	 * @param clz 资源类
+	 */
+	private void addResourceFile(Map<String, List<Class<?>>> resourceMap, String filePath, Class<?> clz) {
+		if (filePath == null) {
+			return;
+		}
+		String path = new File(filePath).getAbsolutePath();
+		List<Class<?>> classes = resourceMap.get(path);
+		if (classes == null) {
+			classes = new ArrayList<Class<?>>();
+			resourceMap.put(path, classes);
+		}
+		classes.add(clz);
+	}
+
 	/**
 	 * 获取指定文件夹下的静态资源文件
 	 * @param format 包名
+	 * @param workbooks 解析 Excel 文件使用的加载周期
 	 * @return
 	 * @throws IOException
 	 */
-	private Map<String, String> getResourceFiles(FormatDefinition format) {
+	private Map<String, String> getResourceFiles(FormatDefinition format, WorkbookLoader workbooks) {
 		Map<String, String> result = new HashMap<String, String>();
 
 		String path = PathUtil.getCurrentWorkDirectory() +
 				StringUtils.replaceFirstLetter(format.getLocation(), "/");
-		Collection<File> files = FileUtils.listFiles(new File(path), new String[]{format.getSuffix()}, true);
+		File dir = new File(path);
+		if (ReaderType.BINARY.matches(format.getType()) || ReaderType.JSON.matches(format.getType())) {
+			// 二进制快照和 JSON 文件按资源类名命名,不需要打开文件
+			for (File file : FileUtils.listFiles(dir, new String[]{format.getSuffix()}, true)) {
+				String name = StringUtils.substringBeforeLast(file.getName(), ".");
+				if (result.containsKey(name)) {
+					logger.error("资源文件{}和{}重复", file.getPath(), result.get(name));
+				} else {
+					result.put(name, file.getPath());
+				}
+			}
+			return result;
+		}
+		boolean excel = ReaderType.EXCEL.matches(format.getType());
+		if (!excel && !ReaderType.EXCEL_STREAM.matches(format.getType())) {
+			return result;
+		}
+		// 未变化的文件直接使用清单记录,不再打开
+		ResourceManifest manifest = ResourceManifest.load(dir, format.getType());
+		Collection<File> files = FileUtils.listFiles(dir, new String[]{format.getSuffix()}, true);
 		for (File file : files) {
-
-			if (ReaderType.EXCEL.matches(format.getType())) {
+			Map<String, List<String>> sheets = manifest.get(file);
+			if (sheets == null) {
 				try {
-                    Workbook workbook = SheetUtils.getWorkbook(file);
-                    Map<String, SheetInfo> sheets = SheetUtils.listSheets(workbook, file);
-
-                    for (Map.Entry<String, SheetInfo> entry : sheets.entrySet()) {
-                        String name = entry.getKey();
-                        if (result.containsKey(name)) {
-                            logger.error("资源文件{}的{}表格和{}重复", file.getName(), name, result.get(name));
-                        } else {
-                            result.put(name, file.getPath());
-                        }
-                    }
+					if (excel) {
+						sheets = listSheets(file, workbooks);
+					} else {
+						// 只读取表头,不解析整个工作簿
+						sheets = ExcelStreamReader.listResourceSheets(file);
+					}
+				} catch (IOException e) {
+					logger.error("资源文件{}读取处理getResourceFiles()异常:", file.getName(), e);
+					continue;
 				} catch (RuntimeException e) {
 					logger.error("资源文件{}读取处理getResourceFiles()异常:", file.getName(), e);
+					continue;
+				}
+				manifest.put(file, sheets);
+			}
+
+			for (String name : sheets.keySet()) {
+				if (result.containsKey(name)) {
+					logger.error("资源文件{}的{}表格和{}重复", file.getName(), name, result.get(name));
+				} else {
+					result.put(name, file.getPath());
 				}
 			}
 		}
+		manifest.save();
+		return result;
+	}
+
+	/**
+	 * 解析 Excel 文件获取资源表格
+	 * @param file Excel文件
+	 * @param workbooks 加载周期
+	 * @return 资源类名 - 表格名列表
+	 * @throws IOException
+	 */
+	private Map<String, List<String>> listSheets(File file, WorkbookLoader workbooks) throws IOException {
+		Map<String, List<String>> result = new HashMap<String, List<String>>();
+		for (Map.Entry<String, SheetInfo> entry : workbooks.load(file).entrySet()) {
+			List<String> names = new ArrayList<String>(entry.getValue().sheets.size());
+			for (Sheet sheet : entry.getValue().sheets) {
+				names.add(sheet.getSheetName());
+			}
+			result.put(entry.getKey(), names);
+		}
 		return result;
 	}
 
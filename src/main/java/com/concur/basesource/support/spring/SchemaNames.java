@@ -15,6 +15,18 @@ public interface SchemaNames {
 	/** 类声明元素 */
 	String CLASS_ELEMENT = "class";
 
+	/** 是否在启动时并行预加载全部资源 */
+	String CONFIG_ATTRIBUTE_PRELOAD = "preload";
+
+	/** 预加载线程数 */
+	String CONFIG_ATTRIBUTE_THREADS = "threads";
+
+	/** 资源文件变化后等待重新加载的时间(毫秒) */
+	String CONFIG_ATTRIBUTE_RELOAD_DELAY = "reload-delay";
+
+	/** 热加载线程数 */
+	String CONFIG_ATTRIBUTE_RELOAD_THREADS = "reload-threads";
+
 	/** 资源格式声明元素 */
 	String FORMAT_ELEMENT = "format";
 	
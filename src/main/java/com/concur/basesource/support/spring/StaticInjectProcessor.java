@@ -2,6 +2,7 @@ package com.concur.basesource.support.spring;
 
 import com.concur.basesource.anno.Id;
 import com.concur.basesource.anno.StaticStore;
+import com.concur.basesource.storage.StaticRef;
 import com.concur.basesource.storage.Storage;
 import com.concur.basesource.storage.StorageManager;
 import com.concur.unity.reflect.ReflectionUtility;
@@ -42,6 +43,10 @@ public class StaticInjectProcessor extends InstantiationAwareBeanPostProcessorAd
          * 存储空间
          */
         STORAGE,
+        /**
+         * 实例引用
+         */
+        REF,
         /**
          * 实例
          */
@@ -65,6 +70,9 @@ public class StaticInjectProcessor extends InstantiationAwareBeanPostProcessorAd
                             case STORAGE:
                                 injectStorage(bean, field, anno);
                                 break;
+                            case REF:
+                                injectRef(bean, field, anno);
+                                break;
                             case INSTANCE:
                                 injectInstance(bean, field, anno);
                                 break;
@@ -88,13 +96,11 @@ public class StaticInjectProcessor extends InstantiationAwareBeanPostProcessorAd
         Class<?> clz = getIdType(field.getType());
         Object key = ConvertUtils.convert(anno.value(), clz);
 
-        // 添加监听器
-        @SuppressWarnings("rawtypes")
-        Storage storage = storageManager.getStorage(field.getType());
-        StaticObserver observer = new StaticObserver(bean, field, anno, key);
-        storage.addObserver(observer);
-
+        // 添加监听器(只监听注入的主键)
         @SuppressWarnings("unchecked")
+        Storage<Object, Object> storage = (Storage<Object, Object>) storageManager.getStorage(field.getType());
+        storage.addListener(key, new StaticObserver(bean, field, anno, key));
+
         Object instance = storage.get(key, false);
         if (anno.required() && instance == null) {
             FormattingTuple message = MessageFormatter.format("属性[{}]的注入值不存在", field);
@@ -105,6 +111,35 @@ public class StaticInjectProcessor extends InstantiationAwareBeanPostProcessorAd
 
     }
 
+    /**
+     * 注入静态资源实例引用,引用读取存储空间的当前快照,不需要添加监听器
+     *
+     * @param bean  被注入对象
+     * @param field 注入属性
+     * @param anno  注入声明
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void injectRef(Object bean, Field field, StaticStore anno) {
+        Type type = field.getGenericType();
+        if (!(type instanceof ParameterizedType)
+                || !(((ParameterizedType) type).getActualTypeArguments()[0] instanceof Class)) {
+            FormattingTuple message = MessageFormatter.format("属性[{}]的类型声明不正确", field);
+            logger.debug(message.getMessage());
+            throw new RuntimeException(message.getMessage());
+        }
+        Class<?> clz = (Class<?>) ((ParameterizedType) type).getActualTypeArguments()[0];
+        Object key = ConvertUtils.convert(anno.value(), getIdType(clz));
+
+        Storage storage = storageManager.getStorage(clz);
+        StaticRef ref = storage.getRef(key, anno.required());
+        if (anno.required() && storage.get(key, false) == null) {
+            FormattingTuple message = MessageFormatter.format("属性[{}]的注入值不存在", field);
+            logger.debug(message.getMessage());
+            throw new RuntimeException(message.getMessage());
+        }
+        inject(bean, field, ref);
+    }
+
     /**
      * 获取唯一标识类型
      *
@@ -181,6 +216,9 @@ public class StaticInjectProcessor extends InstantiationAwareBeanPostProcessorAd
         if (field.getType().equals(Storage.class)) {
             return InjectType.STORAGE;
         }
+        if (field.getType().equals(StaticRef.class)) {
+            return InjectType.REF;
+        }
         return InjectType.INSTANCE;
     }
 
@@ -1,23 +1,23 @@
 package com.concur.basesource.support.spring;
 
 import com.concur.basesource.anno.StaticStore;
+import com.concur.basesource.storage.ChangeSet;
 import com.concur.basesource.storage.Storage;
+import com.concur.basesource.storage.StorageListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.helpers.FormattingTuple;
 import org.slf4j.helpers.MessageFormatter;
 
 import java.lang.reflect.Field;
-import java.util.Observable;
-import java.util.Observer;
 
 /**
  * 静态资源变更观察者
+ * <p>按主键登记到{@link Storage},只有被注入的资源实例变化时才重新注入</p>
  *
  * @author frank
  */
-@SuppressWarnings("rawtypes")
-public class StaticObserver implements Observer {
+public class StaticObserver implements StorageListener<Object, Object> {
 
     private final static Logger logger = LoggerFactory.getLogger(StaticObserver.class);
 
@@ -25,23 +25,14 @@ public class StaticObserver implements Observer {
      * 接收更新通知
      */
     @Override
-    public void update(Observable o, Object arg) {
-        if (!(o instanceof Storage)) {
-            if (logger.isDebugEnabled()) {
-                FormattingTuple message = MessageFormatter.format("被观察对象[{}]不是指定类型", o.getClass());
-                logger.debug(message.getMessage());
-            }
-            return;
-        }
-
-        inject((Storage) o);
+    public void onChange(Storage<Object, Object> storage, ChangeSet<Object> changes) {
+        inject(storage);
     }
 
     /**
      * 注入资源实例
      */
-    private void inject(Storage o) {
-        @SuppressWarnings("unchecked")
+    private void inject(Storage<Object, Object> o) {
         Object value = o.get(key, false);
         if (anno.required() && value == null) {
             FormattingTuple message = MessageFormatter.format("被注入属性[{}]不存在[key:{}]", field, key);
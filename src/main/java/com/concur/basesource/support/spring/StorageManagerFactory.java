@@ -1,5 +1,7 @@
 package com.concur.basesource.support.spring;
 
+import com.concur.basesource.reader.StringPool;
+import com.concur.basesource.reader.WorkbookLoader;
 import com.concur.basesource.storage.ResourceDefinition;
 import com.concur.basesource.storage.StorageManager;
 import org.slf4j.Logger;
@@ -8,18 +10,24 @@ import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.List;
 import java.util.Map;
 
 
 /**
  * 资源管理器工厂
+ * <p>启动期间(从扫描资源文件到容器刷新完成)使用同一个加载周期,每个Excel文件只解析一次,
+ * 包括预加载和启动期间按需初始化的存储空间;容器刷新完成或销毁时结束加载周期</p>
  *
  * @author jake
  */
-public class StorageManagerFactory implements FactoryBean<StorageManager>, ApplicationContextAware {
+public class StorageManagerFactory implements FactoryBean<StorageManager>, ApplicationContextAware,
+        ApplicationListener<ContextRefreshedEvent> {
 
     private static final Logger logger = LoggerFactory.getLogger(StorageManagerFactory.class);
 
@@ -30,18 +38,38 @@ public class StorageManagerFactory implements FactoryBean<StorageManager>, Appli
     /**
      * 文件映射列表
      */
-    private Map<String, Class<?>> resourceMap;
+    private Map<String, List<Class<?>>> resourceMap;
     /**
      *
      * 资源文件路径
      */
     private String resourcePath;
+    /**
+     * 是否在启动时并行预加载全部资源
+     */
+    private boolean preload;
+    /**
+     * 预加载线程数,小于等于0时使用CPU核数
+     */
+    private int preloadThreads;
+    /**
+     * 资源文件变化后等待重新加载的时间(毫秒),为null时使用资源管理器的默认值
+     */
+    private Long reloadDelay;
+    /**
+     * 热加载线程数,小于等于0时使用CPU核数
+     */
+    private int reloadThreads;
+    /**
+     * 启动期间的加载周期,扫描资源文件时创建
+     */
+    private WorkbookLoader workbooks;
 
     public void setDefinitions(List<ResourceDefinition> definitions) {
         this.definitions = definitions;
     }
 
-    public void setResourceMap(Map<String, Class<?>> resourceMap) {
+    public void setResourceMap(Map<String, List<Class<?>>> resourceMap) {
         this.resourceMap = resourceMap;
     }
 
@@ -49,17 +77,94 @@ public class StorageManagerFactory implements FactoryBean<StorageManager>, Appli
         this.resourcePath = resourcePath;
     }
 
+    public void setPreload(boolean preload) {
+        this.preload = preload;
+    }
+
+    public void setPreloadThreads(int preloadThreads) {
+        this.preloadThreads = preloadThreads;
+    }
+
+    public void setReloadDelay(long reloadDelay) {
+        this.reloadDelay = reloadDelay;
+    }
+
+    public void setReloadThreads(int reloadThreads) {
+        this.reloadThreads = reloadThreads;
+    }
+
+    public void setWorkbooks(WorkbookLoader workbooks) {
+        this.workbooks = workbooks;
+    }
+
     private StorageManager storageManager;
 
     @PostConstruct
     protected void initialize() {
-        storageManager = this.applicationContext.getAutowireCapableBeanFactory().createBean(StorageManager.class);
-        storageManager.setResourceMap(resourceMap);
-        storageManager.startListeningPath(resourcePath);
+        // 启动期间每个Excel文件只解析一次,容器刷新完成后结束加载周期
+        if (workbooks == null) {
+            workbooks = new WorkbookLoader();
+        }
+        try {
+            storageManager = this.applicationContext.getAutowireCapableBeanFactory().createBean(StorageManager.class);
+            storageManager.setResourceMap(resourceMap);
+            storageManager.setWorkbooks(workbooks);
+            // 热加载配置在开始监听前设置
+            if (reloadDelay != null) {
+                storageManager.setReloadDelay(reloadDelay);
+            }
+            storageManager.setReloadThreads(reloadThreads);
+            storageManager.startListeningPath(resourcePath);
+
+            for (ResourceDefinition definition : definitions) {
+                storageManager.initialize(definition);
+                logger.warn("基础数据" + definition.getClz().getName() + "初始化完成");
+            }
+
+            // 并行预加载,全部完成后才继续启动
+            if (preload) {
+                storageManager.preload(preloadThreads);
+            }
+            if (logger.isInfoEnabled()) {
+                logger.info("静态资源字符串去重 " + StringPool.getStats());
+            }
+        } catch (RuntimeException e) {
+            endCycle();
+            throw e;
+        }
+    }
+
+    /**
+     * 容器刷新完成,启动期间的存储空间已经初始化,结束加载周期
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (event.getApplicationContext() == applicationContext) {
+            endCycle();
+        }
+    }
 
-        for (ResourceDefinition definition : definitions) {
-            storageManager.initialize(definition);
-            logger.warn("基础数据" + definition.getClz().getName() + "初始化完成");
+    /**
+     * 结束启动期间的加载周期,释放缓存的工作簿
+     */
+    private void endCycle() {
+        if (storageManager != null) {
+            storageManager.setWorkbooks(null);
+        }
+        if (workbooks != null) {
+            workbooks.close();
+            workbooks = null;
+        }
+    }
+
+    /**
+     * 停止监听资源文件变化
+     */
+    @PreDestroy
+    public void destroy() {
+        endCycle();
+        if (storageManager != null) {
+            storageManager.destroy();
         }
     }
 
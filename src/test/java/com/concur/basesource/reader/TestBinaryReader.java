@@ -0,0 +1,133 @@
+package com.concur.basesource.reader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 二进制快照读写测试
+ * @author frank
+ */
+public class TestBinaryReader {
+
+	public enum Quality {
+		WHITE, GREEN
+	}
+
+	public static class Goods {
+
+		private int id;
+		private Integer boxed;
+		private long amount;
+		private boolean bind;
+		private Double rate;
+		private char grade;
+		private String name;
+		private Quality quality;
+		private List<Integer> items;
+		private Map<String, List<Long>> rewards;
+		private transient int ignored;
+
+		@Override
+		public String toString() {
+			return id + "/" + boxed + "/" + amount + "/" + bind + "/" + rate + "/" + grade + "/" + name + "/" + quality
+					+ "/" + items + "/" + rewards + "/" + ignored;
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static List<Goods> rows(int count) {
+		List<Goods> result = new ArrayList<Goods>();
+		for (int i = 0; i < count; i++) {
+			Goods goods = new Goods();
+			goods.id = i;
+			goods.boxed = i % 3 == 0 ? null : i * 7;
+			goods.amount = 1L << (40 + i % 20);
+			goods.bind = i % 2 == 0;
+			goods.rate = i % 4 == 0 ? null : i / 3.0;
+			goods.grade = (char) ('a' + i % 26);
+			goods.name = i % 5 == 0 ? null : "名称" + (i % 3);
+			goods.quality = i % 2 == 0 ? Quality.GREEN : null;
+			goods.items = i == 3 ? null : Arrays.asList(i, i + 1);
+			if (i % 2 == 1) {
+				goods.rewards = new HashMap<String, List<Long>>();
+				goods.rewards.put("gold", Arrays.asList((long) i, 10000000000L));
+			}
+			result.add(goods);
+		}
+		return result;
+	}
+
+	private static <E> List<E> toList(Iterator<E> it) {
+		List<E> result = new ArrayList<E>();
+		while (it.hasNext()) {
+			result.add(it.next());
+		}
+		return result;
+	}
+
+	@Test
+	public void 测试写入后读取结果一致() throws Exception {
+		List<Goods> rows = rows(50);
+		rows.get(1).ignored = 9;
+		File file = new File(folder.getRoot(), "Goods.bin");
+		BinaryWriter.write(Goods.class, rows, file);
+
+		rows.get(1).ignored = 0;
+		List<Goods> read = toList(new BinaryReader().read(file, Goods.class));
+		assertEquals(rows.toString(), read.toString());
+		// 泛型属性按声明类型还原
+		Long reward = read.get(1).rewards.get("gold").get(1);
+		assertEquals(Long.valueOf(10000000000L), reward);
+
+		InputStream input = new FileInputStream(file);
+		try {
+			assertEquals(rows.toString(), toList(new BinaryReader().read(input, Goods.class)).toString());
+		} finally {
+			input.close();
+		}
+	}
+
+	@Test
+	public void 测试空表() throws Exception {
+		File file = new File(folder.getRoot(), "Empty.bin");
+		BinaryWriter.write(Goods.class, Collections.<Goods>emptyList(), file);
+		assertFalse(new BinaryReader().read(file, Goods.class).hasNext());
+	}
+
+	@Test
+	public void 测试读取后不占用文件() throws Exception {
+		File file = new File(folder.getRoot(), "Goods.bin");
+		BinaryWriter.write(Goods.class, rows(10), file);
+		Iterator<Goods> it = new BinaryReader().read(file, Goods.class);
+		assertTrue(it instanceof ResourceIterator);
+		assertEquals(0, it.next().id);
+
+		// 迭代过程中可以替换快照文件,已读取的内容不受影响
+		assertTrue(file.delete());
+		BinaryWriter.write(Goods.class, rows(2), file);
+		assertEquals(9, toList(it).size());
+
+		// 关闭后不再返回资源实例
+		it = new BinaryReader().read(file, Goods.class);
+		((ResourceIterator<Goods>) it).close();
+		assertFalse(it.hasNext());
+		((ResourceIterator<Goods>) it).close();
+	}
+
+}
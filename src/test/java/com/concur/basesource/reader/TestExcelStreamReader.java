@@ -0,0 +1,199 @@
+package com.concur.basesource.reader;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * 流式Excel读取器测试,读取结果必须与{@link ExcelReader}一致
+ * @author frank
+ */
+public class TestExcelStreamReader {
+
+	public static class Equip {
+
+		public int id;
+		public long power;
+		public double rate;
+		public boolean flag;
+		public String name;
+
+		@Override
+		public String toString() {
+			return "Equip[" + id + "," + power + "," + rate + "," + flag + "," + name + "]";
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		XSSFWorkbook workbook = new XSSFWorkbook();
+		for (int k = 0; k < 3; k++) {
+			// 第二个表格属于其它资源类
+			Sheet sheet = workbook.createSheet("sheet" + k);
+			sheet.createRow(0).createCell(0).setCellValue(k == 1 ? "Other" : "Equip");
+			sheet.createRow(1).createCell(0).setCellValue("注释");
+			Row header = sheet.createRow(2);
+			header.createCell(0).setCellValue("SERVER");
+			header.createCell(1).setCellValue("id");
+			header.createCell(2).setCellValue("power");
+			header.createCell(3).setCellValue("rate");
+			header.createCell(4).setCellValue("flag");
+			header.createCell(5).setCellValue("name");
+			header.createCell(6).setCellValue("unknown");
+			for (int i = 0; i < 5; i++) {
+				Row row = sheet.createRow(4 + i);
+				row.createCell(1).setCellValue(k * 10 + i);
+				row.createCell(2).setCellValue(10000000000L * (i + 1));
+				row.createCell(3).setCellValue(i * 0.25);
+				row.createCell(4).setCellValue(i % 2 == 0);
+				if (i != 1) {
+					row.createCell(5).setCellValue("名称" + i);
+				}
+				row.createCell(6).setCellValue("x");
+				if (i == 3) {
+					row.createCell(0).setCellValue("END");
+				}
+			}
+		}
+		file = folder.newFile("equip.xlsx");
+		OutputStream output = new FileOutputStream(file);
+		try {
+			workbook.write(output);
+		} finally {
+			output.close();
+		}
+	}
+
+	private static <E> List<E> toList(Iterator<E> it) {
+		List<E> result = new ArrayList<E>();
+		while (it.hasNext()) {
+			result.add(it.next());
+		}
+		return result;
+	}
+
+	@Test
+	public void 测试与ExcelReader读取结果一致() throws Exception {
+		InputStream input = new FileInputStream(file);
+		List<Equip> expected;
+		try {
+			expected = toList(new ExcelReader().read(input, Equip.class));
+		} finally {
+			input.close();
+		}
+		List<Equip> actual = toList(new ExcelStreamReader().read(file, Equip.class));
+
+		// 两个表格各 4 行(END 行包含在内)
+		assertEquals(8, expected.size());
+		assertEquals(expected.toString(), actual.toString());
+		Equip first = actual.get(0);
+		assertEquals(0, first.id);
+		assertEquals(10000000000L, first.power);
+		assertEquals("名称0", first.name);
+		assertNull(actual.get(1).name);
+		assertEquals(0.75, actual.get(3).rate, 0);
+		assertEquals(23, actual.get(7).id);
+	}
+
+	@Test
+	public void 测试列出资源表格() throws Exception {
+		List<String> sheets = ExcelStreamReader.listResourceSheets(file).get("Equip");
+		assertEquals(2, sheets.size());
+		assertTrue(ExcelStreamReader.listResourceSheets(file).containsKey("Other"));
+	}
+
+	@Test
+	public void 测试不解析外部实体() throws Exception {
+		File secret = folder.newFile("secret.txt");
+		FileWriter writer = new FileWriter(secret);
+		try {
+			writer.write("SECRET");
+		} finally {
+			writer.close();
+		}
+		// 第一个表格声明外部实体,并在名称单元格中引用
+		File evil = folder.newFile("evil.xlsx");
+		ZipInputStream input = new ZipInputStream(new FileInputStream(file));
+		ZipOutputStream output = new ZipOutputStream(new FileOutputStream(evil));
+		try {
+			for (ZipEntry entry = input.getNextEntry(); entry != null; entry = input.getNextEntry()) {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				byte[] buffer = new byte[4096];
+				for (int n = input.read(buffer); n > 0; n = input.read(buffer)) {
+					bytes.write(buffer, 0, n);
+				}
+				byte[] content = bytes.toByteArray();
+				if (entry.getName().equals("xl/worksheets/sheet1.xml")) {
+					String xml = new String(content, "UTF-8");
+					xml = xml.replaceFirst("\\?>", "?><!DOCTYPE worksheet [<!ENTITY x SYSTEM \"" + secret.toURI() + "\">]>");
+					xml = xml.replaceFirst("<c r=\"F5\" t=\"s\"><v>\\d+</v></c>", "<c r=\"F5\" t=\"inlineStr\"><is><t>&x;</t></is></c>");
+					content = xml.getBytes("UTF-8");
+				}
+				output.putNextEntry(new ZipEntry(entry.getName()));
+				output.write(content);
+				output.closeEntry();
+			}
+		} finally {
+			input.close();
+			output.close();
+		}
+
+		try {
+			for (Equip equip : toList(new ExcelStreamReader().read(evil, Equip.class))) {
+				assertFalse(String.valueOf(equip.name).contains("SECRET"));
+			}
+		} catch (RuntimeException e) {
+			// 拒绝包含 DTD 的表格
+		}
+	}
+
+	@Test
+	public void 测试加载周期内只解析一次() throws Exception {
+		WorkbookLoader first = new WorkbookLoader();
+		WorkbookLoader second = new WorkbookLoader();
+		assertSame(first.load(file), first.load(file));
+		assertNotSame(first.load(file), second.load(file));
+
+		// 绑定到当前线程后 ExcelReader 使用同一个加载周期
+		WorkbookLoader prev = first.bind();
+		try {
+			assertSame(first.load(file), WorkbookLoader.getSheets(file));
+			assertEquals(8, toList(new ExcelReader().read(file, Equip.class)).size());
+		} finally {
+			WorkbookLoader.unbind(prev);
+		}
+		assertNotSame(WorkbookLoader.getSheets(file), WorkbookLoader.getSheets(file));
+
+		// 结束一个加载周期不影响其他加载周期
+		first.close();
+		assertNotSame(first.load(file), first.load(file));
+		assertSame(second.load(file), second.load(file));
+		second.close();
+	}
+
+}
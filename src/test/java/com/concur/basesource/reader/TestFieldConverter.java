@@ -0,0 +1,98 @@
+package com.concur.basesource.reader;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+/**
+ * 属性转换器测试,数值单元格与转为文本后的单元格转换结果必须一致
+ * @author frank
+ */
+public class TestFieldConverter {
+
+	public static class Values {
+
+		public String name;
+		public int count;
+		public long power;
+		public short level;
+		public byte star;
+		public float rate;
+		public BigDecimal price;
+	}
+
+	private static void setNumber(Object instance, String field, double value) throws Exception {
+		FieldConverter.of(Values.class.getField(field)).setNumber(instance, value);
+	}
+
+	private static void setText(Object instance, String field, String content) throws Exception {
+		FieldConverter.of(Values.class.getField(field)).setText(instance, content);
+	}
+
+	@Test
+	public void 测试数值单元格转为字符串() throws Exception {
+		Values values = new Values();
+		setNumber(values, "name", 3D);
+		assertEquals("3", values.name);
+		setNumber(values, "name", 12345678D);
+		assertEquals("12345678", values.name);
+		setNumber(values, "name", 0.25D);
+		assertEquals("0.25", values.name);
+		setNumber(values, "name", 0D);
+		assertEquals("0", values.name);
+		setNumber(values, "name", -1.5E-7D);
+		assertEquals("-0.00000015", values.name);
+	}
+
+	@Test
+	public void 测试数值单元格转为数值类型() throws Exception {
+		Values values = new Values();
+		setNumber(values, "level", 3D);
+		setNumber(values, "star", 5D);
+		setNumber(values, "rate", 0.5D);
+		setNumber(values, "price", 12.5D);
+		assertEquals(3, values.level);
+		assertEquals(5, values.star);
+		assertEquals(0.5F, values.rate, 0);
+		assertEquals(new BigDecimal("12.5"), values.price);
+	}
+
+	@Test
+	public void 测试文本转为数值类型() throws Exception {
+		Values values = new Values();
+		setText(values, "level", "3.0");
+		setText(values, "star", " 7 ");
+		setText(values, "rate", "3.0");
+		setText(values, "price", "3.0");
+		assertEquals(3, values.level);
+		assertEquals(7, values.star);
+		assertEquals(3F, values.rate, 0);
+		assertEquals(0, new BigDecimal("3").compareTo(values.price));
+	}
+
+	@Test
+	public void 测试整数文本按十进制解析() throws Exception {
+		Values values = new Values();
+		setText(values, "count", "010");
+		assertEquals(10, values.count);
+		setText(values, "power", "0x10");
+		assertEquals(16, values.power);
+		setText(values, "power", "-0X10");
+		assertEquals(-16, values.power);
+		setText(values, "count", "1.2345678E7");
+		assertEquals(12345678, values.count);
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void 测试超出范围() throws Exception {
+		setText(new Values(), "star", "128");
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void 测试小数不能转为整数() throws Exception {
+		setNumber(new Values(), "level", 1.5D);
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.concur.basesource.reader;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 资源文件清单测试
+ * @author frank
+ */
+public class TestResourceManifest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File dir;
+	private File resource;
+	private Map<String, List<String>> sheets;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = folder.newFolder("resources");
+		resource = new File(dir, "sub/item.xlsx");
+		resource.getParentFile().mkdirs();
+		FileUtils.writeStringToFile(resource, "abc", "UTF-8");
+		sheets = new HashMap<String, List<String>>();
+		sheets.put("test.Item", Arrays.asList("item", "item2"));
+	}
+
+	private void record() {
+		ResourceManifest manifest = ResourceManifest.load(dir, "excel");
+		assertNull(manifest.get(resource));
+		manifest.put(resource, sheets);
+		manifest.save();
+	}
+
+	@Test
+	public void 测试未变化的文件使用记录() {
+		record();
+		assertTrue(new File(dir.getParentFile(), dir.getName() + ResourceManifest.SUFFIX).isFile());
+		assertEquals(sheets, ResourceManifest.load(dir, "excel").get(resource));
+		// 资源格式类型不同时记录无效
+		assertNull(ResourceManifest.load(dir, "json").get(resource));
+	}
+
+	@Test
+	public void 测试只有修改时间变化时比较内容摘要() {
+		record();
+		resource.setLastModified(resource.lastModified() - 100000);
+		assertEquals(sheets, ResourceManifest.load(dir, "excel").get(resource));
+	}
+
+	@Test
+	public void 测试内容变化时记录失效() throws Exception {
+		record();
+		long lastModified = resource.lastModified();
+		// 大小不变
+		FileUtils.writeStringToFile(resource, "abd", "UTF-8");
+		resource.setLastModified(lastModified - 5000);
+		assertNull(ResourceManifest.load(dir, "excel").get(resource));
+		// 大小变化
+		FileUtils.writeStringToFile(resource, "abcd", "UTF-8");
+		resource.setLastModified(lastModified);
+		assertNull(ResourceManifest.load(dir, "excel").get(resource));
+	}
+
+	@Test
+	public void 测试保存时移除已删除文件的记录() {
+		record();
+		// 本次没有查询该文件
+		ResourceManifest.load(dir, "excel").save();
+		assertNull(ResourceManifest.load(dir, "excel").get(resource));
+	}
+
+	@Test
+	public void 测试清单文件损坏时按没有清单处理() throws Exception {
+		record();
+		FileUtils.writeStringToFile(new File(dir.getParentFile(), dir.getName() + ResourceManifest.SUFFIX), "{broken",
+				"UTF-8");
+		ResourceManifest manifest = ResourceManifest.load(dir, "excel");
+		assertNull(manifest.get(resource));
+		manifest.put(resource, sheets);
+		manifest.save();
+		assertEquals(sheets, ResourceManifest.load(dir, "excel").get(resource));
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.concur.basesource.storage;
+
+import com.concur.basesource.reader.ReaderHolder;
+import com.concur.basesource.reader.ResourceReader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 从内存读取资源实例的读取器,存储空间测试共用
+ * <p>存储类型由资源类的{@link com.concur.basesource.anno.StaticResource}声明</p>
+ * @author frank
+ */
+class MemoryReader<E> implements ResourceReader {
+
+	/** 读取的资源实例,修改后重新加载生效 */
+	List<E> rows = new ArrayList<E>();
+
+	@Override
+	public String getFormat() {
+		return "memory";
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> Iterator<T> read(InputStream input, Class<T> clz) {
+		return (Iterator<T>) new ArrayList<E>(rows).iterator();
+	}
+
+	/**
+	 * 创建使用该读取器的存储空间并完成加载
+	 * @param clz 资源类
+	 * @param file 资源文件(只用于确定位置,内容不会被读取)
+	 * @return
+	 */
+	<K> Storage<K, E> createStorage(Class<E> clz, File file) {
+		ReaderHolder holder = new ReaderHolder();
+		holder.register(this);
+		Storage<K, E> storage = new Storage<K, E>();
+		ReflectionTestUtils.setField(storage, "readerHolder", holder);
+		storage.initialize(new ResourceDefinition(clz, new FormatDefinition(file.getParent(), "memory", "memory"),
+				file.getPath()));
+		return storage;
+	}
+
+}
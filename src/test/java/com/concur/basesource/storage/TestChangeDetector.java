@@ -0,0 +1,80 @@
+package com.concur.basesource.storage;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * 资源实例变化检测器测试
+ * @author frank
+ */
+public class TestChangeDetector {
+
+	public static class Plain {
+
+		private int id;
+		private transient String name;
+		private int[] values;
+		public String text;
+
+		Plain(int id, String name, int[] values, String text) {
+			this.id = id;
+			this.name = name;
+			this.values = values;
+			this.text = text;
+		}
+	}
+
+	public static class Base {
+
+		private int id;
+		private String remark;
+
+		Base(int id, String remark) {
+			this.id = id;
+			this.remark = remark;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Base && ((Base) obj).id == id;
+		}
+
+		@Override
+		public int hashCode() {
+			return id;
+		}
+	}
+
+	public static class Child extends Base {
+
+		Child(int id, String remark) {
+			super(id, remark);
+		}
+	}
+
+	private static ChangeDetector create(Class<?> clz) {
+		return new ChangeDetector(clz, Collections.<InjectDefinition>emptySet());
+	}
+
+	@Test
+	public void 测试比较全部属性() {
+		ChangeDetector detector = create(Plain.class);
+		Plain prev = new Plain(1, "a", new int[] { 1, 2 }, "t");
+		assertTrue(detector.isSame(prev, new Plain(1, "a", new int[] { 1, 2 }, "t")));
+		// transient 属性参与比较
+		assertFalse(detector.isSame(prev, new Plain(1, "b", new int[] { 1, 2 }, "t")));
+		assertFalse(detector.isSame(prev, new Plain(1, "a", new int[] { 1, 3 }, "t")));
+		assertFalse(detector.isSame(prev, new Plain(1, "a", new int[] { 1, 2 }, null)));
+	}
+
+	@Test
+	public void 测试使用资源类的equals方法() {
+		ChangeDetector detector = create(Child.class);
+		assertTrue(detector.isSame(new Child(1, "a"), new Child(1, "b")));
+		assertFalse(detector.isSame(new Child(1, "a"), new Child(2, "a")));
+	}
+
+}
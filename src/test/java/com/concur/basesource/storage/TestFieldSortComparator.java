@@ -0,0 +1,38 @@
+package com.concur.basesource.storage;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 属性排序比较器测试
+ * @author frank
+ */
+public class TestFieldSortComparator {
+
+    public static class Item {
+
+        private Integer level;
+        private String name;
+
+        Item(Integer level, String name) {
+            this.level = level;
+            this.name = name;
+        }
+    }
+
+    @Test
+    public void 测试null值排序() {
+        FieldSortComparator<Item> comparator = new FieldSortComparator<Item>(Item.class,
+                new String[] { "level asc", "name desc" });
+        assertEquals(0, comparator.compare(new Item(null, null), new Item(null, null)));
+        // 第一个属性都为null时比较第二个属性
+        assertTrue(comparator.compare(new Item(null, "a"), new Item(null, "b")) > 0);
+        assertTrue(comparator.compare(new Item(null, "a"), new Item(1, "a")) < 0);
+        assertTrue(comparator.compare(new Item(1, "a"), new Item(null, "a")) > 0);
+        assertTrue(comparator.compare(new Item(1, null), new Item(1, "a")) > 0);
+        assertTrue(comparator.compare(new Item(1, "a"), new Item(2, "a")) < 0);
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.concur.basesource.storage;
+
+import com.concur.basesource.anno.Id;
+import com.concur.basesource.anno.Index;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 索引增量更新器测试
+ * @author frank
+ */
+public class TestIndexPatcher {
+
+	public static class Row {
+
+		@Id
+		private int id;
+		@Index(name = "type")
+		private int type;
+		@Index(name = "code", unique = true)
+		private String code;
+		@Index(name = "pair", order = 0)
+		private int first;
+		@Index(name = "pair", order = 1)
+		private int second;
+
+		Row(int id, int type) {
+			this.id = id;
+			this.type = type;
+			this.code = "c" + id;
+			this.first = type;
+			this.second = id % 2;
+		}
+
+		@Override
+		public String toString() {
+			return "Row" + id;
+		}
+	}
+
+	private static final Map<String, IndexGetter> GETTERS = GetterBuilder.createIndexGetters(Row.class);
+
+	private static List<Row> list(Row... rows) {
+		return new ArrayList<Row>(Arrays.asList(rows));
+	}
+
+	@Test
+	public void 测试加载顺序检查() {
+		Row r1 = new Row(1, 0);
+		Row r2 = new Row(2, 0);
+		Row r3 = new Row(3, 1);
+		Row r2b = new Row(2, 1);
+		Row r4 = new Row(4, 1);
+		List<Row> previous = list(r1, r2, r3);
+
+		// 修改、删除和新增不影响未变化实例的顺序
+		assertTrue(new IndexPatcher<Row>(Row.class, list(r4, r1, r2b, r3), list(r2), list(r2b, r4))
+				.isOrderKept(previous));
+		assertTrue(new IndexPatcher<Row>(Row.class, list(r1), list(r2, r3), Collections.<Row>emptyList())
+				.isOrderKept(previous));
+		// 未变化的实例交换了位置
+		assertFalse(new IndexPatcher<Row>(Row.class, list(r3, r1, r2), Collections.<Row>emptyList(),
+				Collections.<Row>emptyList()).isOrderKept(previous));
+	}
+
+	@Test
+	public void 测试索引更新() {
+		Row r1 = new Row(1, 0);
+		Row r2 = new Row(2, 0);
+		Row r3 = new Row(3, 1);
+		Row r5 = new Row(5, 2);
+		Map<Object, List<Row>> current = new HashMap<Object, List<Row>>();
+		current.put(0, Collections.unmodifiableList(list(r1, r2)));
+		current.put(1, Collections.unmodifiableList(list(r3)));
+		current.put(2, Collections.unmodifiableList(list(r5)));
+
+		// 1 改为类型 1,新增的 4 加载顺序在 1 之前
+		Row r1b = new Row(1, 1);
+		Row r4 = new Row(4, 0);
+		IndexPatcher<Row> patcher = new IndexPatcher<Row>(Row.class, list(r4, r1b, r2, r3, r5), list(r1), list(r1b, r4));
+		Map<Object, List<Row>> result = patcher.patchIndex(GETTERS.get("type"), current);
+
+		assertEquals(list(r4, r2), result.get(0));
+		assertEquals(list(r1b, r3), result.get(1));
+		// 未受影响的索引列表直接沿用
+		assertSame(current.get(2), result.get(2));
+		assertEquals(list(r1, r2), current.get(0));
+
+		// 索引值下的实例全部删除时删除索引值
+		patcher = new IndexPatcher<Row>(Row.class, list(r1, r2, r3), list(r5), Collections.<Row>emptyList());
+		assertFalse(patcher.patchIndex(GETTERS.get("type"), current).containsKey(2));
+	}
+
+	@Test
+	public void 测试多值索引更新() {
+		Row r1 = new Row(1, 0);
+		Row r2 = new Row(2, 0);
+		Row r3 = new Row(3, 1);
+		IndexGetter getter = GETTERS.get("pair");
+		PrefixIndex<Row> current = new PrefixIndex<Row>();
+		for (Row row : list(r1, r2, r3)) {
+			current.add((CompositeKey) getter.getValue(row), row);
+		}
+		current.freeze();
+
+		Row r2b = new Row(2, 1);
+		IndexPatcher<Row> patcher = new IndexPatcher<Row>(Row.class, list(r1, r2b, r3), list(r2), list(r2b));
+		PrefixIndex<Row> result = patcher.patchPrefix(getter, current);
+
+		assertEquals(list(r1), result.get(getter, 0));
+		assertEquals(list(r2b, r3), result.get(getter, 1));
+		assertEquals(list(r2b), result.get(getter, new Object[] { 1, 0 }));
+		assertEquals(list(r3), result.get(getter, new Object[] { 1, 1 }));
+		// 原索引不受影响
+		assertEquals(list(r1, r2), current.get(getter, 0));
+	}
+
+	@Test
+	public void 测试唯一值索引更新() {
+		Row r1 = new Row(1, 0);
+		Row r2 = new Row(2, 0);
+		IndexGetter getter = GETTERS.get("code");
+		Map<Object, Row> current = new HashMap<Object, Row>();
+		current.put("c1", r1);
+		current.put("c2", r2);
+
+		Row r2b = new Row(2, 1);
+		Map<Object, Row> result = new IndexPatcher<Row>(Row.class, list(r1, r2b), list(r2), list(r2b))
+				.patchUnique(getter, current);
+		assertSame(r2b, result.get("c2"));
+		assertSame(r1, result.get("c1"));
+		assertSame(r2, current.get("c2"));
+
+		// 新增的实例与未变化的实例唯一值重复
+		Row duplicate = new Row(1, 1);
+		try {
+			new IndexPatcher<Row>(Row.class, list(r1, r2, duplicate), Collections.<Row>emptyList(), list(duplicate))
+					.patchUnique(getter, current);
+			fail();
+		} catch (RuntimeException e) {
+			assertTrue(e.getMessage().contains("c1"));
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+package com.concur.basesource.storage;
+
+import com.concur.basesource.anno.Id;
+import com.concur.basesource.anno.Index;
+import com.concur.basesource.anno.StaticResource;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 堆外存储空间测试
+ * <p>读取的资源实例直接编码,查询结果与资源文件内容一致,每次查询返回新的实例</p>
+ * @author frank
+ */
+public class TestOffHeapStorage {
+
+	@StaticResource(store = StoreType.OFF_HEAP)
+	public static class Item {
+
+		@Id
+		private int id;
+		@Index(name = "type")
+		private int type;
+		@Index(name = "group", orderBy = { "id desc" })
+		private int group;
+		@Index(name = "ts", order = 0)
+		private int t2;
+		@Index(name = "ts", order = 1)
+		private String sub;
+		@Index(name = "code", unique = true)
+		private String code;
+		@Index(name = "exp", sorted = true)
+		private Long exp;
+
+		Item(int id, int type, String code) {
+			this.id = id;
+			this.type = type;
+			this.group = id % 7;
+			this.t2 = id % 5;
+			this.sub = "s" + (id % 2);
+			this.code = code;
+			this.exp = id % 10 == 0 ? null : id * 10L;
+		}
+
+		Item(int id) {
+			this(id, id % 3, "c" + id);
+		}
+
+		public Item() {
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = folder.newFile("item.memory");
+	}
+
+	private Storage<Integer, Item> createStorage(MemoryReader<Item> reader) {
+		return reader.createStorage(Item.class, file);
+	}
+
+	private static List<Item> rows(int count) {
+		List<Item> result = new ArrayList<Item>();
+		for (int i = 1; i <= count; i++) {
+			result.add(new Item(i));
+		}
+		return result;
+	}
+
+	private static List<Integer> ids(List<Item> items) {
+		List<Integer> result = new ArrayList<Integer>(items.size());
+		for (Item item : items) {
+			result.add(item.id);
+		}
+		return result;
+	}
+
+	@Test
+	public void 测试查询堆外存储的资源() {
+		MemoryReader<Item> reader = new MemoryReader<Item>();
+		reader.rows = rows(100);
+		Storage<Integer, Item> storage = createStorage(reader);
+		assertTrue(storage.getSnapshot().getValues() instanceof OffHeapValueStore);
+
+		assertEquals(100, storage.getAll().size());
+		assertEquals("c5", storage.get(5).code);
+		assertEquals(5, storage.getInt(5).id);
+		assertNull(storage.get(101));
+		assertNull(storage.get(10).exp);
+		assertEquals(10, storage.getUnique("code", "c10").id);
+		assertEquals(34, storage.getIndex("type", 1).size());
+		// 排序器(id 降序)
+		assertEquals(98, storage.getIndex("group", 0).get(0).id);
+		assertEquals(91, storage.getIndex("group", 0).get(1).id);
+		// 多值索引
+		assertEquals(20, storage.getIndex("ts", 3).size());
+		List<Integer> ts = ids(storage.getIndex("ts", 3, "s1"));
+		assertEquals(10, ts.size());
+		assertEquals(Integer.valueOf(3), ts.get(0));
+		// 排序索引(空值不进入索引)
+		assertEquals(9, storage.getFloor("exp", 99L).id);
+		assertEquals(11, storage.getCeiling("exp", 100L).id);
+		assertEquals("[11, 12]", ids(storage.getRange("exp", 101L, 120L)).toString());
+	}
+
+	@Test
+	public void 测试每次查询返回新的实例() {
+		MemoryReader<Item> reader = new MemoryReader<Item>();
+		reader.rows = rows(10);
+		Storage<Integer, Item> storage = createStorage(reader);
+
+		Item first = storage.get(5);
+		Item second = storage.get(5);
+		assertNotSame(first, second);
+		assertEquals(first.id, second.id);
+		assertNotSame(storage.getIndex("type", 2).get(0), storage.getIndex("type", 2).get(0));
+	}
+
+	@Test
+	public void 测试重新加载堆外存储() {
+		MemoryReader<Item> reader = new MemoryReader<Item>();
+		reader.rows = rows(100);
+		Storage<Integer, Item> storage = createStorage(reader);
+		final List<ChangeSet<Integer>> changes = new ArrayList<ChangeSet<Integer>>();
+		storage.addListener(new StorageListener<Integer, Item>() {
+			@Override
+			public void onChange(Storage<Integer, Item> storage, ChangeSet<Integer> changeSet) {
+				changes.add(changeSet);
+			}
+		});
+		final List<String> fired = new ArrayList<String>();
+		storage.addIndexListener("type", 0, new StorageListener<Integer, Item>() {
+			@Override
+			public void onChange(Storage<Integer, Item> storage, ChangeSet<Integer> changeSet) {
+				fired.add("t0");
+			}
+		});
+
+		StorageSnapshot<Integer, Item> snapshot = storage.getSnapshot();
+		reader.rows = rows(100);
+		storage.reload();
+		assertSame(snapshot, storage.getSnapshot());
+		assertTrue(changes.get(0).isEmpty());
+		assertTrue(fired.isEmpty());
+
+		// 5 从类型 2 改为类型 0,10 和 11 交换唯一值,删除 7,新增 101
+		List<Item> modified = new ArrayList<Item>();
+		for (int i = 1; i <= 101; i++) {
+			if (i == 7) {
+				continue;
+			}
+			String code = i == 10 ? "c11" : i == 11 ? "c10" : "c" + i;
+			modified.add(new Item(i, i == 5 ? 0 : i % 3, code));
+		}
+		reader.rows = modified;
+		storage.reload();
+		ChangeSet<Integer> changeSet = changes.get(1);
+		assertTrue(changeSet.getAdded().contains(101));
+		assertTrue(changeSet.getRemoved().contains(7));
+		assertTrue(changeSet.getUpdated().contains(5));
+		assertFalse(changeSet.isChanged(6));
+		assertEquals("[t0]", fired.toString());
+
+		assertNull(storage.get(7));
+		assertEquals(0, storage.get(5).type);
+		assertEquals(11, storage.getUnique("code", "c10").id);
+		assertTrue(ids(storage.getIndex("type", 0)).contains(5));
+		assertEquals(100, storage.getAll().size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void 测试主键重复() {
+		MemoryReader<Item> reader = new MemoryReader<Item>();
+		reader.rows = rows(10);
+		reader.rows.add(new Item(3, 0, "c0"));
+		createStorage(reader);
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.concur.basesource.storage;
+
+import com.concur.basesource.anno.Id;
+import com.concur.basesource.anno.Index;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * 多值索引前缀树测试
+ * @author frank
+ */
+public class TestPrefixIndex {
+
+	public static class Cell {
+
+		@Id
+		private int id;
+		@Index(name = "xyz", order = 0)
+		private int x;
+		@Index(name = "xyz", order = 1)
+		private int y;
+		@Index(name = "xyz", order = 2)
+		private String z;
+
+		Cell(int id, int x, int y, String z) {
+			this.id = id;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+	}
+
+	private final IndexGetter getter = GetterBuilder.createIndexGetters(Cell.class).get("xyz");
+
+	private PrefixIndex<Cell> build(Cell... cells) {
+		PrefixIndex<Cell> index = new PrefixIndex<Cell>();
+		for (Cell cell : cells) {
+			index.add((CompositeKey) getter.getValue(cell), cell);
+		}
+		index.freeze();
+		return index;
+	}
+
+	@Test
+	public void 测试前缀查询() {
+		Cell c1 = new Cell(1, 1, 1, "a");
+		Cell c2 = new Cell(2, 1, 1, "b");
+		Cell c3 = new Cell(3, 1, 2, "a");
+		Cell c4 = new Cell(4, 2, 1, "a");
+		PrefixIndex<Cell> index = build(c1, c2, c3, c4);
+
+		assertEquals(Arrays.asList(c1, c2, c3), index.get(getter, 1));
+		assertEquals(Arrays.asList(c1, c2), index.get(getter, new Object[] { 1, 1 }));
+		assertEquals(Arrays.asList(c2), index.get(getter, new Object[] { 1, 1, "b" }));
+		assertEquals(Arrays.asList(c4), index.get(getter, new Object[] { 2 }));
+		// 查询值转换为索引值的声明类型
+		assertEquals(Arrays.asList(c1, c2), index.get(getter, new Object[] { 1L, "1" }));
+		assertTrue(index.get(getter, new Object[] { 1, 3 }).isEmpty());
+		assertTrue(index.get(getter, 3).isEmpty());
+		assertTrue(index.get(getter, new Object[0]).isEmpty());
+	}
+
+	@Test
+	public void 测试冻结后只读() {
+		PrefixIndex<Cell> index = build(new Cell(1, 1, 1, "a"));
+		try {
+			index.get(getter, 1).clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// 冻结后不能修改
+		}
+	}
+
+	@Test
+	public void 测试复制后替换() {
+		Cell c1 = new Cell(1, 1, 1, "a");
+		Cell c2 = new Cell(2, 2, 1, "a");
+		PrefixIndex<Cell> index = build(c1, c2);
+
+		PrefixIndex<Cell> copy = index.copy();
+		Cell c3 = new Cell(3, 1, 5, "c");
+		copy.replace(1, Arrays.asList(c1, c3), getter);
+		copy.replace(2, Collections.<Cell>emptyList(), getter);
+
+		assertEquals(Arrays.asList(c1, c3), copy.get(getter, 1));
+		assertEquals(Arrays.asList(c3), copy.get(getter, new Object[] { 1, 5, "c" }));
+		assertTrue(copy.get(getter, 2).isEmpty());
+		// 原索引不受影响
+		assertEquals(Arrays.asList(c1), index.get(getter, 1));
+		assertEquals(Arrays.asList(c2), index.get(getter, 2));
+	}
+
+}
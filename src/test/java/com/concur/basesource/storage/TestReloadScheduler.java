@@ -0,0 +1,84 @@
+package com.concur.basesource.storage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 热加载调度器测试,等待时间内的多次变化合并为一次加载
+ * @author frank
+ */
+public class TestReloadScheduler {
+
+	/**
+	 * 只记录重新加载的资源管理器
+	 */
+	private static class RecordManager extends StorageManager {
+
+		private final List<Class<?>> reloaded = Collections.synchronizedList(new ArrayList<Class<?>>());
+		private final CountDownLatch latch;
+
+		RecordManager(int count) {
+			this.latch = new CountDownLatch(count);
+		}
+
+		@Override
+		public void reload(Class<?> clz) {
+			reloaded.add(clz);
+			latch.countDown();
+		}
+	}
+
+	private static List<Class<?>> classes(Class<?>... classes) {
+		return Arrays.asList(classes);
+	}
+
+	@Test
+	public void 测试等待时间内的变化合并为一次加载() throws Exception {
+		RecordManager manager = new RecordManager(2);
+		ReloadScheduler scheduler = new ReloadScheduler(manager, 200, 2);
+		try {
+			scheduler.schedule(classes(String.class));
+			Thread.sleep(50);
+			scheduler.schedule(classes(Integer.class, String.class));
+			Thread.sleep(50);
+			scheduler.schedule(classes(String.class));
+			// 最后一次变化后还没有到等待时间
+			assertTrue(manager.reloaded.isEmpty());
+
+			assertTrue(manager.latch.await(2, TimeUnit.SECONDS));
+			Thread.sleep(300);
+			assertEquals(2, manager.reloaded.size());
+			assertTrue(manager.reloaded.contains(String.class));
+			assertTrue(manager.reloaded.contains(Integer.class));
+		} finally {
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	public void 测试持续变化时不会无限等待() throws Exception {
+		RecordManager manager = new RecordManager(1);
+		ReloadScheduler scheduler = new ReloadScheduler(manager, 20, 1);
+		try {
+			// 每 10ms 变化一次,持续超过最长等待时间(等待时间的 10 倍)
+			long end = System.currentTimeMillis() + 600;
+			while (System.currentTimeMillis() < end && manager.reloaded.isEmpty()) {
+				scheduler.schedule(classes(String.class));
+				Thread.sleep(10);
+			}
+			// 仍在变化时已经加载
+			assertFalse(manager.reloaded.isEmpty());
+		} finally {
+			scheduler.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.concur.basesource.storage;
+
+import com.concur.basesource.anno.Id;
+import com.concur.basesource.anno.Index;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 排序索引测试
+ * @author frank
+ */
+public class TestSortedIndex {
+
+	public static class Level {
+
+		@Id
+		private int id;
+		@Index(name = "exp", sorted = true, orderBy = { "id desc" })
+		private Integer exp;
+
+		Level(int id, Integer exp) {
+			this.id = id;
+			this.exp = exp;
+		}
+
+		@Override
+		public String toString() {
+			return "Level" + id;
+		}
+	}
+
+	private static SortedIndex<Level> build(Level... levels) {
+		IndexGetter getter = GetterBuilder.createIndexGetters(Level.class).get("exp");
+		return SortedIndex.build(getter, new ArrayList<Level>(Arrays.asList(levels)));
+	}
+
+	@Test
+	public void 测试floor和ceiling() {
+		Level l1 = new Level(1, 0);
+		Level l2 = new Level(2, 100);
+		Level l3 = new Level(3, 100);
+		Level l4 = new Level(4, 300);
+		SortedIndex<Level> index = build(l4, l1, l2, l3, new Level(5, null));
+
+		assertNull(index.floor(-1));
+		assertSame(l1, index.floor(0));
+		assertSame(l1, index.floor(99));
+		// 键相同时返回排序在前的实例(按 id 降序)
+		assertSame(l3, index.floor(100));
+		assertSame(l3, index.floor(299));
+		assertSame(l4, index.floor(1000));
+		assertSame(l1, index.ceiling(-1));
+		assertSame(l3, index.ceiling(1));
+		assertNull(index.ceiling(301));
+
+		// null 表示不限
+		assertSame(l4, index.floor(null));
+		assertSame(l1, index.ceiling(null));
+		assertEquals(4, index.getRows().size());
+	}
+
+	@Test
+	public void 测试范围查询() {
+		Level l1 = new Level(1, 0);
+		Level l2 = new Level(2, 100);
+		Level l3 = new Level(3, 200);
+		SortedIndex<Level> index = build(l3, l2, l1);
+
+		assertEquals(Arrays.asList(l1, l2, l3), index.range(null, null));
+		assertEquals(Arrays.asList(l2, l3), index.range(100, null));
+		assertEquals(Arrays.asList(l1, l2), index.range(null, 150));
+		assertEquals(Arrays.asList(l2), index.range(50, 100));
+		assertTrue(index.range(201, null).isEmpty());
+		assertTrue(index.range(150, 120).isEmpty());
+	}
+
+	@Test
+	public void 测试空索引() {
+		SortedIndex<Level> index = build();
+		assertNull(index.floor(1));
+		assertNull(index.floor(null));
+		assertNull(index.ceiling(null));
+		assertTrue(index.range(null, null).isEmpty());
+	}
+
+}
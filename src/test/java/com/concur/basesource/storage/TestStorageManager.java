@@ -0,0 +1,126 @@
+package com.concur.basesource.storage;
+
+import com.concur.basesource.anno.Id;
+import com.concur.basesource.reader.ReaderHolder;
+import com.concur.basesource.reader.ResourceReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.annotation.AnnotationConfigUtils;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 资源管理器测试,并发获取同一个类资源时只初始化一次,且只返回加载完成的存储空间
+ * @author frank
+ */
+public class TestStorageManager {
+
+	public static class Level {
+
+		@Id
+		private int id;
+
+		public Level() {
+		}
+
+		Level(int id) {
+			this.id = id;
+		}
+	}
+
+	/**
+	 * 读取较慢并记录读取次数的读取器
+	 */
+	private static class SlowReader implements ResourceReader {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public String getFormat() {
+			return "slow";
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <E> Iterator<E> read(InputStream input, Class<E> clz) {
+			count.incrementAndGet();
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return (Iterator<E>) Arrays.asList(new Level(1), new Level(2)).iterator();
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private GenericApplicationContext context;
+
+	@Before
+	public void setUp() {
+		context = new GenericApplicationContext();
+		AnnotationConfigUtils.registerAnnotationConfigProcessors(context);
+	}
+
+	@After
+	public void tearDown() {
+		context.close();
+	}
+
+	@Test
+	public void 测试并发获取时只返回加载完成的存储空间() throws Exception {
+		SlowReader reader = new SlowReader();
+		ReaderHolder holder = new ReaderHolder();
+		holder.register(reader);
+		context.getBeanFactory().registerSingleton("readerHolder", holder);
+		context.refresh();
+
+		File file = folder.newFile("level.slow");
+		final StorageManager manager = new StorageManager();
+		manager.setApplicationContext(context);
+		manager.initialize(new ResourceDefinition(Level.class, new FormatDefinition(file.getParent(), "slow", "slow"),
+				file.getPath()));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Storage<?, ?>>> futures = new ArrayList<Future<Storage<?, ?>>>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(executor.submit(new Callable<Storage<?, ?>>() {
+					@Override
+					public Storage<?, ?> call() throws Exception {
+						return manager.getStorage(Level.class);
+					}
+				}));
+			}
+			Storage<?, ?> first = futures.get(0).get();
+			for (Future<Storage<?, ?>> future : futures) {
+				Storage<?, ?> storage = future.get();
+				assertSame(first, storage);
+				assertEquals(2, storage.getAll().size());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, reader.count.get());
+		assertEquals(1, manager.listStorages().length);
+	}
+
+}
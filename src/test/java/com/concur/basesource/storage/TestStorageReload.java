@@ -0,0 +1,308 @@
+package com.concur.basesource.storage;
+
+import com.concur.basesource.anno.Id;
+import com.concur.basesource.anno.Index;
+import com.concur.basesource.anno.StaticResource;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import static org.junit.Assert.*;
+
+/**
+ * 存储空间重新加载测试
+ * <p>增量更新后的快照必须与使用相同资源实例完整构建的快照一致</p>
+ * @author frank
+ */
+public class TestStorageReload {
+
+	@StaticResource
+	public static class Item {
+
+		@Id
+		private int id;
+		@Index(name = "type")
+		private int type;
+		@Index(name = "group", orderBy = { "id desc" })
+		private int group;
+		@Index(name = "ts", order = 0, sorted = true)
+		private int t2;
+		@Index(name = "ts", order = 1)
+		private String sub;
+		@Index(name = "code", unique = true)
+		private String code;
+		@Index(name = "exp", sorted = true)
+		private long exp;
+
+		Item(int id, int type, int t2, String code) {
+			this.id = id;
+			this.type = type;
+			this.group = id % 7;
+			this.t2 = t2;
+			this.sub = "s" + (id % 2);
+			this.code = code;
+			this.exp = id * 10L;
+		}
+
+		Item(int id) {
+			this(id, id % 3, id % 5, "c" + id);
+		}
+
+		@Override
+		public String toString() {
+			return "Item" + id;
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = folder.newFile("item.memory");
+	}
+
+	private Storage<Integer, Item> createStorage(MemoryReader<Item> reader) {
+		return reader.createStorage(Item.class, file);
+	}
+
+	private static List<Item> rows(int count) {
+		List<Item> result = new ArrayList<Item>();
+		for (int i = 1; i <= count; i++) {
+			result.add(new Item(i));
+		}
+		return result;
+	}
+
+	/**
+	 * 修改后的资源:5 从类型 2 改为类型 0,7 删除,10 和 11 交换唯一值,20 改变多值索引,新增 301
+	 */
+	private static List<Item> modified() {
+		List<Item> result = new ArrayList<Item>();
+		for (int i = 1; i <= 301; i++) {
+			if (i == 7) {
+				continue;
+			}
+			int type = i == 5 ? 0 : i % 3;
+			String code = i == 10 ? "c11" : i == 11 ? "c10" : "c" + i;
+			int t2 = i == 20 ? 4 : i % 5;
+			result.add(new Item(i, type, t2, code));
+		}
+		return result;
+	}
+
+	/**
+	 * 使用增量更新后的资源实例完整构建,比较全部索引
+	 */
+	private void assertSameAsRebuild(Storage<Integer, Item> storage, List<Item> expectedOrder) {
+		StorageSnapshot<Integer, Item> patched = storage.getSnapshot();
+		assertEquals(expectedOrder.toString(), patched.getAll().toString());
+
+		MemoryReader<Item> reader = new MemoryReader<Item>();
+		reader.rows = new ArrayList<Item>(patched.getAll());
+		StorageSnapshot<Integer, Item> full = createStorage(reader).getSnapshot();
+
+		assertEquals(full.getAll(), patched.getAll());
+		assertEquals(full.getValues().size(), patched.getValues().size());
+		for (Item item : full.getAll()) {
+			assertSame(item, patched.getValues().getInt(item.id));
+		}
+		assertEquals(full.getIndexs(), patched.getIndexs());
+		assertEquals(full.getUniques(), patched.getUniques());
+		assertEquals(full.getSorteds().keySet(), patched.getSorteds().keySet());
+		for (Entry<String, SortedIndex<Item>> entry : full.getSorteds().entrySet()) {
+			assertEquals(entry.getValue().getRows(), patched.getSorteds().get(entry.getKey()).getRows());
+		}
+		assertEquals(full.getPrefixes().keySet(), patched.getPrefixes().keySet());
+		IndexGetter getter = GetterBuilder.createIndexGetters(Item.class).get("ts");
+		for (int t2 = 0; t2 < 5; t2++) {
+			PrefixIndex<Item> expected = full.getPrefixes().get("ts");
+			PrefixIndex<Item> actual = patched.getPrefixes().get("ts");
+			assertEquals(expected.get(getter, t2), actual.get(getter, t2));
+			for (int sub = 0; sub < 2; sub++) {
+				Object[] values = { t2, "s" + sub };
+				assertEquals(expected.get(getter, values), actual.get(getter, values));
+			}
+		}
+	}
+
+	@Test
+	public void 测试增量更新与完整构建一致() {
+		MemoryReader<Item> reader = new MemoryReader<Item>();
+		reader.rows = rows(300);
+		Storage<Integer, Item> storage = createStorage(reader);
+
+		reader.rows = modified();
+		storage.reload();
+		assertSameAsRebuild(storage, reader.rows);
+		assertNull(storage.get(7));
+		assertEquals(0, storage.get(5).type);
+		assertSame(storage.get(11), storage.getUnique("code", "c10"));
+		assertTrue(storage.getIndex("type", 0).contains(storage.get(5)));
+		assertFalse(storage.getIndex("type", 2).contains(storage.get(5)));
+		// 排序器(id 降序)在增量更新后仍然生效
+		List<Item> group = storage.getIndex("group", 0);
+		assertEquals(301, group.get(0).id);
+		assertEquals(294, group.get(1).id);
+	}
+
+	@Test
+	public void 测试未变化的资源实例被复用() {
+		MemoryReader<Item> reader = new MemoryReader<Item>();
+		reader.rows = rows(300);
+		Storage<Integer, Item> storage = createStorage(reader);
+		Item item5 = storage.get(5);
+		Item item6 = storage.get(6);
+		List<Item> type0 = storage.getIndex("type", 0);
+
+		// 内容相同的新实例
+		reader.rows = rows(300);
+		storage.reload();
+		assertSame(item5, storage.get(5));
+		assertSame(type0, storage.getIndex("type", 0));
+
+		reader.rows = modified();
+		storage.reload();
+		assertNotSame(item5, storage.get(5));
+		assertSame(item6, storage.get(6));
+	}
+
+	@Test
+	public void 测试加载顺序变化时完整构建() {
+		MemoryReader<Item> reader = new MemoryReader<Item>();
+		reader.rows = rows(300);
+		Storage<Integer, Item> storage = createStorage(reader);
+
+		List<Item> reversed = modified();
+		Collections.reverse(reversed);
+		reader.rows = reversed;
+		storage.reload();
+		assertSameAsRebuild(storage, reversed);
+		assertEquals(301, storage.getAll().iterator().next().id);
+	}
+
+	@Test
+	public void 测试监听器只通知受影响的主键和索引值() {
+		MemoryReader<Item> reader = new MemoryReader<Item>();
+		reader.rows = rows(300);
+		Storage<Integer, Item> storage = createStorage(reader);
+		final List<String> fired = new ArrayList<String>();
+		final List<ChangeSet<Integer>> changes = new ArrayList<ChangeSet<Integer>>();
+		storage.addListener(new StorageListener<Integer, Item>() {
+			@Override
+			public void onChange(Storage<Integer, Item> storage, ChangeSet<Integer> changeSet) {
+				changes.add(changeSet);
+			}
+		});
+		storage.addListener(5, recorder(fired, "k5"));
+		storage.addListener(6, recorder(fired, "k6"));
+		storage.addIndexListener("type", 0, recorder(fired, "t0"));
+		storage.addIndexListener("type", 1, recorder(fired, "t1"));
+
+		reader.rows = rows(300);
+		storage.reload();
+		assertTrue(fired.isEmpty());
+		assertTrue(changes.get(0).isEmpty());
+
+		reader.rows = modified();
+		storage.reload();
+		// 5 改为类型 0,7 (类型 1) 被删除;6 没有变化
+		Collections.sort(fired);
+		assertEquals("[k5, t0, t1]", fired.toString());
+		ChangeSet<Integer> changeSet = changes.get(1);
+		assertTrue(changeSet.getAdded().contains(301));
+		assertTrue(changeSet.getRemoved().contains(7));
+		assertTrue(changeSet.getUpdated().contains(5));
+		assertFalse(changeSet.isChanged(6));
+	}
+
+	@Test
+	public void 测试监听器异常时通知其余监听器并抛出() {
+		MemoryReader<Item> reader = new MemoryReader<Item>();
+		reader.rows = rows(10);
+		Storage<Integer, Item> storage = createStorage(reader);
+		final List<String> fired = new ArrayList<String>();
+		storage.addListener(new StorageListener<Integer, Item>() {
+			@Override
+			public void onChange(Storage<Integer, Item> storage, ChangeSet<Integer> changes) {
+				throw new IllegalStateException("first");
+			}
+		});
+		storage.addListener(recorder(fired, "second"));
+
+		reader.rows = rows(11);
+		try {
+			storage.reload();
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("first", e.getMessage());
+		}
+		assertEquals("[second]", fired.toString());
+		assertNotNull(storage.get(11));
+	}
+
+	@Test
+	public void 测试数组查询值按多个索引值处理() {
+		MemoryReader<Item> reader = new MemoryReader<Item>();
+		reader.rows = rows(300);
+		Storage<Integer, Item> storage = createStorage(reader);
+
+		Object values = new Object[] { 3, "s1" };
+		assertEquals(storage.getIndex("ts", 3, "s1"), storage.getIndex("ts", values));
+		assertEquals(30, storage.getIndex("ts", values).size());
+		Object single = new Object[] { 0 };
+		assertSame(storage.getIndex("type", 0), storage.getIndex("type", single));
+		try {
+			storage.getIndex("type", 0, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			storage.getIndex("ts", new Object[] { 3, "s1", 0 });
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void 测试排序索引查询值类型() {
+		MemoryReader<Item> reader = new MemoryReader<Item>();
+		reader.rows = rows(30);
+		Storage<Integer, Item> storage = createStorage(reader);
+
+		// 查询值转换为索引值类型
+		assertEquals(9, storage.getFloor("exp", 99).id);
+		assertEquals(10, storage.getCeiling("exp", "91").id);
+		assertEquals(12, storage.getRange("ts", 2, new Object[] { 3, "s1" }).size());
+		try {
+			storage.getFloor("exp", "abc");
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			storage.getRange("ts", new Object[] { "x", "s1" }, null);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	private static StorageListener<Integer, Item> recorder(final List<String> fired, final String name) {
+		return new StorageListener<Integer, Item>() {
+			@Override
+			public void onChange(Storage<Integer, Item> storage, ChangeSet<Integer> changes) {
+				fired.add(name);
+			}
+		};
+	}
+
+}
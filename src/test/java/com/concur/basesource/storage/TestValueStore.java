@@ -0,0 +1,125 @@
+package com.concur.basesource.storage;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 基本类型主键存储空间测试
+ * @author frank
+ */
+public class TestValueStore {
+
+	private static class Item {
+
+		final long id;
+
+		Item(long id) {
+			this.id = id;
+		}
+	}
+
+	private static final IntGetter INT_ID = new IntGetter() {
+		@Override
+		public int getInt(Object value) {
+			return (int) ((Item) value).id;
+		}
+
+		@Override
+		public Object getValue(Object value) {
+			return getInt(value);
+		}
+	};
+
+	private static final LongGetter LONG_ID = new LongGetter() {
+		@Override
+		public long getLong(Object value) {
+			return ((Item) value).id;
+		}
+
+		@Override
+		public Object getValue(Object value) {
+			return getLong(value);
+		}
+	};
+
+	@Test
+	public void 测试int主键存取和扩容() {
+		IntValueStore<Integer, Item> store = new IntValueStore<Integer, Item>(INT_ID, 0);
+		Map<Integer, Item> expected = new HashMap<Integer, Item>();
+		Random random = new Random(1);
+		for (int i = 0; i < 5000; i++) {
+			int id = i % 3 == 0 ? random.nextInt() : i * 16;
+			Item item = new Item(id);
+			assertSame(expected.put(id, item), store.put(item));
+		}
+		assertEquals(expected.size(), store.size());
+		for (Map.Entry<Integer, Item> entry : expected.entrySet()) {
+			assertSame(entry.getValue(), store.get(entry.getKey()));
+			assertSame(entry.getValue(), store.getInt(entry.getKey()));
+			assertSame(entry.getValue(), store.getLong(entry.getKey()));
+		}
+		assertNull(store.get(-7));
+		assertNull(store.getLong(Long.MAX_VALUE));
+		assertFalse(store.containsKey(-7));
+	}
+
+	@Test
+	public void 测试int主键替换旧实例() {
+		IntValueStore<Integer, Item> store = new IntValueStore<Integer, Item>(INT_ID, 4);
+		Item first = new Item(3);
+		Item second = new Item(3);
+		assertNull(store.put(first));
+		assertSame(first, store.put(second));
+		assertEquals(1, store.size());
+		assertSame(second, store.getInt(3));
+	}
+
+	@Test
+	public void 测试long主键存取和扩容() {
+		LongValueStore<Object, Item> store = new LongValueStore<Object, Item>(LONG_ID, 0);
+		Map<Long, Item> expected = new HashMap<Long, Item>();
+		Random random = new Random(2);
+		for (int i = 0; i < 5000; i++) {
+			long id = i % 3 == 0 ? random.nextLong() : (long) i << 32;
+			Item item = new Item(id);
+			assertSame(expected.put(id, item), store.put(item));
+		}
+		assertEquals(expected.size(), store.size());
+		for (Map.Entry<Long, Item> entry : expected.entrySet()) {
+			assertSame(entry.getValue(), store.get(entry.getKey()));
+			assertSame(entry.getValue(), store.getLong(entry.getKey()));
+		}
+		Item small = new Item(42);
+		store.put(small);
+		assertSame(small, store.getInt(42));
+		// 主键类型不一致时不匹配
+		assertNull(store.get(42));
+		assertSame(small, store.get(42L));
+	}
+
+	@Test
+	public void 测试数组存储空间() {
+		IntValueStore<Integer, Item> store = new IntValueStore<Integer, Item>(INT_ID, 16);
+		for (int id = 100; id < 200; id += 2) {
+			store.put(new Item(id));
+		}
+		assertEquals(99, store.getSpan());
+		assertTrue(ArrayValueStore.isDense(store.size(), store.getSpan()));
+		ArrayValueStore<Integer, Item> array = store.toArrayStore();
+		assertEquals(store.size(), array.size());
+		for (int id = 90; id < 210; id++) {
+			assertSame(store.getInt(id), array.getInt(id));
+			assertSame(store.get(id), array.get(id));
+		}
+		assertNull(array.getLong(Long.MIN_VALUE));
+		assertFalse(ArrayValueStore.isDense(10, 1000));
+		assertTrue(ArrayValueStore.isAcceptable(10, 200));
+		assertFalse(ArrayValueStore.isAcceptable(2, ArrayValueStore.MAX_SPAN));
+	}
+
+}